@@ -0,0 +1,74 @@
+#!/usr/bin/env bash
+#
+# Measures time to first request of the extracted application, with and without
+# Spring AOT + CDS. Build first with:
+#
+#   ./mvnw -Pproduction,cds package
+#
+# Usage: scripts/startup-benchmark.sh [runs] [port]
+#
+# GRIDDBCLOUD_* and OPENAI_API_KEY are read from the environment as usual; the
+# probe only waits for /actuator/health/liveness, so GridDB Cloud latency does not
+# affect the measurement.
+
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${2:-18080}"
+APP_DIR="$(cd "$(dirname "$0")/.." && pwd)/target/application"
+URL="http://localhost:${PORT}/actuator/health/liveness"
+
+if [[ ! -f "$APP_DIR/application.jsa" ]]; then
+    echo "CDS archive not found in $APP_DIR, build with: ./mvnw -Pproduction,cds package" >&2
+    exit 1
+fi
+JAR="$(find "$APP_DIR" -maxdepth 1 -name '*.jar' | head -n 1)"
+if [[ -z "$JAR" ]]; then
+    echo "Application jar not found in $APP_DIR, build with: ./mvnw -Pproduction,cds package" >&2
+    exit 1
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+# Starts the application with the given JVM options and prints the milliseconds
+# until the first successful request.
+measure() {
+    local start pid elapsed
+    start=$(now_ms)
+    (cd "$APP_DIR" && exec java "$@" -Dserver.port="$PORT" -jar "$JAR" >/dev/null 2>&1) &
+    pid=$!
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "application exited before serving a request" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$elapsed"
+}
+
+run_mode() {
+    local label="$1"
+    shift
+    local total=0 best=0 t
+    for ((i = 1; i <= RUNS; i++)); do
+        t=$(measure "$@")
+        total=$(( total + t ))
+        if (( best == 0 || t < best )); then
+            best=$t
+        fi
+    done
+    printf '| %-16s | %8d | %9d |\n' "$label" "$(( total / RUNS ))" "$best"
+}
+
+java -version 2>&1 | head -n 1
+echo
+echo "| Mode             | Avg (ms) | Best (ms) |"
+echo "|------------------|----------|-----------|"
+run_mode "JIT (baseline)"
+run_mode "AOT + CDS" -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true
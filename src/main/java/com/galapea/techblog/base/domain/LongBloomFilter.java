@@ -0,0 +1,111 @@
+package com.galapea.techblog.base.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of {@code long} keys: a compact set that answers "definitely
+ * not added" or "possibly added".
+ * <p>
+ * It is sized from the expected number of keys and the acceptable false
+ * positive rate; adding more keys than expected raises the rate. Keys are
+ * hashed once with a 64-bit mix and the bit positions are derived by double
+ * hashing. Bits are set with atomic operations, so the filter can be read and
+ * added to from several threads. Keys cannot be removed.
+ * </p>
+ */
+public final class LongBloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedKeys;
+    private final AtomicLong added = new AtomicLong();
+
+    /**
+     * @param expectedKeys
+     *            the number of keys the filter is sized for
+     * @param falsePositiveRate
+     *            the rate of false "possibly added" answers at that size, e.g.
+     *            {@code 0.01}
+     */
+    public LongBloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys < 1) {
+            throw new IllegalArgumentException("Expected keys must be positive: " + expectedKeys);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1): " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitCount / expectedKeys * ln2)));
+        this.expectedKeys = expectedKeys;
+    }
+
+    /**
+     * Adds a key.
+     */
+    public void put(long key) {
+        long hash = mix(key);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        added.incrementAndGet();
+    }
+
+    /**
+     * @return {@code false} if the key was definitely not added, {@code true} if
+     *         it possibly was
+     */
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of {@link #put(long)} calls, counting repeated keys
+     */
+    public long addedCount() {
+        return added.get();
+    }
+
+    /**
+     * @return the number of keys the filter was sized for
+     */
+    public long expectedKeys() {
+        return expectedKeys;
+    }
+
+    /**
+     * @return the size of the bit set in bytes
+     */
+    public long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    // Stafford variant 13 of the MurmurHash3 finalizer, spreads sequential ids over all bits
+    private static long mix(long key) {
+        long z = key;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
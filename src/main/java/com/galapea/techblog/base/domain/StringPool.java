@@ -0,0 +1,129 @@
+package com.galapea.techblog.base.domain;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Canonicalizes equal strings to one shared instance, like
+ * {@link String#intern()} but bounded and private to its users.
+ * <p>
+ * Meant for low-cardinality values that are decoded over and over, e.g. author
+ * or publisher names: each decoded copy can be dropped in favour of the pooled
+ * instance, so a cached data set holds every distinct value once. The pool is
+ * thread-safe and lookups do not lock, so parallel decoders do not contend on
+ * it. It admits values until it holds {@code maxEntries} of them (callers that
+ * race for the last slots may exceed it by a few) and never admits values
+ * longer than {@code maxLength}; such values are returned as they are.
+ * </p>
+ * <p>
+ * Values are held weakly: a value that nothing but the pool refers to anymore,
+ * e.g. the publisher of books that were removed or of an upload that was
+ * discarded, is dropped by the next garbage collection and its entry is
+ * removed on the next call, which makes room for new values.
+ * </p>
+ */
+public final class StringPool {
+    // Keys and values are the same reference, so a pooled value is only held weakly
+    private final Map<PooledString, PooledString> pool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<String> cleared = new ReferenceQueue<>();
+    private final int maxEntries;
+    private final int maxLength;
+
+    /**
+     * @param maxEntries
+     *            the maximum number of pooled values
+     * @param maxLength
+     *            the maximum length of a pooled value
+     */
+    public StringPool(int maxEntries, int maxLength) {
+        this.maxEntries = maxEntries;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @param value
+     *            a value
+     * @return the pooled instance equal to {@code value}, {@code value} itself if
+     *         it was added to the pool or cannot be pooled, or {@code null} for
+     *         {@code null}
+     */
+    public @Nullable String canonicalize(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        removeCleared();
+        PooledString lookup = new PooledString(value, null);
+        while (true) {
+            String pooled = referent(pool.get(lookup));
+            if (pooled != null) {
+                return pooled;
+            }
+            if (value.length() > maxLength || pool.size() >= maxEntries) {
+                return value;
+            }
+            PooledString added = new PooledString(value, cleared);
+            PooledString previous = pool.putIfAbsent(added, added);
+            if (previous == null) {
+                return value;
+            }
+            // Another caller added an equal value first; unless it was collected meanwhile, share it
+            pooled = previous.get();
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+    }
+
+    /**
+     * @return the number of pooled values that are still referenced
+     */
+    public int size() {
+        removeCleared();
+        return pool.size();
+    }
+
+    private void removeCleared() {
+        Reference<? extends String> reference;
+        while ((reference = cleared.poll()) != null) {
+            pool.remove(reference);
+        }
+    }
+
+    private static @Nullable String referent(@Nullable PooledString reference) {
+        return reference != null ? reference.get() : null;
+    }
+
+    /**
+     * Weak reference that is equal to the references of equal strings. Once
+     * cleared, it is only equal to itself, so it can still be removed.
+     */
+    private static final class PooledString extends WeakReference<String> {
+        private final int hash;
+
+        PooledString(String value, @Nullable ReferenceQueue<String> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof PooledString reference) || reference.hash != hash) {
+                return false;
+            }
+            String value = get();
+            return value != null && value.equals(reference.get());
+        }
+    }
+}
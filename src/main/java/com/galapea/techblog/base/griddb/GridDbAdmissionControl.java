@@ -0,0 +1,176 @@
+package com.galapea.techblog.base.griddb;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Process-wide admission control of GridDB Cloud requests, so that bulk work
+ * stays within the request quota of the cloud plan and leaves room for
+ * interactive users.
+ * <p>
+ * Every {@link GridDbWorkload} draws from its own token bucket, refilled at a
+ * fixed rate up to a burst size. A request takes one token. When the bucket is
+ * empty the request either waits for its token, up to a maximum wait, or is
+ * rejected at once, depending on the workload's policy. Waiting requests
+ * reserve their token, so they are admitted in arrival order.
+ * </p>
+ * <p>
+ * The time requests spend queued is recorded in the
+ * {@code griddb.admission.wait} timer and rejections in the
+ * {@code griddb.admission.rejected} counter, both tagged with the workload.
+ * </p>
+ */
+public class GridDbAdmissionControl {
+    private static final Logger log = LoggerFactory.getLogger(GridDbAdmissionControl.class);
+
+    private final Map<GridDbWorkload, Bucket> buckets = new EnumMap<>(GridDbWorkload.class);
+    private final LongSupplier nanoTime;
+    private final GridDbRetryPolicy.Sleeper sleeper;
+
+    /**
+     * What a request does when its bucket is empty.
+     */
+    public enum Policy {
+        /** Wait for the next token, up to the maximum wait. */
+        WAIT,
+        /** Fail at once. */
+        REJECT
+    }
+
+    /**
+     * The quota of one workload.
+     *
+     * @param rate
+     *            tokens added per second; 0 or less admits every request
+     * @param burst
+     *            tokens the bucket holds at most, i.e. requests admitted at
+     *            once after a quiet period
+     * @param policy
+     *            what a request does when the bucket is empty
+     * @param maxWait
+     *            longest time a request waits for its token
+     */
+    public record Limit(double rate, int burst, Policy policy, Duration maxWait) {
+    }
+
+    /**
+     * A request that exceeded the quota of its workload. Its
+     * {@link #getRetryAfter()} says when a token will be available.
+     */
+    public static class RejectedException extends GridDbException {
+        public RejectedException(GridDbWorkload workload, Duration retryAfter) {
+            super("GridDB request quota of " + workload + " exhausted", HttpStatusCode.valueOf(429), workload.name(),
+                    retryAfter);
+        }
+    }
+
+    public GridDbAdmissionControl(Map<GridDbWorkload, Limit> limits, MeterRegistry meterRegistry) {
+        this(limits, meterRegistry, System::nanoTime, Thread::sleep);
+    }
+
+    GridDbAdmissionControl(Map<GridDbWorkload, Limit> limits, MeterRegistry meterRegistry, LongSupplier nanoTime,
+            GridDbRetryPolicy.Sleeper sleeper) {
+        this.nanoTime = nanoTime;
+        this.sleeper = sleeper;
+        for (GridDbWorkload workload : GridDbWorkload.values()) {
+            Limit limit = limits.get(workload);
+            if (limit != null && limit.rate() > 0) {
+                String tag = workload.name().toLowerCase();
+                buckets.put(workload, new Bucket(limit, nanoTime.getAsLong(),
+                        Timer.builder("griddb.admission.wait").tag("workload", tag)
+                                .description("Time GridDB requests waited for admission").register(meterRegistry),
+                        Counter.builder("griddb.admission.rejected").tag("workload", tag)
+                                .description("GridDB requests rejected by admission control")
+                                .register(meterRegistry)));
+            }
+        }
+    }
+
+    /**
+     * Admits a request of the given workload, waiting for a token if the
+     * workload's policy allows it.
+     *
+     * @throws RejectedException
+     *             if the request is rejected, or interrupted while waiting
+     */
+    public void acquire(GridDbWorkload workload) {
+        Bucket bucket = buckets.get(workload);
+        if (bucket == null) {
+            return;
+        }
+        long waitNanos = bucket.reserve(nanoTime.getAsLong());
+        if (waitNanos > 0) {
+            try {
+                sleeper.sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos + 999_999));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                bucket.release();
+                throw new RejectedException(workload, Duration.ofNanos(waitNanos));
+            }
+        } else if (waitNanos < 0) {
+            bucket.rejected.increment();
+            Duration retryAfter = Duration.ofNanos(-waitNanos);
+            log.debug("Rejected {} GridDB request, next token in {} ms", workload, retryAfter.toMillis());
+            throw new RejectedException(workload, retryAfter);
+        }
+        bucket.waited.record(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private static final class Bucket {
+        private final double tokensPerNano;
+        private final double burst;
+        private final Policy policy;
+        private final long maxWaitNanos;
+        private final Timer waited;
+        private final Counter rejected;
+        // Negative while requests are waiting for reserved tokens
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(Limit limit, long now, Timer waited, Counter rejected) {
+            this.tokensPerNano = limit.rate() / TimeUnit.SECONDS.toNanos(1);
+            this.burst = Math.max(1, limit.burst());
+            this.policy = limit.policy();
+            this.maxWaitNanos = limit.maxWait().toNanos();
+            this.waited = waited;
+            this.rejected = rejected;
+            this.tokens = burst;
+            this.refilledAt = now;
+        }
+
+        /**
+         * Takes a token, possibly one that is only added in the future.
+         *
+         * @return 0 if a token was available, the time until the reserved token
+         *         is added, or minus the time until a token is added if the
+         *         request is rejected
+         */
+        synchronized long reserve(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            long waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            if (policy == Policy.REJECT || waitNanos > maxWaitNanos) {
+                return -waitNanos;
+            }
+            tokens -= 1;
+            return waitNanos;
+        }
+
+        synchronized void release() {
+            tokens += 1;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.galapea.techblog.base.griddb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Limits the GridDB Cloud requests of one {@link GridDbWorkload} that are in
+ * flight at the same time, so that a workload cannot take the connections
+ * another one needs, e.g. a bulk import those of page loads.
+ * <p>
+ * A request holds its permit from the moment it is sent until its response
+ * has been read and closed. Requests that find every permit taken wait up to
+ * {@code maxWait} for one, in arrival order, and then fail with
+ * {@code 503 Service Unavailable}, which the {@link GridDbRetryPolicy} treats
+ * as transient.
+ * </p>
+ */
+public class GridDbBulkhead implements ClientHttpRequestInterceptor {
+    private final GridDbWorkload workload;
+    private final int maxConcurrent;
+    private final Duration maxWait;
+    private final Semaphore permits;
+
+    /**
+     * @param workload
+     *            the workload whose requests pass through this bulkhead
+     * @param maxConcurrent
+     *            requests in flight at most
+     * @param maxWait
+     *            longest time a request waits for a permit
+     */
+    public GridDbBulkhead(GridDbWorkload workload, int maxConcurrent, Duration maxWait) {
+        this.workload = workload;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(this.maxConcurrent, true);
+    }
+
+    public GridDbWorkload getWorkload() {
+        return workload;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return requests currently in flight
+     */
+    public int inFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        acquire();
+        try {
+            return new ReleasingResponse(execution.execute(request, body));
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new GridDbException("All " + maxConcurrent + " GridDB connections of " + workload + " are busy",
+                        HttpStatusCode.valueOf(503), workload.name());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GridDbException("Interrupted while waiting for a GridDB connection",
+                    HttpStatusCode.valueOf(503), workload.name());
+        }
+    }
+
+    // Releases the permit once the caller is done with the response, not when the headers arrive
+    private final class ReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
@@ -1,33 +1,70 @@
 package com.galapea.techblog.base.griddb;
 
+import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestClient;
 import com.galapea.techblog.base.griddb.acquisition.AcquireRowsRequest;
 import com.galapea.techblog.base.griddb.acquisition.AcquireRowsResponse;
 
-public class GridDbCloudClient {
+public class GridDbCloudClient implements AutoCloseable {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
-    private final RestClient restClient;
+    private final String baseUrl;
+    private final String authToken;
+    private final RestClient sharedRestClient;
+    private Map<GridDbWorkload, RestClient> workloadRestClients = Map.of();
+    // The connection pools of the bulkhead transports, closed with this client
+    private final List<HttpClient> httpClients = new CopyOnWriteArrayList<>();
+    private GridDbWriteJournal writeJournal;
+    private GridDbRetryPolicy retryPolicy = GridDbRetryPolicy.NONE;
+    private GridDbRowQuarantine rowQuarantine;
+    private int maxQuarantinedRowsPerBatch;
+    private GridDbAdmissionControl admissionControl;
 
     public GridDbCloudClient(String baseUrl, String authToken) {
-        this.restClient = RestClient.builder().baseUrl(baseUrl).defaultHeader("Authorization", "Basic " + authToken)
-                .defaultHeader("Content-Type", "application/json").defaultHeader("Accept", "application/json")
+        this.baseUrl = baseUrl;
+        this.authToken = authToken;
+        this.sharedRestClient = newRestClient(null);
+    }
+
+    private RestClient newRestClient(GridDbBulkhead bulkhead) {
+        RestClient.Builder builder = RestClient.builder().baseUrl(baseUrl)
+                .defaultHeader("Authorization", "Basic " + authToken).defaultHeader("Content-Type", "application/json")
+                .defaultHeader("Accept", "application/json")
                 .defaultStatusHandler(HttpStatusCode::isError, (request, response) -> {
                     log.error("GridDBCloud API Error HTTP status text: {}", response.getStatusText());
                     // String errorBody = new String(response.getBody().readAllBytes());
                     String errorBody = StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
                     String message = String.format("%s - %s", response.getStatusCode().value(), errorBody);
                     log.error("GridDBCloud API Error: {}", message);
-                    throw new GridDbException("GridDBCloud API request failed", response.getStatusCode(), errorBody);
+                    Duration retryAfter = GridDbRetryPolicy
+                            .parseRetryAfter(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                    throw new GridDbException("GridDBCloud API request failed", response.getStatusCode(), errorBody,
+                            retryAfter);
                 }).requestInterceptor((request, body, execution) -> {
+                    if (admissionControl != null) {
+                        admissionControl.acquire(GridDbWorkload.current());
+                    }
                     final long begin = System.currentTimeMillis();
                     ClientHttpResponse response = execution.execute(request, body);
                     long duration = System.currentTimeMillis() - begin;
@@ -38,15 +75,132 @@ public class GridDbCloudClient {
                         log.info("[HttpRequestInterceptor] Body: {}", new String(body, StandardCharsets.UTF_8));
                     }
                     return response;
-                }).build();
-        checkConnection();
+                });
+        if (bulkhead != null) {
+            // A request factory of its own, so that the workload shares no connections with other workloads
+            HttpClient httpClient = HttpClient.newHttpClient();
+            httpClients.add(httpClient);
+            builder.requestFactory(new JdkClientHttpRequestFactory(httpClient)).requestInterceptor(bulkhead);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Journals row registrations and durable SQL updates before they are sent, so
+     * that writes made while GridDB Cloud is unreachable are replayed once it
+     * recovers instead of being lost.
+     *
+     * @param journal
+     *            the journal to record pending writes in
+     * @param replayInterval
+     *            delay between attempts to deliver pending writes
+     */
+    public void enableWriteJournal(GridDbWriteJournal journal, Duration replayInterval) {
+        this.writeJournal = journal;
+        journal.startReplay(this::deliver, replayInterval);
+    }
+
+    /**
+     * Retries idempotent requests that fail with a transient error: reads,
+     * container creation and removal, row registration and
+     * {@link #executeDurableSqlUpdate(String, List)}. Other SQL updates and
+     * {@link #post(String, Object)} are never retried.
+     *
+     * @param policy
+     *            how often and after which delay to retry
+     */
+    public void enableRetries(GridDbRetryPolicy policy) {
+        this.retryPolicy = policy;
+    }
+
+    /**
+     * Isolates rows that GridDB rejects: when a row registration fails with a
+     * client error such as {@code 400 Bad Request}, the batch is registered again
+     * in halves, down to single rows, and the rows that still fail are put into
+     * the quarantine while the rest of the batch is written. A batch of a single
+     * row is not split; its rejection fails the call as usual.
+     *
+     * @param quarantine
+     *            where rejected rows are kept
+     * @param maxRowsPerBatch
+     *            rejected rows after which the batch is given up on, because
+     *            the error is probably not caused by individual rows; its rows
+     *            are then not quarantined
+     */
+    public void enableRowQuarantine(GridDbRowQuarantine quarantine, int maxRowsPerBatch) {
+        this.rowQuarantine = quarantine;
+        this.maxQuarantinedRowsPerBatch = Math.max(1, maxRowsPerBatch);
+    }
+
+    /**
+     * Counts every request, including retries, against the quota of the
+     * {@link GridDbWorkload} bound to the calling thread, and waits for or
+     * rejects requests that exceed it. Rejected requests fail with a
+     * {@link GridDbAdmissionControl.RejectedException} and are not retried.
+     *
+     * @param control
+     *            the request quotas shared by all workloads
+     */
+    public void enableAdmissionControl(GridDbAdmissionControl control) {
+        this.admissionControl = control;
+    }
+
+    /**
+     * Sends the requests of each given workload through a transport of its own,
+     * with its own connections and concurrency limit, so that e.g. a bulk import
+     * cannot delay page loads. Workloads without a bulkhead share one transport.
+     * The connections of these transports are closed by {@link #close()}.
+     *
+     * @param bulkheads
+     *            at most one bulkhead per workload
+     */
+    public void enableBulkheads(Collection<GridDbBulkhead> bulkheads) {
+        Map<GridDbWorkload, RestClient> restClients = new EnumMap<>(GridDbWorkload.class);
+        for (GridDbBulkhead bulkhead : bulkheads) {
+            restClients.put(bulkhead.getWorkload(), newRestClient(bulkhead));
+        }
+        this.workloadRestClients = restClients;
+    }
+
+    /**
+     * @return the quarantine of rejected rows, or {@code null} if it is not
+     *         enabled
+     */
+    public GridDbRowQuarantine getRowQuarantine() {
+        return rowQuarantine;
+    }
+
+    // The transport of the workload bound to the calling thread
+    private RestClient restClient() {
+        return workloadRestClients.getOrDefault(GridDbWorkload.current(), sharedRestClient);
     }
 
-    private void checkConnection() {
+    @Override
+    public void close() {
+        if (writeJournal != null) {
+            writeJournal.close();
+        }
+        httpClients.forEach(HttpClient::close);
+    }
+
+    /**
+     * Verifies that GridDB Cloud is reachable with the configured credentials.
+     * <p>
+     * This is intentionally not called from the constructor so that the
+     * application context does not wait for the remote service. See
+     * {@link GridDbHealthIndicator#awaitConnection()} for the background warm-up.
+     * </p>
+     *
+     * @throws GridDbException
+     *             if the connection check fails
+     */
+    public void checkConnection() {
         try {
             log.info("Checking connection to GridDBCloud...");
-            restClient.get().uri("/checkConnection").retrieve().toBodilessEntity();
+            restClient().get().uri("/checkConnection").retrieve().toBodilessEntity();
             log.info("Connection to GridDBCloud is successful.");
+        } catch (GridDbAdmissionControl.RejectedException e) {
+            throw e;
         } catch (Exception e) {
             throw new GridDbException("Failed to connect to GridDBCloud", HttpStatusCode.valueOf(500), e.getMessage(),
                     e);
@@ -54,21 +208,122 @@ public class GridDbCloudClient {
     }
 
     public void createContainer(GridDbContainerDefinition containerDefinition) {
+        retryPolicy.execute("Create container " + containerDefinition.getContainerName(), () -> {
+            try {
+                restClient().post().uri("/containers").body(containerDefinition).retrieve().toBodilessEntity();
+            } catch (GridDbException e) {
+                if (e.getStatusCode().value() != 409) {
+                    throw e;
+                }
+            } catch (Exception e) {
+                throw new GridDbException("Failed to create container", HttpStatusCode.valueOf(500), e.getMessage(),
+                        e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Fetches the schema of a container.
+     *
+     * @param containerName
+     *            the name of the container
+     * @return the container type, row key flag and columns with their indexes
+     * @throws GridDbException
+     *             if the container does not exist (404) or the request fails
+     */
+    public GridDbContainerDefinition getContainerInfo(String containerName) {
+        return retryPolicy.execute("Get container info of " + containerName, () -> {
+            try {
+                return restClient().get().uri("/containers/" + containerName + "/info").retrieve()
+                        .body(GridDbContainerDefinition.class);
+            } catch (GridDbException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new GridDbException("Failed to get container info", HttpStatusCode.valueOf(500),
+                        e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Drops the given container. Missing containers are ignored by GridDB.
+     *
+     * @param containerName
+     *            the name of the container to drop
+     * @throws GridDbException
+     *             if the request fails
+     */
+    public void dropContainer(String containerName) {
+        retryPolicy.execute("Drop container " + containerName, () -> {
+            try {
+                restClient().method(HttpMethod.DELETE).uri("/containers").body(List.of(containerName)).retrieve()
+                        .toBodilessEntity();
+            } catch (GridDbException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new GridDbException("Failed to drop container", HttpStatusCode.valueOf(500), e.getMessage(),
+                        e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Executes SQL update statements (INSERT, UPDATE, DELETE, DDL) in a single
+     * request to the {@code /sql/update} endpoint. For more details, refer to the
+     * <a href=
+     * "https://www.toshiba-sol.co.jp/en/pro/griddb/docs-en/v5_7/GridDB_Web_API_Reference.html#sql-update">GridDB
+     * Web API Reference</a>
+     *
+     * @param statements
+     *            the statements to execute, in order
+     * @return one result per statement, in request order
+     * @throws GridDbException
+     *             if the request fails
+     */
+    public List<GridDbSqlUpdateResult> executeSqlUpdate(List<GridDbCloudSQLInsert> statements) {
         try {
-            restClient.post().uri("/containers").body(containerDefinition).retrieve().toBodilessEntity();
+            GridDbSqlUpdateResult[] results = restClient().post().uri("/sql/update").body(statements).retrieve()
+                    .body(GridDbSqlUpdateResult[].class);
+            return results == null ? List.of() : Arrays.asList(results);
         } catch (GridDbException e) {
-            if (e.getStatusCode().value() == 409) {
-                return;
-            }
             throw e;
         } catch (Exception e) {
-            throw new GridDbException("Failed to create container", HttpStatusCode.valueOf(500), e.getMessage(), e);
+            throw new GridDbException("Failed to execute SQL update", HttpStatusCode.valueOf(500), e.getMessage(), e);
         }
     }
 
+    /**
+     * Executes SQL SELECT statements in a single request to the {@code /sql}
+     * endpoint. Filtering, grouping and aggregation run in GridDB, only the
+     * result rows are transferred.
+     *
+     * @param statements
+     *            the queries to execute, in order
+     * @return one result per statement, in request order
+     * @throws GridDbException
+     *             if the request fails, e.g. because a statement is invalid
+     */
+    public List<GridDbSqlResult> executeSqlSelect(List<String> statements) {
+        List<GridDbSqlSelect> body = statements.stream().map(GridDbSqlSelect::new).toList();
+        return retryPolicy.execute("SQL select", () -> {
+            try {
+                GridDbSqlResult[] results = restClient().post().uri("/sql").body(body).retrieve()
+                        .body(GridDbSqlResult[].class);
+                return results == null ? List.<GridDbSqlResult>of() : Arrays.asList(results);
+            } catch (GridDbException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new GridDbException("Failed to execute SQL select", HttpStatusCode.valueOf(500),
+                        e.getMessage(), e);
+            }
+        });
+    }
+
     public void post(String uri, Object body) {
         try {
-            restClient.post().uri(uri).body(body).retrieve().toBodilessEntity();
+            restClient().post().uri(uri).body(body).retrieve().toBodilessEntity();
         } catch (GridDbException e) {
             throw e;
         } catch (Exception e) {
@@ -76,29 +331,213 @@ public class GridDbCloudClient {
         }
     }
 
+    /**
+     * Executes idempotent SQL update statements through the write journal, see
+     * {@link #enableWriteJournal(GridDbWriteJournal, Duration)}. Without a journal
+     * this is the same as {@link #executeSqlUpdate(List)}.
+     * <p>
+     * Only statements that can safely be executed more than once may be passed,
+     * e.g. {@code INSERT OR REPLACE} or {@code UPDATE ... SET} with literal
+     * values.
+     * </p>
+     *
+     * @param containerName
+     *            the container the statements write to; they are delivered
+     *            after earlier journaled writes to it
+     * @param statements
+     *            the statements to execute, in order
+     * @return one result per statement, or an empty list if GridDB Cloud is
+     *         unavailable and the statements have been queued for replay
+     * @throws GridDbException
+     *             if GridDB rejects the request
+     */
+    public List<GridDbSqlUpdateResult> executeDurableSqlUpdate(String containerName,
+            List<GridDbCloudSQLInsert> statements) {
+        if (writeJournal == null) {
+            return retryPolicy.execute("SQL update", () -> executeSqlUpdate(statements));
+        }
+        return writeThroughJournal(GridDbWriteJournal.Kind.SQL, containerName, statements,
+                () -> retryPolicy.execute("SQL update", () -> executeSqlUpdate(statements)), List.of());
+    }
+
     /**
      * Registers rows of data into a specified GridDB container. For more details,
      * refer to the <a href=
      * "https://www.toshiba-sol.co.jp/en/pro/griddb/docs-en/v5_7/GridDB_Web_API_Reference.html#row-registration-in-a-single-container">GridDB
      * Web API Reference</a>
+     * <p>
+     * When the write journal is enabled, the rows are journaled first and sent
+     * after the earlier journaled writes to the same container that are still
+     * pending. If GridDB Cloud is unavailable, the call returns normally and the
+     * rows are registered by the replayer later. Registration replaces rows by
+     * row key, so replaying is idempotent.
+     * </p>
+     * <p>
+     * With the row quarantine enabled, a batch of rows that GridDB rejects is
+     * split to register every row except the rejected ones, see
+     * {@link #enableRowQuarantine(GridDbRowQuarantine, int)}. The call then
+     * fails with a {@link GridDbRowQuarantine.PartialWriteException} listing the
+     * rejected rows.
+     * </p>
      *
      * @param containerName
      *            The name of the container where rows will be registered
      * @param body
      *            The data to be registered in the container
+     * @throws GridDbRowQuarantine.PartialWriteException
+     *             If only some of the rows were registered
      * @throws GridDbException
      *             If there's an error during the registration process with GridDB
      *             or if the REST request fails
      */
     public void registerRows(String containerName, Object body) {
+        if (writeJournal == null) {
+            putRowsIsolatingRejects(containerName, body);
+            return;
+        }
+        writeThroughJournal(GridDbWriteJournal.Kind.ROWS, containerName, body, () -> {
+            putRowsIsolatingRejects(containerName, body);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Journals a write and sends it in the lane of its container, after the
+     * pending earlier writes to that container.
+     *
+     * @return the result of {@code send}, or {@code queued} if the write has been
+     *         left for the replayer because GridDB is unavailable
+     */
+    private <T> T writeThroughJournal(GridDbWriteJournal.Kind kind, String containerName, Object payload,
+            Supplier<T> send, T queued) {
+        Lock lane = writeJournal.lane(containerName);
+        lane.lock();
         try {
-            ResponseEntity<String> result = restClient.put().uri("/containers/" + containerName + "/rows").body(body)
-                    .retrieve().toEntity(String.class);
-            log.info("Register row response:{}", result);
+            long seq = writeJournal.append(kind, containerName, payload);
+            if (!writeJournal.deliverPending(containerName, seq, this::deliver)) {
+                log.info("Queued {} write to {} behind pending writes", kind, containerName);
+                return queued;
+            }
+            try {
+                T result = send.get();
+                writeJournal.acknowledge(seq);
+                return result;
+            } catch (GridDbException e) {
+                if (GridDbWriteJournal.isTransient(e)) {
+                    log.warn("{} write to {} journaled for replay: {}", kind, containerName, e.getMessage());
+                    return queued;
+                }
+                writeJournal.acknowledge(seq);
+                throw e;
+            }
+        } finally {
+            lane.unlock();
+        }
+    }
+
+    private void putRows(String containerName, Object body) {
+        retryPolicy.execute("Register rows in " + containerName, () -> {
+            try {
+                ResponseEntity<String> result = restClient().put().uri("/containers/" + containerName + "/rows")
+                        .body(body).retrieve().toEntity(String.class);
+                log.info("Register row response:{}", result);
+            } catch (GridDbException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new GridDbException("Failed to execute PUT request", HttpStatusCode.valueOf(500),
+                        e.getMessage(), e);
+            }
+            return null;
+        });
+    }
+
+    private void putRowsIsolatingRejects(String containerName, Object body) {
+        try {
+            putRows(containerName, body);
         } catch (GridDbException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new GridDbException("Failed to execute PUT request", HttpStatusCode.valueOf(500), e.getMessage(), e);
+            // A single row has nothing to isolate, its rejection goes to the caller as it is
+            if (rowQuarantine == null || !(body instanceof List<?> rows) || rows.size() < 2 || !isRowRejection(e)) {
+                throw e;
+            }
+            List<Rejection> rejections = new ArrayList<>();
+            bisect(containerName, rows, e, rejections);
+            if (rejections.isEmpty()) {
+                return;
+            }
+            // Quarantined only now, so that a batch given up on leaves nothing behind when the caller retries it
+            rejections.forEach(rejection -> rowQuarantine.add(containerName, rejection.row(), rejection.error()));
+            log.warn("Registered {} of {} rows in {}, {} rejected rows quarantined", rows.size() - rejections.size(),
+                    rows.size(), containerName, rejections.size());
+            throw new GridDbRowQuarantine.PartialWriteException(
+                    rejections.size() + " of " + rows.size() + " rows rejected by GridDB",
+                    rejections.get(0).error(), rejections.stream().map(Rejection::row).toList());
+        }
+    }
+
+    private record Rejection(Object row, GridDbException error) {
+    }
+
+    /**
+     * Registers the rows of a rejected batch in halves, down to single rows that
+     * are collected in {@code rejections} if they are still rejected. Halves
+     * already registered stay registered if the batch is given up on;
+     * registration is idempotent, so the caller may simply retry the batch.
+     *
+     * @throws GridDbException
+     *             {@code rejection} if more rows are rejected than the quarantine
+     *             takes per batch
+     */
+    private void bisect(String containerName, List<?> rows, GridDbException rejection, List<Rejection> rejections) {
+        if (rows.size() == 1) {
+            if (rejections.size() >= maxQuarantinedRowsPerBatch) {
+                throw rejection;
+            }
+            rejections.add(new Rejection(rows.get(0), rejection));
+            return;
+        }
+        int middle = rows.size() / 2;
+        for (List<?> half : List.of(rows.subList(0, middle), rows.subList(middle, rows.size()))) {
+            try {
+                putRows(containerName, half);
+            } catch (GridDbException e) {
+                if (!isRowRejection(e)) {
+                    throw e;
+                }
+                bisect(containerName, half, e, rejections);
+            }
+        }
+    }
+
+    // Client errors caused by the request content, rather than by credentials, a missing container or throttling
+    private static boolean isRowRejection(GridDbException e) {
+        int status = e.getStatusCode().value();
+        return status >= 400 && status < 500 && status != 401 && status != 403 && status != 404 && status != 408
+                && status != 409 && status != 429;
+    }
+
+    /**
+     * Replays a journaled write. SQL statements that GridDB executed but reported
+     * as failed are not retried.
+     */
+    private void deliver(GridDbWriteJournal.Entry entry) {
+        switch (entry.kind()) {
+            case ROWS -> putRowsIsolatingRejects(entry.container(), entry.payload());
+            case SQL -> {
+                GridDbSqlUpdateResult[] results;
+                try {
+                    results = restClient().post().uri("/sql/update").body(entry.payload()).retrieve()
+                            .body(GridDbSqlUpdateResult[].class);
+                } catch (GridDbException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new GridDbException("Failed to execute SQL update", HttpStatusCode.valueOf(500),
+                            e.getMessage(), e);
+                }
+                if (results != null) {
+                    Arrays.stream(results).filter(result -> !result.isSuccess()).forEach(result -> log
+                            .error("Replayed SQL update failed: {} - {}", result.statement(), result.message()));
+                }
+            }
         }
     }
 
@@ -127,15 +566,18 @@ public class GridDbCloudClient {
      *             if the request fails or the GridDB API returns an error
      */
     public AcquireRowsResponse acquireRows(String containerName, AcquireRowsRequest requestBody) {
-        try {
-            ResponseEntity<AcquireRowsResponse> responseEntity = restClient.post()
-                    .uri("/containers/" + containerName + "/rows").body(requestBody).retrieve()
-                    .toEntity(AcquireRowsResponse.class);
-            return responseEntity.getBody();
-        } catch (GridDbException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new GridDbException("Failed to execute GET request", HttpStatusCode.valueOf(500), e.getMessage(), e);
-        }
+        return retryPolicy.execute("Acquire rows from " + containerName, () -> {
+            try {
+                ResponseEntity<AcquireRowsResponse> responseEntity = restClient().post()
+                        .uri("/containers/" + containerName + "/rows").body(requestBody).retrieve()
+                        .toEntity(AcquireRowsResponse.class);
+                return responseEntity.getBody();
+            } catch (GridDbException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new GridDbException("Failed to execute GET request", HttpStatusCode.valueOf(500),
+                        e.getMessage(), e);
+            }
+        });
     }
 }
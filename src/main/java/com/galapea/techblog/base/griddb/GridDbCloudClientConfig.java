@@ -1,14 +1,33 @@
 package com.galapea.techblog.base.griddb;
 
+import java.time.Clock;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class GridDbCloudClientConfig {
 
     @Bean
-    public GridDbCloudClient gridDbCloudClient(GridDbCloudClientProperties properties) {
-        return new GridDbCloudClient(properties.getBaseUrl(), properties.getAuthToken());
+    public GridDbCloudClient gridDbCloudClient(GridDbCloudClientProperties properties, MeterRegistry meterRegistry) {
+        GridDbCloudClient client = new GridDbCloudClient(properties.getBaseUrl(), properties.getAuthToken());
+        GridDbCloudClientProperties.Retry retry = properties.getRetry();
+        client.enableRetries(retry.newPolicy());
+        client.enableRowQuarantine(new GridDbRowQuarantine(retry.getQuarantineCapacity(), Clock.systemUTC()),
+                retry.getMaxQuarantinedRowsPerBatch());
+        GridDbCloudClientProperties.Admission admission = properties.getAdmission();
+        if (admission.isEnabled()) {
+            client.enableAdmissionControl(admission.newControl(meterRegistry));
+        }
+        GridDbCloudClientProperties.Bulkhead bulkhead = properties.getBulkhead();
+        if (bulkhead.isEnabled()) {
+            client.enableBulkheads(bulkhead.newBulkheads());
+        }
+        GridDbCloudClientProperties.Journal journal = properties.getJournal();
+        if (journal.isEnabled()) {
+            client.enableWriteJournal(new GridDbWriteJournal(journal.getDirectory()), journal.getReplayInterval());
+        }
+        return client;
     }
 
 }
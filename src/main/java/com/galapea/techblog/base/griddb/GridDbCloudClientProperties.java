@@ -1,13 +1,25 @@
 package com.galapea.techblog.base.griddb;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.ExponentialBackOff;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Component
 @ConfigurationProperties(prefix = "griddbcloud")
 public class GridDbCloudClientProperties {
     private String baseUrl;
     private String authToken;
+    private final Startup startup = new Startup();
+    private final Journal journal = new Journal();
+    private final Retry retry = new Retry();
+    private final Admission admission = new Admission();
+    private final Bulkhead bulkhead = new Bulkhead();
 
     public String getBaseUrl() {
         return this.baseUrl;
@@ -25,4 +37,399 @@ public class GridDbCloudClientProperties {
         this.authToken = authToken;
     }
 
+    public Startup getStartup() {
+        return this.startup;
+    }
+
+    public Journal getJournal() {
+        return this.journal;
+    }
+
+    public Retry getRetry() {
+        return this.retry;
+    }
+
+    public Admission getAdmission() {
+        return this.admission;
+    }
+
+    public Bulkhead getBulkhead() {
+        return this.bulkhead;
+    }
+
+    /**
+     * Retry settings for the background warm-up tasks (connection check,
+     * container creation and seeding) that run after the application has started.
+     */
+    public static class Startup {
+        private int maxAttempts = 10;
+        private Duration initialBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+
+        public int getMaxAttempts() {
+            return this.maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return this.initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return this.maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        /**
+         * Creates a new exponential back-off (doubling) bounded by
+         * {@link #getMaxAttempts()} retries.
+         */
+        public ExponentialBackOff newBackOff() {
+            ExponentialBackOff backOff = new ExponentialBackOff(initialBackoff.toMillis(), 2.0);
+            backOff.setMaxInterval(maxBackoff.toMillis());
+            backOff.setMaxAttempts(Math.max(0, maxAttempts - 1));
+            return backOff;
+        }
+    }
+
+    /**
+     * Settings of the local write-ahead journal, see {@link GridDbWriteJournal}.
+     */
+    public static class Journal {
+        private boolean enabled = false;
+        private Path directory = Path.of("data", "journal");
+        private Duration replayInterval = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getDirectory() {
+            return this.directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        public Duration getReplayInterval() {
+            return this.replayInterval;
+        }
+
+        public void setReplayInterval(Duration replayInterval) {
+            this.replayInterval = replayInterval;
+        }
+    }
+
+    /**
+     * Settings of request retries and of the quarantine of rejected rows, see
+     * {@link GridDbRetryPolicy} and {@link GridDbRowQuarantine}.
+     */
+    public static class Retry {
+        private int maxAttempts = 4;
+        private Duration initialBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(10);
+        private Duration maxRetryAfter = Duration.ofSeconds(60);
+        private int maxQuarantinedRowsPerBatch = 10;
+        private int quarantineCapacity = 1000;
+
+        /**
+         * Attempts per idempotent request, including the first one. 1 disables
+         * retries.
+         */
+        public int getMaxAttempts() {
+            return this.maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return this.initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return this.maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        /**
+         * Longest {@code Retry-After} delay that is waited for; requests asked to
+         * wait longer fail.
+         */
+        public Duration getMaxRetryAfter() {
+            return this.maxRetryAfter;
+        }
+
+        public void setMaxRetryAfter(Duration maxRetryAfter) {
+            this.maxRetryAfter = maxRetryAfter;
+        }
+
+        /**
+         * Rejected rows after which a batch is failed as a whole instead of being
+         * split further.
+         */
+        public int getMaxQuarantinedRowsPerBatch() {
+            return this.maxQuarantinedRowsPerBatch;
+        }
+
+        public void setMaxQuarantinedRowsPerBatch(int maxQuarantinedRowsPerBatch) {
+            this.maxQuarantinedRowsPerBatch = maxQuarantinedRowsPerBatch;
+        }
+
+        /**
+         * Rejected rows kept in memory for inspection.
+         */
+        public int getQuarantineCapacity() {
+            return this.quarantineCapacity;
+        }
+
+        public void setQuarantineCapacity(int quarantineCapacity) {
+            this.quarantineCapacity = quarantineCapacity;
+        }
+
+        public GridDbRetryPolicy newPolicy() {
+            return new GridDbRetryPolicy(maxAttempts, initialBackoff, maxBackoff, maxRetryAfter);
+        }
+    }
+
+    /**
+     * Request quotas per {@link GridDbWorkload}, see
+     * {@link GridDbAdmissionControl}.
+     */
+    public static class Admission {
+        private boolean enabled = true;
+        private final Quota interactive = new Quota(20, 40, GridDbAdmissionControl.Policy.WAIT, Duration.ofSeconds(2));
+        private final Quota bulkImport = new Quota(5, 10, GridDbAdmissionControl.Policy.WAIT, Duration.ofSeconds(60));
+        private final Quota enrichment = new Quota(2, 5, GridDbAdmissionControl.Policy.WAIT, Duration.ofSeconds(30));
+        private final Quota background = new Quota(2, 5, GridDbAdmissionControl.Policy.WAIT, Duration.ofSeconds(30));
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Quota of page loads and other requests a user is waiting for.
+         */
+        public Quota getInteractive() {
+            return this.interactive;
+        }
+
+        /**
+         * Quota of seeding and CSV imports.
+         */
+        public Quota getBulkImport() {
+            return this.bulkImport;
+        }
+
+        /**
+         * Quota of AI generated genre and summary write-backs.
+         */
+        public Quota getEnrichment() {
+            return this.enrichment;
+        }
+
+        /**
+         * Quota of housekeeping such as catalog reconciliation and journal replay.
+         */
+        public Quota getBackground() {
+            return this.background;
+        }
+
+        public GridDbAdmissionControl newControl(MeterRegistry meterRegistry) {
+            Map<GridDbWorkload, GridDbAdmissionControl.Limit> limits = new EnumMap<>(GridDbWorkload.class);
+            limits.put(GridDbWorkload.INTERACTIVE, interactive.toLimit());
+            limits.put(GridDbWorkload.BULK_IMPORT, bulkImport.toLimit());
+            limits.put(GridDbWorkload.ENRICHMENT, enrichment.toLimit());
+            limits.put(GridDbWorkload.BACKGROUND, background.toLimit());
+            return new GridDbAdmissionControl(limits, meterRegistry);
+        }
+    }
+
+    /**
+     * Token bucket of one workload.
+     */
+    public static class Quota {
+        private double rate;
+        private int burst;
+        private GridDbAdmissionControl.Policy policy;
+        private Duration maxWait;
+
+        Quota(double rate, int burst, GridDbAdmissionControl.Policy policy, Duration maxWait) {
+            this.rate = rate;
+            this.burst = burst;
+            this.policy = policy;
+            this.maxWait = maxWait;
+        }
+
+        /**
+         * Requests per second; 0 disables the quota.
+         */
+        public double getRate() {
+            return this.rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        /**
+         * Requests admitted at once after a quiet period.
+         */
+        public int getBurst() {
+            return this.burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        /**
+         * Whether requests over the quota wait for their turn or fail at once.
+         */
+        public GridDbAdmissionControl.Policy getPolicy() {
+            return this.policy;
+        }
+
+        public void setPolicy(GridDbAdmissionControl.Policy policy) {
+            this.policy = policy;
+        }
+
+        /**
+         * Longest time a request waits for its turn before it fails.
+         */
+        public Duration getMaxWait() {
+            return this.maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        GridDbAdmissionControl.Limit toLimit() {
+            return new GridDbAdmissionControl.Limit(rate, burst, policy, maxWait);
+        }
+    }
+
+    /**
+     * Separate transports and concurrency limits per {@link GridDbWorkload}, see
+     * {@link GridDbBulkhead}.
+     */
+    public static class Bulkhead {
+        private boolean enabled = true;
+        private final Compartment interactive = new Compartment(8, Duration.ofSeconds(2));
+        private final Compartment bulkImport = new Compartment(4, Duration.ofSeconds(60));
+        private final Compartment enrichment = new Compartment(2, Duration.ofSeconds(30));
+        private final Compartment background = new Compartment(2, Duration.ofSeconds(30));
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Connections of page loads and other requests a user is waiting for.
+         */
+        public Compartment getInteractive() {
+            return this.interactive;
+        }
+
+        /**
+         * Connections of seeding and CSV imports.
+         */
+        public Compartment getBulkImport() {
+            return this.bulkImport;
+        }
+
+        /**
+         * Connections of AI generated genre and summary write-backs.
+         */
+        public Compartment getEnrichment() {
+            return this.enrichment;
+        }
+
+        /**
+         * Connections of housekeeping such as catalog reconciliation and journal
+         * replay.
+         */
+        public Compartment getBackground() {
+            return this.background;
+        }
+
+        public List<GridDbBulkhead> newBulkheads() {
+            return List.of(interactive.newBulkhead(GridDbWorkload.INTERACTIVE),
+                    bulkImport.newBulkhead(GridDbWorkload.BULK_IMPORT),
+                    enrichment.newBulkhead(GridDbWorkload.ENRICHMENT),
+                    background.newBulkhead(GridDbWorkload.BACKGROUND));
+        }
+    }
+
+    /**
+     * Concurrency limit of one workload.
+     */
+    public static class Compartment {
+        private int maxConcurrent;
+        private Duration maxWait;
+
+        Compartment(int maxConcurrent, Duration maxWait) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxWait = maxWait;
+        }
+
+        /**
+         * Requests in flight at most.
+         */
+        public int getMaxConcurrent() {
+            return this.maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        /**
+         * Longest time a request waits for a free connection before it fails.
+         */
+        public Duration getMaxWait() {
+            return this.maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        GridDbBulkhead newBulkhead(GridDbWorkload workload) {
+            return new GridDbBulkhead(workload, maxConcurrent, maxWait);
+        }
+    }
+
 }
@@ -0,0 +1,31 @@
+package com.galapea.techblog.base.griddb;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides how a record component is mapped to a container column by
+ * {@link GridDbRowMapping}. Components without this annotation are mapped to a
+ * column of the same name and of the type derived from the Java type.
+ */
+@Target(ElementType.RECORD_COMPONENT)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GridDbColumnSpec {
+    /**
+     * @return the column name, the component name if empty
+     */
+    String name() default "";
+
+    /**
+     * @return the GridDB column type, e.g. {@code STRING}, derived from the
+     *         component type if empty
+     */
+    String type() default "";
+
+    /**
+     * @return the indexes of the column, e.g. {@code TREE}
+     */
+    String[] index() default {};
+}
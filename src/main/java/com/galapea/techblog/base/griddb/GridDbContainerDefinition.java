@@ -1,8 +1,10 @@
 package com.galapea.techblog.base.griddb;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class GridDbContainerDefinition {
     @JsonProperty("container_name")
     private String containerName;
@@ -63,4 +65,20 @@ public class GridDbContainerDefinition {
     public static GridDbContainerDefinition createContainer(String containerName, List<GridDbColumn> columns) {
         return new GridDbContainerDefinition(containerName, "COLLECTION", true, columns);
     }
+
+    /**
+     * Defines a {@code TIME_SERIES} container. GridDB keys its rows by the first
+     * column, which must be a {@code TIMESTAMP}; a row written with an existing
+     * timestamp replaces the stored row.
+     *
+     * @throws IllegalArgumentException
+     *             if the first column is not a {@code TIMESTAMP}
+     */
+    public static GridDbContainerDefinition createTimeSeries(String containerName, List<GridDbColumn> columns) {
+        if (columns.isEmpty() || !"TIMESTAMP".equals(columns.get(0).getType())) {
+            throw new IllegalArgumentException("The first column of time series " + containerName
+                    + " must be a TIMESTAMP");
+        }
+        return new GridDbContainerDefinition(containerName, "TIME_SERIES", true, columns);
+    }
 }
@@ -1,21 +1,34 @@
 package com.galapea.techblog.base.griddb;
 
+import java.time.Duration;
 import org.springframework.http.HttpStatusCode;
 
 public class GridDbException extends RuntimeException {
     private final HttpStatusCode statusCode;
     private final String errorBody;
+    private final Duration retryAfter;
 
     public GridDbException(String message, HttpStatusCode statusCode, String errorBody) {
-        super(message);
-        this.statusCode = statusCode;
-        this.errorBody = errorBody;
+        this(message, statusCode, errorBody, (Duration) null);
     }
 
     public GridDbException(String message, HttpStatusCode statusCode, String errorBody, Throwable cause) {
         super(message, cause);
         this.statusCode = statusCode;
         this.errorBody = errorBody;
+        this.retryAfter = null;
+    }
+
+    /**
+     * @param retryAfter
+     *            the delay requested by the {@code Retry-After} header, or
+     *            {@code null} if there was none
+     */
+    public GridDbException(String message, HttpStatusCode statusCode, String errorBody, Duration retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.errorBody = errorBody;
+        this.retryAfter = retryAfter;
     }
 
     public HttpStatusCode getStatusCode() {
@@ -25,4 +38,12 @@ public class GridDbException extends RuntimeException {
     public String getErrorBody() {
         return errorBody;
     }
+
+    /**
+     * @return how long GridDB Cloud asked to wait before the next request, e.g.
+     *         on {@code 429 Too Many Requests}, or {@code null} if it did not say
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
 }
@@ -0,0 +1,99 @@
+package com.galapea.techblog.base.griddb;
+
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.BackOffExecution;
+
+/**
+ * Reports the state of the GridDB Cloud connection to the actuator health
+ * endpoint (exposed as {@code gridDb}).
+ * <p>
+ * The connection is not checked while the application context starts. Instead,
+ * a background task calls {@link #awaitConnection()} which retries with an
+ * exponential back-off and updates this indicator. Until the connection has been
+ * confirmed the indicator is {@code OUT_OF_SERVICE}, which keeps the readiness
+ * group down without affecting liveness.
+ * </p>
+ */
+@Component
+public class GridDbHealthIndicator implements HealthIndicator {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final GridDbCloudClient gridDbCloudClient;
+    private final GridDbCloudClientProperties properties;
+
+    private volatile Status status = Status.OUT_OF_SERVICE;
+    private volatile String state = "PENDING";
+    private volatile int attempts;
+    private volatile String lastError;
+    private volatile Instant lastCheckedAt;
+
+    public GridDbHealthIndicator(GridDbCloudClient gridDbCloudClient, GridDbCloudClientProperties properties) {
+        this.gridDbCloudClient = gridDbCloudClient;
+        this.properties = properties;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.status(status).withDetail("state", state).withDetail("attempts", attempts);
+        if (lastCheckedAt != null) {
+            builder.withDetail("lastCheckedAt", lastCheckedAt.toString());
+        }
+        if (lastError != null) {
+            builder.withDetail("lastError", lastError);
+        }
+        GridDbRowQuarantine quarantine = gridDbCloudClient.getRowQuarantine();
+        if (quarantine != null && quarantine.count() > 0) {
+            builder.withDetail("quarantinedRows", quarantine.count());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Checks the connection to GridDB Cloud, retrying with the back-off configured
+     * in {@code griddbcloud.startup.*}. Blocks the calling thread, so it must be
+     * called from a background task.
+     *
+     * @return {@code true} if the connection was established, {@code false} if all
+     *         attempts failed
+     */
+    public boolean awaitConnection() {
+        if (Status.UP.equals(status)) {
+            return true;
+        }
+        state = "CONNECTING";
+        BackOffExecution backOff = properties.getStartup().newBackOff().start();
+        while (true) {
+            attempts++;
+            lastCheckedAt = Instant.now();
+            try {
+                gridDbCloudClient.checkConnection();
+                lastError = null;
+                state = "CONNECTED";
+                status = Status.UP;
+                return true;
+            } catch (GridDbException e) {
+                lastError = e.getMessage() + ": " + e.getErrorBody();
+                log.warn("GridDBCloud connection attempt {} failed: {}", attempts, lastError);
+            }
+            long waitMillis = backOff.nextBackOff();
+            if (waitMillis == BackOffExecution.STOP) {
+                state = "FAILED";
+                status = Status.DOWN;
+                return false;
+            }
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state = "INTERRUPTED";
+                status = Status.DOWN;
+                return false;
+            }
+        }
+    }
+}
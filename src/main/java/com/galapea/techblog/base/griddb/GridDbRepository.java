@@ -0,0 +1,90 @@
+package com.galapea.techblog.base.griddb;
+
+import java.util.List;
+import com.galapea.techblog.base.griddb.acquisition.AcquireRowsRequest;
+import com.galapea.techblog.base.griddb.acquisition.AcquireRowsResponse;
+import com.galapea.techblog.base.griddb.query.GridDbLiterals;
+
+/**
+ * Stores records of one type in one GridDB container. The schema and the row
+ * encoding are derived from the record, see {@link GridDbRowMapping}, so a new
+ * container only needs a record:
+ *
+ * <pre>
+ * record Reading(@GridDbColumnSpec(name = "ts") Instant timestamp, String sensor, double value) {
+ * }
+ *
+ * GridDbRepository&lt;Reading&gt; readings = new GridDbRepository&lt;&gt;(client, "Readings", Reading.class);
+ * readings.createTimeSeries();
+ * readings.register(List.of(new Reading(Instant.now(), "s1", 21.5)));
+ * </pre>
+ *
+ * @param <T>
+ *            the record type
+ */
+public class GridDbRepository<T extends Record> {
+    private final GridDbCloudClient gridDbCloudClient;
+    private final String containerName;
+    private final GridDbRowMapping<T> mapping;
+
+    public GridDbRepository(GridDbCloudClient gridDbCloudClient, String containerName, Class<T> type) {
+        this.gridDbCloudClient = gridDbCloudClient;
+        this.containerName = GridDbLiterals.identifier(containerName);
+        this.mapping = GridDbRowMapping.of(type);
+    }
+
+    public String containerName() {
+        return containerName;
+    }
+
+    public GridDbRowMapping<T> mapping() {
+        return mapping;
+    }
+
+    /**
+     * Creates the container as a {@code COLLECTION} keyed by the first component.
+     * Does nothing if it exists.
+     */
+    public void createCollection() {
+        this.gridDbCloudClient
+                .createContainer(GridDbContainerDefinition.createContainer(containerName, mapping.columns()));
+    }
+
+    /**
+     * Creates the container as a {@code TIME_SERIES} keyed by the first
+     * component, which must be an {@code Instant}. Does nothing if it exists.
+     */
+    public void createTimeSeries() {
+        this.gridDbCloudClient
+                .createContainer(GridDbContainerDefinition.createTimeSeries(containerName, mapping.columns()));
+    }
+
+    /**
+     * Inserts or replaces the given records by row key.
+     *
+     * @throws GridDbException
+     *             if the rows cannot be registered
+     */
+    public void register(List<T> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        this.gridDbCloudClient.registerRows(containerName, records.stream().map(mapping::toRow).toList());
+    }
+
+    /**
+     * Reads the records selected by the given request.
+     *
+     * @throws GridDbException
+     *             if the request fails
+     * @throws IllegalArgumentException
+     *             if a row does not match the record
+     */
+    public List<T> acquire(AcquireRowsRequest request) {
+        AcquireRowsResponse response = this.gridDbCloudClient.acquireRows(containerName, request);
+        if (response == null || response.getRows() == null) {
+            return List.of();
+        }
+        return response.getRows().stream().map(mapping::fromRow).toList();
+    }
+}
@@ -0,0 +1,157 @@
+package com.galapea.techblog.base.griddb;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retries idempotent GridDB Cloud requests that failed with a transient error:
+ * server errors, throttling, timeouts and connection failures.
+ * <p>
+ * The delay before retry {@code n} is drawn uniformly between zero and
+ * {@code initialBackoff * 2^(n-1)}, capped at {@code maxBackoff} ("full
+ * jitter"), so that clients that failed together do not retry together. If
+ * GridDB Cloud sent a {@code Retry-After} header, e.g. with
+ * {@code 429 Too Many Requests}, that delay is used instead, up to
+ * {@code maxRetryAfter}; a longer requested delay fails the request
+ * immediately.
+ * </p>
+ */
+public class GridDbRetryPolicy {
+    private static final Logger log = LoggerFactory.getLogger(GridDbRetryPolicy.class);
+
+    /** Executes every request once. */
+    public static final GridDbRetryPolicy NONE = new GridDbRetryPolicy(1, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration maxRetryAfter;
+    private final Sleeper sleeper;
+    private final DoubleSupplier random;
+
+    /**
+     * @param maxAttempts
+     *            attempts per request, including the first one
+     * @param initialBackoff
+     *            upper bound of the delay before the first retry
+     * @param maxBackoff
+     *            upper bound of the delay before any retry
+     * @param maxRetryAfter
+     *            longest {@code Retry-After} delay that is waited for
+     */
+    public GridDbRetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, Duration maxRetryAfter) {
+        this(maxAttempts, initialBackoff, maxBackoff, maxRetryAfter, Thread::sleep,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    GridDbRetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, Duration maxRetryAfter,
+            Sleeper sleeper, DoubleSupplier random) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxRetryAfter = maxRetryAfter;
+        this.sleeper = sleeper;
+        this.random = random;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Executes the request, retrying it on transient errors.
+     *
+     * @param operation
+     *            what the request does, for logging
+     * @param request
+     *            the request; must be safe to execute more than once
+     * @return the result of the first successful attempt
+     * @throws GridDbException
+     *             the error of the last attempt, or the first error that is not
+     *             transient
+     */
+    public <T> T execute(String operation, Supplier<T> request) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return request.get();
+            } catch (GridDbException e) {
+                if (attempt >= maxAttempts || !isTransient(e)
+                        || e instanceof GridDbAdmissionControl.RejectedException) {
+                    throw e;
+                }
+                Duration delay = delayBeforeRetry(attempt, e);
+                if (delay == null) {
+                    log.warn("Not retrying {}: GridDB Cloud asked to wait {}", operation, e.getRetryAfter());
+                    throw e;
+                }
+                log.warn("{} failed with {} (attempt {} of {}), retrying in {} ms", operation,
+                        e.getStatusCode().value(), attempt, maxAttempts, delay.toMillis());
+                try {
+                    sleeper.sleep(delay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the delay before retry number {@code retry} (starting at 1), or
+     *         {@code null} if the requested {@code Retry-After} is too long
+     */
+    Duration delayBeforeRetry(int retry, GridDbException e) {
+        if (e.getRetryAfter() != null) {
+            return e.getRetryAfter().compareTo(maxRetryAfter) <= 0 ? e.getRetryAfter() : null;
+        }
+        long ceiling = initialBackoff.toMillis() << Math.min(retry - 1, 30);
+        if (ceiling <= 0 || ceiling > maxBackoff.toMillis()) {
+            ceiling = maxBackoff.toMillis();
+        }
+        return Duration.ofMillis((long) (random.getAsDouble() * ceiling));
+    }
+
+    /**
+     * @return {@code true} if the error may go away by itself: server errors,
+     *         throttling, timeouts and connection failures (reported as 500 by
+     *         {@link GridDbCloudClient})
+     */
+    static boolean isTransient(GridDbException e) {
+        int status = e.getStatusCode().value();
+        return status >= 500 || status == 429 || status == 408;
+    }
+
+    /**
+     * Parses a {@code Retry-After} header, either delay seconds or an HTTP date.
+     *
+     * @return the delay, or {@code null} if the header is missing or malformed
+     */
+    static Duration parseRetryAfter(String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(header.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Duration delay = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(header.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException malformed) {
+                return null;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+}
@@ -0,0 +1,220 @@
+package com.galapea.techblog.base.griddb;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import com.galapea.techblog.base.griddb.query.GridDbLiterals;
+
+/**
+ * Maps a record type to the columns and positional rows of a GridDB container.
+ * <p>
+ * Each record component is one column, in declaration order, so the first
+ * component is the row key. The column type is derived from the component type
+ * ({@code String}, {@code Double}, {@code Long}, {@code Integer},
+ * {@code Float}, {@code Boolean}, their primitives, {@code Instant} and enums)
+ * unless {@link GridDbColumnSpec} overrides it. Timestamps are written in the
+ * format of {@link GridDbLiterals#formatTimestamp(Instant)} and enums by name.
+ * </p>
+ * <p>
+ * The component accessors are compiled once per type with
+ * {@link LambdaMetafactory} and records are created through a
+ * {@link MethodHandle} of the canonical constructor, so encoding and decoding
+ * rows does not use reflection. Mappings are cached, see {@link #of(Class)}.
+ * </p>
+ *
+ * @param <T>
+ *            the record type
+ */
+public final class GridDbRowMapping<T extends Record> {
+    private static final ClassValue<GridDbRowMapping<?>> MAPPINGS = new ClassValue<>() {
+        @Override
+        protected GridDbRowMapping<?> computeValue(Class<?> type) {
+            return new GridDbRowMapping<>(type.asSubclass(Record.class));
+        }
+    };
+
+    private static final Map<Class<?>, String> TYPES = Map.ofEntries(Map.entry(String.class, "STRING"),
+            Map.entry(Double.class, "DOUBLE"), Map.entry(double.class, "DOUBLE"), Map.entry(Float.class, "FLOAT"),
+            Map.entry(float.class, "FLOAT"), Map.entry(Long.class, "LONG"), Map.entry(long.class, "LONG"),
+            Map.entry(Integer.class, "INTEGER"), Map.entry(int.class, "INTEGER"), Map.entry(Boolean.class, "BOOL"),
+            Map.entry(boolean.class, "BOOL"), Map.entry(Instant.class, "TIMESTAMP"));
+
+    private final Class<T> type;
+    private final List<GridDbColumn> columns;
+    private final Field[] fields;
+    private final MethodHandle constructor;
+
+    /**
+     * One column: reads the component from a record, converts it to a row value
+     * and converts a row value back to the component type.
+     */
+    private record Field(String column, boolean primitive, Function<Object, Object> getter,
+            Function<Object, Object> encoder, Function<Object, Object> decoder) {
+    }
+
+    private GridDbRowMapping(Class<T> type) {
+        RecordComponent[] components = type.getRecordComponents();
+        if (components == null || components.length == 0) {
+            throw new IllegalArgumentException(type.getName() + " is not a record with components");
+        }
+        this.type = type;
+        List<GridDbColumn> columnList = new ArrayList<>(components.length);
+        this.fields = new Field[components.length];
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                RecordComponent component = components[i];
+                parameterTypes[i] = component.getType();
+                GridDbColumnSpec spec = component.getAnnotation(GridDbColumnSpec.class);
+                String name = GridDbLiterals.identifier(
+                        spec == null || spec.name().isEmpty() ? component.getName() : spec.name());
+                String columnType = spec == null || spec.type().isEmpty() ? columnType(component) : spec.type();
+                Set<String> index = spec == null || spec.index().length == 0 ? null : Set.of(spec.index());
+                columnList.add(new GridDbColumn(name, columnType, index));
+                fields[i] = new Field(name, component.getType().isPrimitive(), getter(lookup, component),
+                        encoder(component.getType()), decoder(component.getType()));
+            }
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot compile row mapping of " + type.getName(), e);
+        }
+        this.columns = List.copyOf(columnList);
+    }
+
+    /**
+     * @return the mapping of the given record type, compiled on first use
+     * @throws IllegalArgumentException
+     *             if a component has a type without a GridDB column type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Record> GridDbRowMapping<T> of(Class<T> type) {
+        return (GridDbRowMapping<T>) MAPPINGS.get(type);
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * @return the column definitions, in row order
+     */
+    public List<GridDbColumn> columns() {
+        return columns;
+    }
+
+    /**
+     * @return the values of the record in column order, e.g. for
+     *         {@link GridDbCloudClient#registerRows(String, Object)}
+     */
+    public List<Object> toRow(T record) {
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Object value = fields[i].getter().apply(record);
+            values[i] = value == null ? null : fields[i].encoder().apply(value);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * Creates a record from a row in column order, e.g. one of
+     * {@code AcquireRowsResponse#getRows()}. Missing trailing values, e.g. of
+     * columns added after the row was written, are read as {@code null}.
+     *
+     * @throws IllegalArgumentException
+     *             if a value cannot be converted to its component type
+     */
+    public T fromRow(List<?> row) {
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Object value = i < row.size() ? row.get(i) : null;
+            if (value == null) {
+                if (fields[i].primitive()) {
+                    throw new IllegalArgumentException("Column " + fields[i].column() + " is null in " + row);
+                }
+                continue;
+            }
+            try {
+                values[i] = fields[i].decoder().apply(value);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid value of column " + fields[i].column() + ": " + value, e);
+            }
+        }
+        try {
+            return type.cast((Object) constructor.invokeExact(values));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create " + type.getName(), e);
+        }
+    }
+
+    private static String columnType(RecordComponent component) {
+        Class<?> javaType = component.getType();
+        if (javaType.isEnum()) {
+            return "STRING";
+        }
+        String columnType = TYPES.get(javaType);
+        if (columnType == null) {
+            throw new IllegalArgumentException("No GridDB column type for " + component.getDeclaringRecord()
+                    .getSimpleName() + "." + component.getName() + " of type " + javaType.getName());
+        }
+        return columnType;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(MethodHandles.Lookup lookup, RecordComponent component)
+            throws Throwable {
+        MethodHandle accessor = lookup.unreflect(component.getAccessor());
+        CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class), accessor, accessor.type().wrap());
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    private static Function<Object, Object> encoder(Class<?> javaType) {
+        if (javaType == Instant.class) {
+            return value -> GridDbLiterals.formatTimestamp((Instant) value);
+        }
+        if (javaType.isEnum()) {
+            return value -> ((Enum<?>) value).name();
+        }
+        return Function.identity();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Function<Object, Object> decoder(Class<?> javaType) {
+        if (javaType == String.class) {
+            return Object::toString;
+        } else if (javaType == Double.class || javaType == double.class) {
+            return value -> value instanceof Number number ? number.doubleValue() : Double.valueOf(value.toString());
+        } else if (javaType == Float.class || javaType == float.class) {
+            return value -> value instanceof Number number ? number.floatValue() : Float.valueOf(value.toString());
+        } else if (javaType == Long.class || javaType == long.class) {
+            return value -> value instanceof Number number ? number.longValue() : Long.valueOf(value.toString());
+        } else if (javaType == Integer.class || javaType == int.class) {
+            return value -> value instanceof Number number ? number.intValue() : Integer.valueOf(value.toString());
+        } else if (javaType == Boolean.class || javaType == boolean.class) {
+            return value -> value instanceof Boolean bool ? bool : Boolean.valueOf(value.toString());
+        } else if (javaType == Instant.class) {
+            return value -> Instant.parse(value.toString());
+        } else if (javaType.isEnum()) {
+            return value -> Enum.valueOf((Class) javaType, value.toString());
+        }
+        // Only reachable with an explicit column type, values are passed through
+        return value -> javaType.cast(value);
+    }
+}
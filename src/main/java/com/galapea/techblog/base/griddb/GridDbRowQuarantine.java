@@ -0,0 +1,104 @@
+package com.galapea.techblog.base.griddb;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps rows that GridDB rejected while the rest of their batch was
+ * registered, see {@link GridDbCloudClient#registerRows(String, Object)}.
+ * <p>
+ * Every rejected row is logged. The most recent {@code capacity} rows are
+ * kept in memory for inspection; older ones are dropped but still counted.
+ * </p>
+ */
+public class GridDbRowQuarantine {
+    private static final Logger log = LoggerFactory.getLogger(GridDbRowQuarantine.class);
+
+    private final int capacity;
+    private final Clock clock;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * A rejected row.
+     *
+     * @param container
+     *            the container the row was meant for
+     * @param row
+     *            the row values
+     * @param error
+     *            the status and error body returned by GridDB
+     * @param rejectedAt
+     *            when the row was rejected
+     */
+    public record Entry(String container, Object row, String error, Instant rejectedAt) {
+    }
+
+    /**
+     * A batch of rows that was registered except for the rows GridDB rejected,
+     * which were put into the quarantine. Callers must not treat the rejected
+     * rows as written.
+     */
+    public static class PartialWriteException extends GridDbException {
+        private final List<?> rejected;
+
+        /**
+         * @param message
+         *            what was written and what was rejected
+         * @param rejection
+         *            the error GridDB returned for the batch
+         * @param rejected
+         *            the rejected rows, or the records they were made from
+         */
+        public PartialWriteException(String message, GridDbException rejection, List<?> rejected) {
+            super(message, rejection.getStatusCode(), rejection.getErrorBody(), rejection);
+            this.rejected = List.copyOf(rejected);
+        }
+
+        /**
+         * @return the rejected rows, or the records they were made from
+         */
+        public List<?> getRejected() {
+            return rejected;
+        }
+    }
+
+    public GridDbRowQuarantine(int capacity, Clock clock) {
+        this.capacity = Math.max(1, capacity);
+        this.clock = clock;
+    }
+
+    void add(String container, Object row, GridDbException e) {
+        String error = e.getStatusCode().value() + " " + e.getErrorBody();
+        log.warn("Quarantined row for {} rejected by GridDB ({}): {}", container, error, row);
+        count.incrementAndGet();
+        synchronized (entries) {
+            if (entries.size() == capacity) {
+                entries.removeFirst();
+            }
+            entries.addLast(new Entry(container, row, error, clock.instant()));
+        }
+    }
+
+    /**
+     * @return the most recently rejected rows, oldest first
+     */
+    public List<Entry> entries() {
+        synchronized (entries) {
+            return List.copyOf(entries);
+        }
+    }
+
+    /**
+     * @return rows rejected since startup, including those no longer kept
+     */
+    public long count() {
+        return count.get();
+    }
+}
@@ -0,0 +1,133 @@
+package com.galapea.techblog.base.griddb;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of one statement sent to the {@code /sql} endpoint: the selected
+ * columns and the rows, each row holding one JSON value per column.
+ * <p>
+ * Rows are read through {@link Row}, which converts the JSON values to Java
+ * types by column name or position, e.g.
+ * </p>
+ *
+ * <pre>
+ * result.map(row -&gt; new PublisherCount(row.getString("publisher"), row.getLong("books")));
+ * </pre>
+ *
+ * @param columns
+ *            the selected columns, in select order
+ * @param results
+ *            the rows
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GridDbSqlResult(@JsonProperty("columns") List<Column> columns,
+        @JsonProperty("results") List<List<Object>> results) {
+
+    public GridDbSqlResult {
+        columns = columns == null ? List.of() : List.copyOf(columns);
+        results = results == null ? List.of() : results;
+    }
+
+    /**
+     * A selected column.
+     *
+     * @param name
+     *            the column name or alias
+     * @param type
+     *            the GridDB type, e.g. {@code LONG} or {@code STRING}
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Column(@JsonProperty("name") String name, @JsonProperty("type") String type) {
+    }
+
+    /**
+     * Maps every row.
+     *
+     * @param mapper
+     *            converts a row
+     * @return the mapped rows, in result order
+     */
+    public <T> List<T> map(Function<Row, T> mapper) {
+        Map<String, Integer> index = columnIndex();
+        return results.stream().map(values -> mapper.apply(new Row(index, values))).toList();
+    }
+
+    /**
+     * @return the first row, e.g. of an aggregate without {@code GROUP BY}, or
+     *         {@code null} if there is none
+     */
+    public Row first() {
+        return results.isEmpty() ? null : new Row(columnIndex(), results.get(0));
+    }
+
+    private Map<String, Integer> columnIndex() {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            index.putIfAbsent(columns.get(i).name().toLowerCase(), i);
+        }
+        return index;
+    }
+
+    /**
+     * One result row. Columns are looked up by name (case-insensitive) or
+     * position; SQL {@code NULL} is returned as {@code null}.
+     */
+    public static final class Row {
+        private final Map<String, Integer> index;
+        private final List<Object> values;
+
+        private Row(Map<String, Integer> index, List<Object> values) {
+            this.index = index;
+            this.values = values;
+        }
+
+        public boolean hasColumn(String column) {
+            return index.containsKey(column.toLowerCase());
+        }
+
+        public Object get(int column) {
+            return values.get(column);
+        }
+
+        public Object get(String column) {
+            Integer position = index.get(column.toLowerCase());
+            if (position == null) {
+                throw new IllegalArgumentException("No column " + column + " in " + index.keySet());
+            }
+            return values.get(position);
+        }
+
+        public String getString(String column) {
+            Object value = get(column);
+            return value == null ? null : value.toString();
+        }
+
+        public Long getLong(String column) {
+            Object value = get(column);
+            return value == null ? null
+                    : value instanceof Number number ? number.longValue() : Long.valueOf(value.toString());
+        }
+
+        public Double getDouble(String column) {
+            Object value = get(column);
+            return value == null ? null
+                    : value instanceof Number number ? number.doubleValue() : Double.valueOf(value.toString());
+        }
+
+        public Instant getInstant(String column) {
+            Object value = get(column);
+            return value == null ? null : Instant.parse(value.toString());
+        }
+
+        @Override
+        public String toString() {
+            return values.toString();
+        }
+    }
+}
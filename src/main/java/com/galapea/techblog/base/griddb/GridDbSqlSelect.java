@@ -0,0 +1,18 @@
+package com.galapea.techblog.base.griddb;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One SELECT statement sent to the {@code /sql} endpoint.
+ *
+ * @param type
+ *            always {@code sql-select}
+ * @param statement
+ *            the query
+ */
+public record GridDbSqlSelect(@JsonProperty("type") String type, @JsonProperty("stmt") String statement) {
+
+    public GridDbSqlSelect(String statement) {
+        this("sql-select", statement);
+    }
+}
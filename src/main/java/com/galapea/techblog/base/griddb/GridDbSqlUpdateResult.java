@@ -0,0 +1,26 @@
+package com.galapea.techblog.base.griddb;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of one statement sent to the {@code /sql/update} endpoint. The
+ * endpoint answers with one result per statement, in request order.
+ *
+ * @param status
+ *            {@code 1} if the statement succeeded
+ * @param updatedRows
+ *            the number of rows inserted, updated or deleted
+ * @param statement
+ *            the executed statement
+ * @param message
+ *            the error message if the statement failed
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GridDbSqlUpdateResult(@JsonProperty("status") int status, @JsonProperty("updatedRows") long updatedRows,
+        @JsonProperty("stmt") String statement, @JsonProperty("message") String message) {
+
+    public boolean isSuccess() {
+        return status == 1;
+    }
+}
@@ -0,0 +1,93 @@
+package com.galapea.techblog.base.griddb;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * The kind of work a GridDB Cloud request is made for. Each workload has its
+ * own request quota, see {@link GridDbAdmissionControl}.
+ * <p>
+ * The workload is bound to the calling thread: code that runs on behalf of a
+ * workload wraps its work with {@link #run(Runnable)} or
+ * {@link #call(Supplier)}, and every request made by the client on that thread
+ * is counted against it. Requests made without a bound workload count as
+ * {@link #INTERACTIVE}. Work handed to another thread must be wrapped with
+ * {@link #wrap(Runnable)} to keep its workload.
+ * </p>
+ */
+public enum GridDbWorkload {
+    /** Reads and writes a user is waiting for, e.g. page loads. */
+    INTERACTIVE,
+    /** Seeding and CSV imports. */
+    BULK_IMPORT,
+    /** Writing back AI generated genres and summaries. */
+    ENRICHMENT,
+    /** Housekeeping, e.g. catalog reconciliation, journal replay, audit logs. */
+    BACKGROUND;
+
+    private static final ThreadLocal<GridDbWorkload> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the workload bound to the calling thread, {@link #INTERACTIVE} if
+     *         none is
+     */
+    public static GridDbWorkload current() {
+        GridDbWorkload workload = CURRENT.get();
+        return workload != null ? workload : INTERACTIVE;
+    }
+
+    /**
+     * Runs the task with this workload bound to the calling thread.
+     */
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Calls the task with this workload bound to the calling thread.
+     *
+     * @return the result of the task
+     */
+    public <T> T call(Supplier<T> task) {
+        GridDbWorkload previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @return the task, running with this workload on whichever thread runs it
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> run(task);
+    }
+
+    /**
+     * @return the task, running with this workload on whichever thread calls it
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            GridDbWorkload previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+}
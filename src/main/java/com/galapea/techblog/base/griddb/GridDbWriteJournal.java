@@ -0,0 +1,381 @@
+package com.galapea.techblog.base.griddb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only local journal of pending GridDB writes.
+ * <p>
+ * Every write is appended as one JSON line before it is sent to GridDB Cloud
+ * and acknowledged with a second line once GridDB has accepted it. Appends are
+ * made durable with group commit: concurrent writers share a single
+ * {@code fsync}. Acknowledgements are not synced; after a crash an already
+ * delivered write may be replayed again, which is harmless because only
+ * idempotent writes (row registration by row key, {@code INSERT OR REPLACE},
+ * {@code UPDATE ... SET} with literals) are journaled.
+ * </p>
+ * <p>
+ * Writes to one container go through the container's {@link #lane(String)}:
+ * direct senders and the background replayer deliver them one at a time and
+ * in journal order, so a newer version of a row can never be overtaken by an
+ * older one. Writes to different containers do not wait for each other.
+ * </p>
+ * <p>
+ * The replayer delivers the pending entries of each lane in journal order. It
+ * stops a lane at the first entry that fails with a transient error and retries
+ * on the next round; entries rejected by GridDB (4xx) are logged and dropped.
+ * </p>
+ */
+public class GridDbWriteJournal implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GridDbWriteJournal.class);
+    private static final String JOURNAL_FILE = "griddb-writes.journal";
+    private static final long COMPACT_THRESHOLD_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Kind of a journaled write.
+     */
+    public enum Kind {
+        /** Rows registered in {@link Entry#container()}. */
+        ROWS,
+        /** Idempotent SQL update statements. */
+        SQL
+    }
+
+    /**
+     * A journaled write.
+     *
+     * @param seq
+     *            the journal sequence number
+     * @param kind
+     *            the kind of write
+     * @param container
+     *            the target container, which orders the entry behind earlier
+     *            writes to the same container
+     * @param payload
+     *            the request body
+     */
+    public record Entry(long seq, Kind kind, String container, JsonNode payload) {
+    }
+
+    /**
+     * Sends a journaled write to GridDB.
+     */
+    @FunctionalInterface
+    public interface Delivery {
+        void deliver(Entry entry);
+    }
+
+    private record Ack(long ack) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path file;
+    private final FileChannel channel;
+    private final TreeMap<Long, Entry> pending = new TreeMap<>();
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private final Map<String, Lock> lanes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService replayer;
+
+    private long nextSeq = 1;
+    private long lastWrittenSeq;
+    private volatile long syncedSeq;
+
+    /**
+     * Opens the journal in the given directory, recovering entries that were not
+     * acknowledged before the last shutdown.
+     */
+    public GridDbWriteJournal(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            this.file = directory.resolve(JOURNAL_FILE);
+            recover();
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open GridDB write journal in " + directory, e);
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Recovered {} pending GridDB writes from {}", pending.size(), file);
+        }
+    }
+
+    /**
+     * Starts the background replayer.
+     *
+     * @param delivery
+     *            sends an entry to GridDB, throwing {@link GridDbException} on
+     *            failure
+     * @param interval
+     *            delay between replay rounds
+     */
+    public synchronized void startReplay(Delivery delivery, Duration interval) {
+        if (replayer != null) {
+            return;
+        }
+        replayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(GridDbWorkload.BACKGROUND.wrap(runnable), "griddb-journal-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        replayer.scheduleWithFixedDelay(() -> replay(delivery), 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends a write and waits until it is durable on disk.
+     *
+     * @return the sequence number to acknowledge once delivered
+     */
+    public long append(Kind kind, String container, Object payload) {
+        long seq;
+        synchronized (writeLock) {
+            seq = nextSeq++;
+            Entry entry = new Entry(seq, kind, container, objectMapper.valueToTree(payload));
+            write(entry);
+            pending.put(seq, entry);
+            lastWrittenSeq = seq;
+        }
+        sync(seq);
+        return seq;
+    }
+
+    /**
+     * Marks a write as delivered.
+     */
+    public void acknowledge(long seq) {
+        synchronized (writeLock) {
+            if (pending.remove(seq) == null) {
+                return;
+            }
+            write(new Ack(seq));
+            try {
+                if (pending.isEmpty() && channel.size() > COMPACT_THRESHOLD_BYTES) {
+                    channel.truncate(0);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to compact GridDB write journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the lock that orders the writes to a container. A write must be
+     * appended and delivered while holding it, see
+     * {@link #deliverPending(String, long, Delivery)}.
+     */
+    public Lock lane(String container) {
+        return lanes.computeIfAbsent(laneKey(container), key -> new ReentrantLock(true));
+    }
+
+    /**
+     * Delivers the pending writes to a container that were appended before the
+     * given sequence number, in journal order. The caller must hold the
+     * container's {@link #lane(String)}.
+     *
+     * @return {@code true} if none of them is pending anymore, {@code false} if
+     *         GridDB is still unavailable and later writes must stay queued
+     */
+    public boolean deliverPending(String container, long beforeSeq, Delivery delivery) {
+        List<Entry> entries;
+        synchronized (writeLock) {
+            entries = pending.headMap(beforeSeq).values().stream()
+                    .filter(entry -> Objects.equals(laneKey(entry.container()), laneKey(container))).toList();
+        }
+        int delivered = 0;
+        boolean stopped = false;
+        for (Entry entry : entries) {
+            try {
+                delivery.deliver(entry);
+                acknowledge(entry.seq());
+                delivered++;
+            } catch (GridDbException e) {
+                if (isTransient(e)) {
+                    log.debug("GridDB still unavailable, {} journaled writes to {} pending: {}",
+                            entries.size() - delivered, container, e.getMessage());
+                    stopped = true;
+                    break;
+                }
+                log.error("GridDB rejected journaled write {} ({} {}), dropping it: {}", entry.seq(), entry.kind(),
+                        entry.container(), e.getErrorBody());
+                acknowledge(entry.seq());
+            } catch (RuntimeException e) {
+                log.error("Failed to replay journaled write {}", entry.seq(), e);
+                stopped = true;
+                break;
+            }
+        }
+        if (delivered > 0) {
+            log.info("Replayed {} journaled GridDB writes to {}", delivered, container);
+        }
+        return !stopped;
+    }
+
+    /**
+     * @return {@code true} if writes are waiting for delivery
+     */
+    public boolean hasPending() {
+        synchronized (writeLock) {
+            return !pending.isEmpty();
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (writeLock) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (replayer != null) {
+                replayer.shutdownNow();
+            }
+        }
+        try {
+            synchronized (writeLock) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close GridDB write journal: {}", e.getMessage());
+        }
+    }
+
+    private void replay(Delivery delivery) {
+        Set<String> containers = new LinkedHashSet<>();
+        synchronized (writeLock) {
+            pending.values().forEach(entry -> containers.add(entry.container()));
+        }
+        for (String container : containers) {
+            Lock lane = lane(container);
+            lane.lock();
+            try {
+                deliverPending(container, Long.MAX_VALUE, delivery);
+            } finally {
+                lane.unlock();
+            }
+        }
+    }
+
+    // Entries journaled before writes were ordered by container have none and share one lane
+    private static String laneKey(String container) {
+        return container == null ? "" : container;
+    }
+
+    /**
+     * @return {@code true} if the error may go away by itself: server errors,
+     *         throttling, timeouts and connection failures (reported as 500 by
+     *         {@link GridDbCloudClient})
+     */
+    static boolean isTransient(GridDbException e) {
+        return GridDbRetryPolicy.isTransient(e);
+    }
+
+    private void write(Object record) {
+        try {
+            byte[] line = (objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write GridDB journal", e);
+        }
+    }
+
+    /**
+     * Group commit: the first writer to get here syncs everything written so far,
+     * writers that were covered by that sync return without another
+     * {@code fsync}.
+     */
+    private void sync(long seq) {
+        if (syncedSeq >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSeq >= seq) {
+                return;
+            }
+            long upTo;
+            synchronized (writeLock) {
+                upTo = lastWrittenSeq;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync GridDB journal", e);
+            }
+            syncedSeq = upTo;
+        }
+    }
+
+    /**
+     * Reads the journal, keeps the unacknowledged entries and rewrites the file
+     * with only those entries. A torn last line from a crash is ignored.
+     */
+    private void recover() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (JsonProcessingException e) {
+                    log.warn("Skipping unreadable GridDB journal line");
+                    continue;
+                }
+                if (node.has("ack")) {
+                    pending.remove(node.get("ack").asLong());
+                } else {
+                    Entry entry = objectMapper.treeToValue(node, Entry.class);
+                    pending.put(entry.seq(), entry);
+                }
+                long seq = node.has("ack") ? node.get("ack").asLong() : node.get("seq").asLong();
+                nextSeq = Math.max(nextSeq, seq + 1);
+            }
+        }
+        Path compacted = file.resolveSibling(JOURNAL_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : pending.values()) {
+                out.write(ByteBuffer
+                        .wrap((objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8)));
+            }
+            out.force(true);
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastWrittenSeq = nextSeq - 1;
+        syncedSeq = lastWrittenSeq;
+    }
+}
@@ -1,6 +1,8 @@
 package com.galapea.techblog.base.griddb.acquisition;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.galapea.techblog.base.griddb.query.Criteria;
+import com.galapea.techblog.base.griddb.query.Sort;
 
 public class AcquireRowsRequest {
     private Long offset = 0L;
@@ -78,6 +80,22 @@ public class AcquireRowsRequest {
             return this;
         }
 
+        /**
+         * Sets the condition from a typed, escaped {@link Criteria}.
+         */
+        public Builder condition(Criteria criteria) {
+            this.condition = criteria.toCondition();
+            return this;
+        }
+
+        /**
+         * Sets the sort from a typed {@link Sort}.
+         */
+        public Builder sort(Sort sort) {
+            this.sort = sort.toSortString();
+            return this;
+        }
+
         public AcquireRowsRequest build() {
             AcquireRowsRequest req = new AcquireRowsRequest();
             req.setOffset(this.offset);
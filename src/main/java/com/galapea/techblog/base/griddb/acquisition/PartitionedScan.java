@@ -0,0 +1,164 @@
+package com.galapea.techblog.base.griddb.acquisition;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import com.galapea.techblog.base.griddb.GridDbWorkload;
+
+/**
+ * Reads a container as a set of independent partitions, concurrently.
+ * <p>
+ * Each partition is read page by page with keyset pagination on one of
+ * {@code parallelism} worker threads, so several acquisitions (and HTTP
+ * connections) are in flight at once. Pages are handed to the consumer through
+ * a bounded queue: a slow consumer pauses the workers instead of buffering the
+ * whole container. Using more partitions than threads evens out partitions of
+ * uneven size.
+ * </p>
+ * <p>
+ * The returned stream is not ordered across partitions. It supports
+ * {@link Stream#parallel()}, which processes the rows in batches on the common
+ * pool. A stream that is not consumed to the end must be closed to stop the
+ * workers.
+ * </p>
+ *
+ * @param <T>
+ *            the row type
+ */
+public final class PartitionedScan<T> extends Spliterators.AbstractSpliterator<T> {
+    private static final Object PARTITION_DONE = new Object();
+
+    private final List<Pager<T>> partitions;
+    private final long pageSize;
+    private final BlockingQueue<Object> queue;
+    private final ExecutorService executor;
+    private int remaining;
+    private Iterator<T> current = Collections.emptyIterator();
+    private volatile boolean cancelled;
+
+    /**
+     * Reads one partition.
+     *
+     * @param <T>
+     *            the row type
+     */
+    @FunctionalInterface
+    public interface Pager<T> {
+        /**
+         * @param last
+         *            the last row of the previous page, or {@code null} for the
+         *            first page
+         * @return the next page, at most the scan's page size long. A shorter
+         *         page ends the partition.
+         */
+        List<T> next(T last);
+    }
+
+    private PartitionedScan(String name, List<Pager<T>> partitions, long pageSize, int parallelism) {
+        super(Long.MAX_VALUE, Spliterator.NONNULL);
+        this.partitions = List.copyOf(partitions);
+        this.pageSize = pageSize;
+        this.remaining = this.partitions.size();
+        int threads = Math.max(1, Math.min(parallelism, this.partitions.size()));
+        this.queue = new ArrayBlockingQueue<>(threads * 2);
+        this.executor = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name(name + "-", 0).daemon()
+                .factory());
+    }
+
+    /**
+     * Starts reading the given partitions.
+     *
+     * @param name
+     *            prefix of the worker thread names
+     * @param partitions
+     *            the partitions, together covering the container exactly once
+     * @param pageSize
+     *            the page size used by the pagers
+     * @param parallelism
+     *            the number of partitions read at the same time
+     * @return the rows of all partitions
+     */
+    public static <T> Stream<T> stream(String name, List<Pager<T>> partitions, long pageSize, int parallelism) {
+        PartitionedScan<T> scan = new PartitionedScan<>(name, partitions, pageSize, parallelism);
+        scan.start();
+        return StreamSupport.stream(scan, false).onClose(scan::cancel);
+    }
+
+    private void start() {
+        // Partitions are read with the workload of the caller
+        GridDbWorkload workload = GridDbWorkload.current();
+        for (Pager<T> partition : partitions) {
+            executor.execute(workload.wrap(() -> read(partition)));
+        }
+        executor.shutdown();
+    }
+
+    private void read(Pager<T> partition) {
+        try {
+            T last = null;
+            while (!cancelled) {
+                List<T> page = partition.next(last);
+                if (!page.isEmpty()) {
+                    queue.put(page);
+                }
+                if (page.size() < pageSize) {
+                    break;
+                }
+                last = page.get(page.size() - 1);
+            }
+            queue.put(PARTITION_DONE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            try {
+                queue.put(e);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (!current.hasNext()) {
+            if (remaining == 0) {
+                return false;
+            }
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while scanning", e);
+            }
+            if (next == PARTITION_DONE) {
+                remaining--;
+            } else if (next instanceof RuntimeException failure) {
+                cancel();
+                throw failure;
+            } else {
+                current = ((List<T>) next).iterator();
+            }
+        }
+        action.accept(current.next());
+        return true;
+    }
+
+    private void cancel() {
+        cancelled = true;
+        remaining = 0;
+        executor.shutdownNow();
+        queue.clear();
+    }
+}
@@ -0,0 +1,17 @@
+package com.galapea.techblog.base.griddb.query;
+
+/**
+ * A single {@code column = literal} pair of a SQL {@code UPDATE ... SET}
+ * clause, created with {@link GridDbField#set(Object)}.
+ *
+ * @param column
+ *            the validated column name
+ * @param literal
+ *            the escaped value
+ */
+public record Assignment(String column, String literal) {
+    @Override
+    public String toString() {
+        return column + " = " + literal;
+    }
+}
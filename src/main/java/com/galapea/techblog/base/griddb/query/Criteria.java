@@ -0,0 +1,76 @@
+package com.galapea.techblog.base.griddb.query;
+
+/**
+ * An immutable row filter that compiles to the {@code condition} of an
+ * {@link com.galapea.techblog.base.griddb.acquisition.AcquireRowsRequest} or to
+ * the {@code WHERE} clause of a SQL statement.
+ * <p>
+ * Instances are created from a {@link GridDbField}; every value is rendered
+ * through {@link GridDbLiterals}, so the resulting condition is safe for any
+ * input.
+ * </p>
+ */
+public final class Criteria {
+    private static final Criteria NONE = new Criteria("");
+
+    private final String condition;
+
+    private Criteria(String condition) {
+        this.condition = condition;
+    }
+
+    static Criteria of(String condition) {
+        return new Criteria(condition);
+    }
+
+    /**
+     * @return a criteria matching every row
+     */
+    public static Criteria none() {
+        return NONE;
+    }
+
+    /**
+     * @return {@code true} if this criteria matches every row
+     */
+    public boolean isEmpty() {
+        return condition.isEmpty();
+    }
+
+    public Criteria and(Criteria other) {
+        return combine("AND", other);
+    }
+
+    public Criteria or(Criteria other) {
+        return combine("OR", other);
+    }
+
+    public Criteria not() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Cannot negate an empty criteria");
+        }
+        return new Criteria("NOT (" + condition + ")");
+    }
+
+    /**
+     * @return the condition string, empty if this criteria matches every row
+     */
+    public String toCondition() {
+        return condition;
+    }
+
+    @Override
+    public String toString() {
+        return condition;
+    }
+
+    private Criteria combine(String operator, Criteria other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        return new Criteria("(" + condition + ") " + operator + " (" + other.condition + ")");
+    }
+}
@@ -0,0 +1,185 @@
+package com.galapea.techblog.base.griddb.query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A typed reference to a column of a GridDB container, used to build
+ * {@link Criteria} and {@link Sort} without concatenating strings.
+ *
+ * <pre>
+ * GridDbField&lt;Double&gt; rating = GridDbField.ofDouble("rating");
+ * Criteria criteria = rating.between(4.0, 5.0).and(publisher.eq("O'Reilly"));
+ * </pre>
+ *
+ * @param <T>
+ *            the Java type of the column values
+ */
+public class GridDbField<T> {
+    private final String name;
+    private final String type;
+    private final Function<T, String> literal;
+
+    protected GridDbField(String name, String type, Function<T, String> literal) {
+        this.name = GridDbLiterals.identifier(name);
+        this.type = type;
+        this.literal = literal;
+    }
+
+    public static StringField ofString(String name) {
+        return new StringField(name);
+    }
+
+    public static GridDbField<Double> ofDouble(String name) {
+        return new GridDbField<>(name, "DOUBLE", GridDbLiterals::number);
+    }
+
+    public static GridDbField<Long> ofLong(String name) {
+        return new GridDbField<>(name, "LONG", GridDbLiterals::number);
+    }
+
+    public static GridDbField<Integer> ofInteger(String name) {
+        return new GridDbField<>(name, "INTEGER", GridDbLiterals::number);
+    }
+
+    public static GridDbField<Instant> ofTimestamp(String name) {
+        return new GridDbField<>(name, "TIMESTAMP", GridDbLiterals::timestamp);
+    }
+
+    /**
+     * @return the column name
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the GridDB column type, e.g. {@code STRING} or {@code DOUBLE}
+     */
+    public String type() {
+        return type;
+    }
+
+    /**
+     * Renders a value of this column as an escaped literal.
+     */
+    public String literal(T value) {
+        return literal.apply(value);
+    }
+
+    public Criteria eq(T value) {
+        return compare("=", value);
+    }
+
+    public Criteria ne(T value) {
+        return compare("!=", value);
+    }
+
+    public Criteria gt(T value) {
+        return compare(">", value);
+    }
+
+    public Criteria ge(T value) {
+        return compare(">=", value);
+    }
+
+    public Criteria lt(T value) {
+        return compare("<", value);
+    }
+
+    public Criteria le(T value) {
+        return compare("<=", value);
+    }
+
+    /**
+     * Inclusive range. Either bound may be {@code null} to leave that side open.
+     */
+    public Criteria between(T min, T max) {
+        Criteria criteria = Criteria.none();
+        if (min != null) {
+            criteria = criteria.and(ge(min));
+        }
+        if (max != null) {
+            criteria = criteria.and(le(max));
+        }
+        return criteria;
+    }
+
+    /**
+     * Matches any of the given values, rendered as a disjunction of equalities.
+     */
+    public Criteria in(Collection<T> values) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("IN requires at least one value for column " + name);
+        }
+        return Criteria.of(values.stream().map(value -> name + " = " + literal(value))
+                .collect(Collectors.joining(" OR ", "(", ")")));
+    }
+
+    public Criteria isNull() {
+        return Criteria.of(name + " IS NULL");
+    }
+
+    public Criteria isNotNull() {
+        return Criteria.of(name + " IS NOT NULL");
+    }
+
+    /**
+     * Creates a {@code SET} assignment for a partial update. {@code null} clears
+     * the column.
+     */
+    public Assignment set(T value) {
+        return new Assignment(name, literal(value));
+    }
+
+    public Sort.Order asc() {
+        return new Sort.Order(name, false);
+    }
+
+    public Sort.Order desc() {
+        return new Sort.Order(name, true);
+    }
+
+    private Criteria compare(String operator, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Use isNull()/isNotNull() to compare column " + name + " with null");
+        }
+        return Criteria.of(name + " " + operator + " " + literal(value));
+    }
+
+    /**
+     * A {@code STRING} column, which additionally supports pattern matching.
+     */
+    public static final class StringField extends GridDbField<String> {
+        private StringField(String name) {
+            super(name, "STRING", GridDbLiterals::quote);
+        }
+
+        /**
+         * {@code LIKE} with a caller supplied pattern, where {@code %} matches any
+         * sequence and {@code _} any single character.
+         */
+        public Criteria like(String pattern) {
+            return Criteria.of(name() + " LIKE " + GridDbLiterals.quote(pattern));
+        }
+
+        /**
+         * Matches values starting with the given text. Wildcard characters in the
+         * text keep their {@code LIKE} meaning and may widen the match; quotes are
+         * always escaped.
+         */
+        public Criteria startsWith(String prefix) {
+            return like(prefix + "%");
+        }
+
+        /**
+         * Matches values containing the given text, see
+         * {@link #startsWith(String)} for wildcard handling.
+         */
+        public Criteria contains(String text) {
+            return like("%" + text + "%");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.galapea.techblog.base.griddb.query;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Pattern;
+
+/**
+ * Renders Java values as GridDB TQL/SQL literals.
+ * <p>
+ * String literals are enclosed in single quotes and embedded single quotes are
+ * doubled, so user input can never terminate the literal and inject conditions
+ * or statements.
+ * </p>
+ */
+public final class GridDbLiterals {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private GridDbLiterals() {
+    }
+
+    /**
+     * Quotes a string literal, e.g. {@code O'Reilly} becomes {@code 'O''Reilly'}.
+     * {@code null} is rendered as {@code NULL}.
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            return "NULL";
+        }
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Renders a numeric literal. {@code null} is rendered as {@code NULL}.
+     *
+     * @throws IllegalArgumentException
+     *             if the value is NaN or infinite
+     */
+    public static String number(Number value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Double d && (d.isNaN() || d.isInfinite())) {
+            throw new IllegalArgumentException("Unsupported numeric literal: " + value);
+        }
+        if (value instanceof Float f && (f.isNaN() || f.isInfinite())) {
+            throw new IllegalArgumentException("Unsupported numeric literal: " + value);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Renders a timestamp literal, e.g.
+     * {@code TIMESTAMP('2025-05-01T10:00:00.000Z')}. {@code null} is rendered as
+     * {@code NULL}.
+     */
+    public static String timestamp(Instant value) {
+        if (value == null) {
+            return "NULL";
+        }
+        return "TIMESTAMP('" + formatTimestamp(value) + "')";
+    }
+
+    /**
+     * Formats a timestamp the way the Web API expects {@code TIMESTAMP} values in
+     * row registrations, in UTC with millisecond precision.
+     */
+    public static String formatTimestamp(Instant value) {
+        return TIMESTAMP_FORMAT.format(value);
+    }
+
+    /**
+     * Validates a container or column name. Names are never quoted, so only plain
+     * identifiers are accepted.
+     *
+     * @throws IllegalArgumentException
+     *             if the name is not a plain identifier
+     */
+    public static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid GridDB identifier: " + name);
+        }
+        return name;
+    }
+}
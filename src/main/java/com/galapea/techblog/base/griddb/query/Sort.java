@@ -0,0 +1,55 @@
+package com.galapea.techblog.base.griddb.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable sort specification that compiles to the {@code sort} string of
+ * an {@link com.galapea.techblog.base.griddb.acquisition.AcquireRowsRequest},
+ * e.g. {@code "rating desc, id desc"}.
+ */
+public final class Sort {
+    private final List<Order> orders;
+
+    private Sort(List<Order> orders) {
+        this.orders = List.copyOf(orders);
+    }
+
+    public static Sort by(Order... orders) {
+        return new Sort(List.of(orders));
+    }
+
+    /**
+     * @return a new sort with the given order appended as a tie-breaker
+     */
+    public Sort then(Order order) {
+        List<Order> next = new ArrayList<>(orders);
+        next.add(order);
+        return new Sort(next);
+    }
+
+    public List<Order> orders() {
+        return orders;
+    }
+
+    public String toSortString() {
+        return orders.stream().map(Order::toString).collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public String toString() {
+        return toSortString();
+    }
+
+    /**
+     * A single sort key, created with {@link GridDbField#asc()} or
+     * {@link GridDbField#desc()}.
+     */
+    public record Order(String column, boolean descending) {
+        @Override
+        public String toString() {
+            return column + (descending ? " desc" : " asc");
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.galapea.techblog.bookinventory;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Component
+@ConfigurationProperties(prefix = "bookinventory")
+public class BookInventoryProperties {
+    private final WriteBehind writeBehind = new WriteBehind();
+    private final Catalog catalog = new Catalog();
+    private final CsvImport csvImport = new CsvImport();
+    private final Scan scan = new Scan();
+    private final Analytics analytics = new Analytics();
+    private final Sharding sharding = new Sharding();
+    private final AssistantAudit assistantAudit = new AssistantAudit();
+    private final Duplicates duplicates = new Duplicates();
+
+    public WriteBehind getWriteBehind() {
+        return this.writeBehind;
+    }
+
+    public Catalog getCatalog() {
+        return this.catalog;
+    }
+
+    public CsvImport getCsvImport() {
+        return this.csvImport;
+    }
+
+    public Scan getScan() {
+        return this.scan;
+    }
+
+    public Analytics getAnalytics() {
+        return this.analytics;
+    }
+
+    public Sharding getSharding() {
+        return this.sharding;
+    }
+
+    public AssistantAudit getAssistantAudit() {
+        return this.assistantAudit;
+    }
+
+    public Duplicates getDuplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Settings of the optional write-behind buffer that coalesces book writes into
+     * batched row registrations.
+     */
+    public static class WriteBehind {
+        private boolean enabled = false;
+        private int maxBatchSize = 100;
+        private Duration flushInterval = Duration.ofMillis(500);
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBatchSize() {
+            return this.maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return this.flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+    }
+
+    /**
+     * Freshness settings of the shared in-memory catalog snapshot.
+     */
+    public static class Catalog {
+        private Duration refreshInterval = Duration.ofMinutes(5);
+        private Duration maxStaleness = Duration.ofMinutes(15);
+        private Duration fullReloadInterval = Duration.ofHours(1);
+
+        /**
+         * Delay between background reconciliations with GridDB.
+         */
+        public Duration getRefreshInterval() {
+            return this.refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        /**
+         * Maximum age of the last reconciliation before reads reload the catalog
+         * synchronously.
+         */
+        public Duration getMaxStaleness() {
+            return this.maxStaleness;
+        }
+
+        public void setMaxStaleness(Duration maxStaleness) {
+            this.maxStaleness = maxStaleness;
+        }
+
+        /**
+         * Minimum delay between full reloads. Reconciliations in between only
+         * fetch new and changed books.
+         */
+        public Duration getFullReloadInterval() {
+            return this.fullReloadInterval;
+        }
+
+        public void setFullReloadInterval(Duration fullReloadInterval) {
+            this.fullReloadInterval = fullReloadInterval;
+        }
+    }
+
+    /**
+     * Settings of streaming CSV imports uploaded in the book list.
+     */
+    public static class CsvImport {
+        private int batchSize = 500;
+        private int maxInFlightBatches = 4;
+        private DataSize maxFileSize = DataSize.ofMegabytes(512);
+        private long dedupExpectedBooks = 200_000;
+        private double dedupFalsePositiveRate = 0.01;
+
+        /**
+         * Number of parsed books written to GridDB per batch.
+         */
+        public int getBatchSize() {
+            return this.batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Batches that may be waiting to be written before parsing pauses, which
+         * bounds the memory used by an import.
+         */
+        public int getMaxInFlightBatches() {
+            return this.maxInFlightBatches;
+        }
+
+        public void setMaxInFlightBatches(int maxInFlightBatches) {
+            this.maxInFlightBatches = maxInFlightBatches;
+        }
+
+        public DataSize getMaxFileSize() {
+            return this.maxFileSize;
+        }
+
+        public void setMaxFileSize(DataSize maxFileSize) {
+            this.maxFileSize = maxFileSize;
+        }
+
+        /**
+         * Minimum number of books the duplicate filter is sized for. It grows
+         * with the catalog.
+         */
+        public long getDedupExpectedBooks() {
+            return this.dedupExpectedBooks;
+        }
+
+        public void setDedupExpectedBooks(long dedupExpectedBooks) {
+            this.dedupExpectedBooks = dedupExpectedBooks;
+        }
+
+        /**
+         * Share of new books the duplicate filter reports as possibly known, each
+         * costing a lookup in GridDB.
+         */
+        public double getDedupFalsePositiveRate() {
+            return this.dedupFalsePositiveRate;
+        }
+
+        public void setDedupFalsePositiveRate(double dedupFalsePositiveRate) {
+            this.dedupFalsePositiveRate = dedupFalsePositiveRate;
+        }
+    }
+
+    /**
+     * Settings of full scans of the Books container, e.g. catalog reloads.
+     */
+    public static class Scan {
+        private int parallelism = 4;
+
+        /**
+         * Number of id ranges read from GridDB at the same time.
+         */
+        public int getParallelism() {
+            return this.parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Settings of the catalog statistics shown in the analytics view.
+     */
+    public static class Analytics {
+        private Duration refreshInterval = Duration.ofMinutes(10);
+        private int topCount = 10;
+
+        /**
+         * How long computed statistics are served before GridDB is queried again.
+         */
+        public Duration getRefreshInterval() {
+            return this.refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        /**
+         * Number of publishers, authors and genres listed.
+         */
+        public int getTopCount() {
+            return this.topCount;
+        }
+
+        public void setTopCount(int topCount) {
+            this.topCount = topCount;
+        }
+    }
+
+    /**
+     * Settings of the containers books are spread across.
+     */
+    public static class Sharding {
+        private int shards = 1;
+
+        /**
+         * Number of Books containers. 1 keeps every book in the single
+         * {@code Books} container; more spread books by a hash of their id across
+         * {@code Books_00}, {@code Books_01}, ... Existing books are not moved when
+         * this changes.
+         */
+        public int getShards() {
+            return this.shards;
+        }
+
+        public void setShards(int shards) {
+            this.shards = shards;
+        }
+    }
+
+    /**
+     * Settings of the time series recording every AI call.
+     */
+    public static class AssistantAudit {
+        private boolean enabled = true;
+        private int capacity = 10_000;
+        private int maxBatchSize = 200;
+        private Duration flushInterval = Duration.ofSeconds(5);
+        private Duration retention = Duration.ofDays(30);
+        private Duration retentionCheckInterval = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Maximum number of calls waiting to be written; further calls are dropped.
+         */
+        public int getCapacity() {
+            return this.capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Maximum number of calls appended in one request.
+         */
+        public int getMaxBatchSize() {
+            return this.maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        /**
+         * How often waiting calls are appended when no batch is full.
+         */
+        public Duration getFlushInterval() {
+            return this.flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        /**
+         * How long calls are kept.
+         */
+        public Duration getRetention() {
+            return this.retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        /**
+         * How often calls older than the retention are deleted.
+         */
+        public Duration getRetentionCheckInterval() {
+            return this.retentionCheckInterval;
+        }
+
+        public void setRetentionCheckInterval(Duration retentionCheckInterval) {
+            this.retentionCheckInterval = retentionCheckInterval;
+        }
+    }
+
+    /**
+     * Settings of the near-duplicate detection over titles and authors.
+     */
+    public static class Duplicates {
+        private double minSimilarity = 0.7;
+
+        /**
+         * Jaccard similarity of title trigrams and author terms, from 0 to 1, from
+         * which two books are reported as possible duplicates.
+         */
+        public double getMinSimilarity() {
+            return this.minSimilarity;
+        }
+
+        public void setMinSimilarity(double minSimilarity) {
+            this.minSimilarity = minSimilarity;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.time.Instant;
+import com.galapea.techblog.base.griddb.GridDbColumnSpec;
+
+/**
+ * One call of the AI model made for a book, as recorded in the
+ * {@code BookAssistantCalls} time series. The components are the columns of
+ * the time series, in order.
+ *
+ * @param timestamp
+ *            when the call started
+ * @param bookId
+ *            the book the call was made for
+ * @param kind
+ *            what was asked
+ * @param model
+ *            the model that answered, or {@code null} if unknown
+ * @param latencyMillis
+ *            how long the call took
+ * @param tokens
+ *            total tokens used by the call, or {@code null} if not reported
+ * @param outcome
+ *            how the call ended
+ */
+public record AssistantCall(@GridDbColumnSpec(name = "calledAt") Instant timestamp, String bookId, Kind kind,
+        String model, @GridDbColumnSpec(name = "latency") long latencyMillis, Integer tokens, Outcome outcome) {
+
+    public enum Kind {
+        GENRE, SUMMARY
+    }
+
+    public enum Outcome {
+        /** The model returned an answer. */
+        SUCCESS,
+        /** The model replied without an answer. */
+        EMPTY,
+        /** The call failed, e.g. timed out or could not be parsed. */
+        FAILURE
+    }
+
+    /**
+     * @return this call with another timestamp
+     */
+    public AssistantCall at(Instant timestamp) {
+        return new AssistantCall(timestamp, bookId, kind, model, latencyMillis, tokens, outcome);
+    }
+}
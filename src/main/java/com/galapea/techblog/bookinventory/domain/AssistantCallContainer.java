@@ -0,0 +1,128 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import com.galapea.techblog.base.griddb.GridDbCloudClient;
+import com.galapea.techblog.base.griddb.GridDbCloudSQLInsert;
+import com.galapea.techblog.base.griddb.GridDbException;
+import com.galapea.techblog.base.griddb.GridDbRepository;
+import com.galapea.techblog.base.griddb.GridDbSqlResult;
+import com.galapea.techblog.base.griddb.GridDbSqlUpdateResult;
+import com.galapea.techblog.base.griddb.query.Criteria;
+import com.galapea.techblog.base.griddb.query.GridDbField;
+
+/**
+ * Access to the {@code BookAssistantCalls} time series, which holds one row per
+ * AI call keyed by the time the call started ({@code calledAt}; "timestamp" is
+ * a keyword in GridDB SQL).
+ */
+@Service
+public class AssistantCallContainer {
+    static final String CONTAINER_NAME = "BookAssistantCalls";
+    // Columns used in queries, the schema is derived from AssistantCall
+    static final GridDbField<Instant> TIMESTAMP = GridDbField.ofTimestamp("calledAt");
+    static final GridDbField<String> KIND = GridDbField.ofString("kind");
+    static final GridDbField<Long> LATENCY = GridDbField.ofLong("latency");
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final GridDbCloudClient gridDbCloudClient;
+    private final GridDbRepository<AssistantCall> calls;
+
+    public AssistantCallContainer(GridDbCloudClient gridDbCloudClient) {
+        this.gridDbCloudClient = gridDbCloudClient;
+        this.calls = new GridDbRepository<>(gridDbCloudClient, CONTAINER_NAME, AssistantCall.class);
+    }
+
+    /**
+     * Creates the time series container. Does nothing if it exists.
+     *
+     * @throws GridDbException
+     *             if the container cannot be created
+     */
+    public void createTable() {
+        calls.createTimeSeries();
+        log.info("Created time series {} with columns: {}", CONTAINER_NAME, calls.mapping().columns());
+    }
+
+    /**
+     * Appends calls as rows. Calls must have distinct timestamps,
+     * a call with the timestamp of a stored row replaces it.
+     *
+     * @throws GridDbException
+     *             if the rows cannot be registered
+     */
+    public void append(List<AssistantCall> calls) {
+        this.calls.register(calls);
+    }
+
+    /**
+     * Deletes the calls started before the given time.
+     *
+     * @return the number of deleted rows
+     * @throws GridDbException
+     *             if the statement is rejected
+     */
+    public long deleteOlderThan(Instant cutoff) {
+        String stmt = "DELETE FROM " + CONTAINER_NAME + " WHERE " + TIMESTAMP.lt(cutoff).toCondition();
+        List<GridDbSqlUpdateResult> results = this.gridDbCloudClient
+                .executeSqlUpdate(List.of(new GridDbCloudSQLInsert(stmt)));
+        GridDbSqlUpdateResult result = results.isEmpty() ? null : results.get(0);
+        if (result == null || !result.isSuccess()) {
+            throw new GridDbException("Failed to delete calls before " + cutoff, HttpStatusCode.valueOf(500),
+                    result == null ? null : result.message());
+        }
+        return result.updatedRows();
+    }
+
+    /**
+     * Computes latency percentiles of the calls started in {@code [from, to)},
+     * per window of the given length. GridDB selects the time range; the
+     * latencies of each window are ranked here. Windows without calls are
+     * omitted.
+     *
+     * @param from
+     *            the start of the first window
+     * @param to
+     *            the end of the range, exclusive
+     * @param window
+     *            the length of each window, at least one millisecond
+     * @param kind
+     *            only calls of this kind, or {@code null} for all calls
+     * @return the windows with calls, oldest first
+     * @throws GridDbException
+     *             if the query fails
+     */
+    public List<LatencyWindow> latencyPercentiles(Instant from, Instant to, Duration window,
+            AssistantCall.Kind kind) {
+        long windowMillis = window.toMillis();
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("Window must be at least one millisecond: " + window);
+        }
+        String condition = TIMESTAMP.ge(from).and(TIMESTAMP.lt(to))
+                .and(kind == null ? Criteria.none() : KIND.eq(kind.name())).toCondition();
+        List<GridDbSqlResult> results = this.gridDbCloudClient.executeSqlSelect(
+                List.of("SELECT " + TIMESTAMP.name() + ", " + LATENCY.name() + " FROM " + CONTAINER_NAME + " WHERE "
+                        + condition + " ORDER BY " + TIMESTAMP.name()));
+        if (results.size() != 1) {
+            throw new GridDbException("Expected 1 result, got " + results.size(), HttpStatusCode.valueOf(500), null);
+        }
+        Map<Long, List<Long>> windows = new TreeMap<>();
+        for (GridDbSqlResult.Row row : results.get(0).map(row -> row)) {
+            long offset = row.getInstant(TIMESTAMP.name()).toEpochMilli() - from.toEpochMilli();
+            windows.computeIfAbsent(offset / windowMillis, index -> new ArrayList<>())
+                    .add(row.getLong(LATENCY.name()));
+        }
+        return windows.entrySet().stream()
+                .map(entry -> LatencyWindow.of(from.plusMillis(entry.getKey() * windowMillis),
+                        entry.getValue().stream().mapToLong(Long::longValue).toArray()))
+                .toList();
+    }
+}
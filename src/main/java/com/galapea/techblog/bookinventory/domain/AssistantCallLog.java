@@ -0,0 +1,167 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import com.galapea.techblog.base.griddb.GridDbWorkload;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Records AI calls in the {@link AssistantCallContainer} time series without
+ * slowing down the calls themselves.
+ * <p>
+ * {@link #record(AssistantCall)} only offers the call to a bounded queue; calls
+ * arriving while the queue is full are dropped and counted. A single thread
+ * appends the queued calls in batches of up to
+ * {@code bookinventory.assistant-audit.max-batch-size} every
+ * {@code bookinventory.assistant-audit.flush-interval}, or as soon as a batch is
+ * full, and deletes calls older than {@code bookinventory.assistant-audit.retention}
+ * every {@code bookinventory.assistant-audit.retention-check-interval}. The
+ * container is created before it is first written to.
+ * </p>
+ */
+@Component
+public class AssistantCallLog {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final AssistantCallContainer container;
+    private final BookInventoryProperties.AssistantAudit settings;
+    private final Clock clock;
+    private final BlockingQueue<AssistantCall> queue;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Only used on the scheduler thread
+    private boolean containerCreated;
+    private Instant lastTimestamp = Instant.EPOCH;
+
+    public AssistantCallLog(AssistantCallContainer container, BookInventoryProperties properties, Clock clock) {
+        this.container = container;
+        this.settings = properties.getAssistantAudit();
+        this.clock = clock;
+        if (settings.isEnabled()) {
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getCapacity()));
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(GridDbWorkload.BACKGROUND.wrap(runnable), "assistant-call-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long flushMillis = settings.getFlushInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+            long retentionMillis = settings.getRetentionCheckInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::applyRetention, retentionMillis, retentionMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.queue = null;
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    /**
+     * Queues a call for appending. Never blocks; the call is dropped if the queue
+     * is full or recording is disabled.
+     */
+    public void record(AssistantCall call) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (!queue.offer(call)) {
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                log.warn("Assistant call log is full, {} calls dropped so far", dropped.get());
+            }
+            return;
+        }
+        if (queue.size() >= settings.getMaxBatchSize() && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    /**
+     * @return the number of calls waiting to be appended
+     */
+    public int pendingCount() {
+        return isEnabled() ? queue.size() : 0;
+    }
+
+    /**
+     * @return the number of calls dropped because the queue was full
+     */
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    void flush() {
+        flushScheduled.set(false);
+        int batchSize = Math.max(1, settings.getMaxBatchSize());
+        List<AssistantCall> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                ensureContainer();
+                container.append(batch.stream().map(this::uniqueTimestamp).toList());
+            } catch (Exception e) {
+                // Auditing is best effort: a failed batch is not retried so AI calls never wait for GridDB
+                log.warn("Failed to append {} assistant calls: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    private void ensureContainer() {
+        if (!containerCreated) {
+            container.createTable();
+            containerCreated = true;
+        }
+    }
+
+    // Rows are keyed by a millisecond timestamp, so calls started in the same millisecond are moved apart
+    private AssistantCall uniqueTimestamp(AssistantCall call) {
+        Instant timestamp = call.timestamp().truncatedTo(ChronoUnit.MILLIS);
+        if (!timestamp.isAfter(lastTimestamp)) {
+            timestamp = lastTimestamp.plusMillis(1);
+        }
+        lastTimestamp = timestamp;
+        return timestamp.equals(call.timestamp()) ? call : call.at(timestamp);
+    }
+
+    void applyRetention() {
+        Instant cutoff = clock.instant().minus(settings.getRetention());
+        try {
+            ensureContainer();
+            long deleted = container.deleteOlderThan(cutoff);
+            if (deleted > 0) {
+                log.info("Deleted {} assistant calls before {}", deleted, cutoff);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to delete assistant calls before {}: {}", cutoff, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.execute(this::flush);
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Assistant call log flush did not finish within 10 seconds");
+        }
+    }
+}
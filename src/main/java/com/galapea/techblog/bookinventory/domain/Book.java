@@ -1,9 +1,41 @@
 package com.galapea.techblog.bookinventory.domain;
 
-public record Book(String id, String title, String authors, String publisher, Double rating, String genres,
-        String summary, Long goodreadsBookId, String goodreadsUrl) {
+import java.time.Instant;
+import com.galapea.techblog.base.griddb.GridDbColumnSpec;
+
+/**
+ * A book of the catalog. {@code updatedAt} is the time of the last write,
+ * stamped by {@code BookService} before the book is written and published; it
+ * is {@code null} for books that have not been written yet and for rows written
+ * before the column existed. The components are the columns of the
+ * {@code Books} container, in order.
+ */
+public record Book(@GridDbColumnSpec(index = "TREE") String id, String title,
+        @GridDbColumnSpec(index = "TREE") String authors, @GridDbColumnSpec(index = "TREE") String publisher,
+        Double rating, String genres, String summary, @GridDbColumnSpec(index = "TREE") Long goodreadsBookId,
+        String goodreadsUrl, Instant updatedAt) {
+    public Book(String id, String title, String authors, String publisher, Double rating, String genres, String summary,
+            Long goodreadsBookId, String goodreadsUrl) {
+        this(id, title, authors, publisher, rating, genres, summary, goodreadsBookId, goodreadsUrl, null);
+    }
+
     public Book(String id, String title, String authors, String publisher, Double rating, String genres, String summary,
             Long goodreadsBookId) {
-        this(id, title, authors, publisher, rating, genres, summary, goodreadsBookId, null);
+        this(id, title, authors, publisher, rating, genres, summary, goodreadsBookId, null, null);
+    }
+
+    public Book withGenres(String genres) {
+        return new Book(id, title, authors, publisher, rating, genres, summary, goodreadsBookId, goodreadsUrl,
+                updatedAt);
+    }
+
+    public Book withSummary(String summary, String goodreadsUrl) {
+        return new Book(id, title, authors, publisher, rating, genres, summary, goodreadsBookId, goodreadsUrl,
+                updatedAt);
+    }
+
+    public Book withUpdatedAt(Instant updatedAt) {
+        return new Book(id, title, authors, publisher, rating, genres, summary, goodreadsBookId, goodreadsUrl,
+                updatedAt);
     }
 }
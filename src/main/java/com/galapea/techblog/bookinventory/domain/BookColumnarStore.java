@@ -0,0 +1,612 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented copy of the books of the catalog for analytics.
+ * <p>
+ * Numbers are held in primitive arrays with a bitmap telling which rows have a
+ * value, and the low-cardinality text columns (authors, publisher, genres) as
+ * {@code int} codes into a {@link Dictionary}, so a row costs a few dozen bytes
+ * instead of a {@link Book} with boxed numbers and its own strings. Ids, titles
+ * and dictionary values are the strings of the books the store was built from,
+ * not copies. Summaries are not held at all: only whether a book has one is
+ * recorded, the text is loaded on demand.
+ * </p>
+ * <p>
+ * Queries are written as kernels over whole columns: filters produce a
+ * {@link Selection} bitmap 64 rows at a time from tight loops over the primitive
+ * arrays, selections are combined with bitwise operations, and aggregates visit
+ * the selected rows only.
+ * </p>
+ * <p>
+ * Changed books are written into the columns in place with
+ * {@link #apply(Collection)}, new books are appended as rows. A query that
+ * runs while changes may be applied must be run through {@link #read(Function)}
+ * to see one consistent state.
+ * </p>
+ *
+ * <pre>
+ * CatalogStatistics statistics = store
+ *         .read(s -&gt; s.statistics(s.hasGenre("Fantasy").and(s.ratingBetween(4.0, 5.0)), 10));
+ * </pre>
+ */
+public final class BookColumnarStore {
+    private static final int NULL_CODE = -1;
+    private static final int RATING_BUCKETS = 5;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Function<String, String> summaryLoader;
+    private int size;
+    private String[] ids;
+    private String[] titles;
+    private double[] ratings;
+    private long[] ratingPresent;
+    private long[] goodreadsBookIds;
+    private long[] goodreadsBookIdPresent;
+    private final Dictionary authors = new Dictionary();
+    private int[] authorCodes;
+    private final Dictionary publishers = new Dictionary();
+    private int[] publisherCodes;
+    // Genres are stored as one code per distinct genre list, each list knowing its single genres
+    private final Dictionary genreLists = new Dictionary();
+    private int[] genreListCodes;
+    private final Dictionary genres = new Dictionary();
+    private final List<int[]> genresOfList = new ArrayList<>();
+    private long[] summaryPresent;
+    // Rows ordered by id for lookups, plus the rows appended since it was sorted
+    private int[] rowsById;
+    private final Map<String, Integer> appendedRows = new HashMap<>();
+
+    private BookColumnarStore(List<Book> books, Function<String, String> summaryLoader) {
+        this.summaryLoader = summaryLoader;
+        allocate(Math.max(64, books.size()));
+        for (Book book : books) {
+            write(size++, book);
+        }
+        sortRowsById();
+    }
+
+    /**
+     * Builds a store from the given books.
+     *
+     * @param books
+     *            the books, their order is the row order
+     * @param summaryLoader
+     *            loads the summary of a book by id, see {@link #summary(int)}
+     * @return the store
+     */
+    public static BookColumnarStore of(List<Book> books, Function<String, String> summaryLoader) {
+        return new BookColumnarStore(books, summaryLoader);
+    }
+
+    /**
+     * Writes the given books into the columns: rows of books already in the store
+     * are overwritten, other books are appended. Waits for running
+     * {@link #read(Function)} queries.
+     */
+    public void apply(Collection<Book> changes) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : changes) {
+                if (book.id() == null) {
+                    continue;
+                }
+                int row = rowOf(book.id());
+                if (row < 0) {
+                    row = size++;
+                    if (row == ids.length) {
+                        grow();
+                    }
+                    appendedRows.put(book.id(), row);
+                }
+                write(row, book);
+            }
+            if (appendedRows.size() > Math.max(64, size / 8)) {
+                sortRowsById();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a query against one consistent state of the store; changes wait until
+     * it returns.
+     */
+    public <T> T read(Function<BookColumnarStore, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(int row, Book book) {
+        ids[row] = book.id();
+        titles[row] = book.title();
+        ratings[row] = book.rating() != null ? book.rating() : 0;
+        assign(ratingPresent, row, book.rating() != null);
+        goodreadsBookIds[row] = book.goodreadsBookId() != null ? book.goodreadsBookId() : 0;
+        assign(goodreadsBookIdPresent, row, book.goodreadsBookId() != null);
+        authorCodes[row] = authors.encode(book.authors());
+        publisherCodes[row] = publishers.encode(book.publisher());
+        int list = genreLists.encode(book.genres());
+        if (list == genresOfList.size()) {
+            genresOfList.add(Arrays.stream(genreLists.value(list).split(",")).map(String::trim)
+                    .filter(genre -> !genre.isEmpty()).mapToInt(genres::encode).distinct().toArray());
+        }
+        genreListCodes[row] = list;
+        assign(summaryPresent, row, book.summary() != null && !book.summary().isBlank());
+    }
+
+    private void allocate(int capacity) {
+        ids = new String[capacity];
+        titles = new String[capacity];
+        ratings = new double[capacity];
+        ratingPresent = new long[words(capacity)];
+        goodreadsBookIds = new long[capacity];
+        goodreadsBookIdPresent = new long[words(capacity)];
+        authorCodes = new int[capacity];
+        publisherCodes = new int[capacity];
+        genreListCodes = new int[capacity];
+        summaryPresent = new long[words(capacity)];
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        ratingPresent = Arrays.copyOf(ratingPresent, words(capacity));
+        goodreadsBookIds = Arrays.copyOf(goodreadsBookIds, capacity);
+        goodreadsBookIdPresent = Arrays.copyOf(goodreadsBookIdPresent, words(capacity));
+        authorCodes = Arrays.copyOf(authorCodes, capacity);
+        publisherCodes = Arrays.copyOf(publisherCodes, capacity);
+        genreListCodes = Arrays.copyOf(genreListCodes, capacity);
+        summaryPresent = Arrays.copyOf(summaryPresent, words(capacity));
+    }
+
+    private void sortRowsById() {
+        if (isSortedByIdDescending()) {
+            // The catalog's order, newest first
+            rowsById = IntStream.range(0, size).map(row -> size - 1 - row).toArray();
+        } else {
+            rowsById = IntStream.range(0, size).boxed().sorted(Comparator.comparing(row -> ids[row]))
+                    .mapToInt(row -> row).toArray();
+        }
+        appendedRows.clear();
+    }
+
+    private boolean isSortedByIdDescending() {
+        for (int row = 1; row < size; row++) {
+            if (ids[row - 1].compareTo(ids[row]) <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int rowOf(String id) {
+        int low = 0;
+        int high = rowsById.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = ids[rowsById[mid]].compareTo(id);
+            if (cmp == 0) {
+                return rowsById[mid];
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return appendedRows.getOrDefault(id, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Selection all() {
+        long[] words = new long[words(size)];
+        Arrays.fill(words, -1L);
+        return new Selection(words, size);
+    }
+
+    // ---- Filter kernels ----
+
+    /**
+     * @return the rated books whose rating is between {@code min} and
+     *         {@code max}, inclusive
+     */
+    public Selection ratingBetween(double min, double max) {
+        long[] words = new long[words(size)];
+        for (int word = 0; word < words.length; word++) {
+            int base = word << 6;
+            int end = Math.min(64, size - base);
+            long bits = 0;
+            for (int bit = 0; bit < end; bit++) {
+                double rating = ratings[base + bit];
+                bits |= (rating >= min & rating <= max ? 1L : 0L) << bit;
+            }
+            words[word] = bits & ratingPresent[word];
+        }
+        return new Selection(words, size);
+    }
+
+    public Selection isRated() {
+        return new Selection(Arrays.copyOf(ratingPresent, words(size)), size);
+    }
+
+    public Selection hasSummary() {
+        return new Selection(Arrays.copyOf(summaryPresent, words(size)), size);
+    }
+
+    /**
+     * @return the books whose authors are the given value, ignoring case
+     */
+    public Selection authorsEqual(String value) {
+        return codeEquals(authorCodes, authors.code(value));
+    }
+
+    /**
+     * @return the books whose publisher is the given value, ignoring case
+     */
+    public Selection publisherEquals(String value) {
+        return codeEquals(publisherCodes, publishers.code(value));
+    }
+
+    /**
+     * @return the books that list the given genre, ignoring case
+     */
+    public Selection hasGenre(String genre) {
+        int code = genres.code(genre);
+        long[] words = new long[words(size)];
+        if (code == NULL_CODE) {
+            return new Selection(words, size);
+        }
+        boolean[] matchingLists = new boolean[genreLists.size()];
+        for (int list = 0; list < matchingLists.length; list++) {
+            for (int listed : genresOfList.get(list)) {
+                matchingLists[list] |= listed == code;
+            }
+        }
+        for (int word = 0; word < words.length; word++) {
+            int base = word << 6;
+            int end = Math.min(64, size - base);
+            long bits = 0;
+            for (int bit = 0; bit < end; bit++) {
+                int list = genreListCodes[base + bit];
+                bits |= (list != NULL_CODE && matchingLists[list] ? 1L : 0L) << bit;
+            }
+            words[word] = bits;
+        }
+        return new Selection(words, size);
+    }
+
+    private Selection codeEquals(int[] codes, int code) {
+        long[] words = new long[words(size)];
+        if (code == NULL_CODE) {
+            return new Selection(words, size);
+        }
+        for (int word = 0; word < words.length; word++) {
+            int base = word << 6;
+            int end = Math.min(64, size - base);
+            long bits = 0;
+            for (int bit = 0; bit < end; bit++) {
+                bits |= (codes[base + bit] == code ? 1L : 0L) << bit;
+            }
+            words[word] = bits;
+        }
+        return new Selection(words, size);
+    }
+
+    // ---- Aggregate kernels ----
+
+    /**
+     * @return the average rating of the selected rated books, {@code null} if
+     *         none is rated
+     */
+    public Double averageRating(Selection selection) {
+        double sum = 0;
+        int rated = 0;
+        long[] words = selection.words;
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word] & ratingPresent[word];
+            rated += Long.bitCount(bits);
+            while (bits != 0) {
+                sum += ratings[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+        }
+        return rated == 0 ? null : sum / rated;
+    }
+
+    /**
+     * @return the number of selected rated books per whole-star bucket
+     *         {@code 0-1} ... {@code 4-5}, a rating of exactly 5 counting as
+     *         {@code 4-5}
+     */
+    public long[] ratingHistogram(Selection selection) {
+        long[] buckets = new long[RATING_BUCKETS];
+        long[] words = selection.words;
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word] & ratingPresent[word];
+            while (bits != 0) {
+                int bucket = (int) ratings[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                buckets[Math.max(0, Math.min(RATING_BUCKETS - 1, bucket))]++;
+                bits &= bits - 1;
+            }
+        }
+        return buckets;
+    }
+
+    public List<CatalogStatistics.Count> topAuthors(Selection selection, int top) {
+        return topGroups(selection, authorCodes, authors, top);
+    }
+
+    public List<CatalogStatistics.Count> topPublishers(Selection selection, int top) {
+        return topGroups(selection, publisherCodes, publishers, top);
+    }
+
+    /**
+     * @return the genres with the most selected books, a book counting once for
+     *         each of its genres
+     */
+    public List<CatalogStatistics.Count> topGenres(Selection selection, int top) {
+        long[] booksPerList = new long[genreLists.size()];
+        selection.forEach(row -> {
+            int list = genreListCodes[row];
+            if (list != NULL_CODE) {
+                booksPerList[list]++;
+            }
+        });
+        long[] books = new long[genres.size()];
+        for (int list = 0; list < booksPerList.length; list++) {
+            for (int genre : genresOfList.get(list)) {
+                books[genre] += booksPerList[list];
+            }
+        }
+        return top(books, null, null, genres, top);
+    }
+
+    private List<CatalogStatistics.Count> topGroups(Selection selection, int[] codes, Dictionary dictionary,
+            int top) {
+        long[] books = new long[dictionary.size()];
+        long[] rated = new long[dictionary.size()];
+        double[] ratingSums = new double[dictionary.size()];
+        long[] words = selection.words;
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                int code = codes[row];
+                if (code != NULL_CODE) {
+                    books[code]++;
+                    if (get(ratingPresent, row)) {
+                        rated[code]++;
+                        ratingSums[code] += ratings[row];
+                    }
+                }
+                bits &= bits - 1;
+            }
+        }
+        return top(books, rated, ratingSums, dictionary, top);
+    }
+
+    private static List<CatalogStatistics.Count> top(long[] books, long[] rated, double[] ratingSums,
+            Dictionary dictionary, int top) {
+        return IntStream.range(0, books.length).filter(code -> books[code] > 0).boxed()
+                .sorted((a, b) -> books[a] != books[b] ? Long.compare(books[b], books[a])
+                        : dictionary.value(a).compareTo(dictionary.value(b)))
+                .limit(top)
+                .map(code -> new CatalogStatistics.Count(dictionary.value(code), books[code],
+                        rated == null || rated[code] == 0 ? null : ratingSums[code] / rated[code]))
+                .toList();
+    }
+
+    /**
+     * Computes the statistics shown in the analytics view for the selected
+     * books.
+     */
+    public CatalogStatistics statistics(Selection selection, int top) {
+        long[] histogram = ratingHistogram(selection);
+        List<CatalogStatistics.Count> buckets = new ArrayList<>(RATING_BUCKETS);
+        for (int bucket = 0; bucket < RATING_BUCKETS; bucket++) {
+            buckets.add(new CatalogStatistics.Count(bucket + "-" + (bucket + 1), histogram[bucket], null));
+        }
+        return new CatalogStatistics(selection.count(), selection.and(hasSummary()).count(),
+                averageRating(selection), buckets, topPublishers(selection, top), topAuthors(selection, top),
+                topGenres(selection, top));
+    }
+
+    // ---- Row access ----
+
+    public String id(int row) {
+        return ids[row];
+    }
+
+    public String title(int row) {
+        return titles[row];
+    }
+
+    public Double rating(int row) {
+        return get(ratingPresent, row) ? ratings[row] : null;
+    }
+
+    public Long goodreadsBookId(int row) {
+        return get(goodreadsBookIdPresent, row) ? goodreadsBookIds[row] : null;
+    }
+
+    public String authors(int row) {
+        return authors.value(authorCodes[row]);
+    }
+
+    public String publisher(int row) {
+        return publishers.value(publisherCodes[row]);
+    }
+
+    public String genres(int row) {
+        return genreLists.value(genreListCodes[row]);
+    }
+
+    /**
+     * @return the summary, loaded through the summary loader, or {@code null} if
+     *         the book has none
+     */
+    public String summary(int row) {
+        return get(summaryPresent, row) ? summaryLoader.apply(ids[row]) : null;
+    }
+
+    /**
+     * @return the distinct single genres of the books, e.g. for a filter
+     */
+    public List<String> genreValues() {
+        return topGenres(all(), Integer.MAX_VALUE).stream().map(CatalogStatistics.Count::name).toList();
+    }
+
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    private static void set(long[] bitmap, int row) {
+        bitmap[row >>> 6] |= 1L << row;
+    }
+
+    private static void assign(long[] bitmap, int row, boolean value) {
+        if (value) {
+            set(bitmap, row);
+        } else {
+            bitmap[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    private static boolean get(long[] bitmap, int row) {
+        return (bitmap[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * A set of rows of a store, one bit per row.
+     */
+    public static final class Selection {
+        private final long[] words;
+        private final int size;
+
+        private Selection(long[] words, int size) {
+            this.words = words;
+            this.size = size;
+            int tail = size & 63;
+            if (tail != 0) {
+                words[words.length - 1] &= (1L << tail) - 1;
+            }
+        }
+
+        public Selection and(Selection other) {
+            long[] result = new long[words.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = words[i] & other.words[i];
+            }
+            return new Selection(result, size);
+        }
+
+        public Selection or(Selection other) {
+            long[] result = new long[words.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = words[i] | other.words[i];
+            }
+            return new Selection(result, size);
+        }
+
+        public Selection not() {
+            long[] result = new long[words.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = ~words[i];
+            }
+            return new Selection(result, size);
+        }
+
+        public int count() {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        public boolean contains(int row) {
+            return get(words, row);
+        }
+
+        /**
+         * Calls the consumer with every selected row, in row order.
+         */
+        public void forEach(IntConsumer consumer) {
+            for (int word = 0; word < words.length; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    consumer.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        public IntStream rows() {
+            IntStream.Builder rows = IntStream.builder();
+            forEach(rows::add);
+            return rows.build();
+        }
+    }
+
+    /**
+     * Distinct values of a column, each identified by its position. Lookups by
+     * value ignore case; the first spelling seen is kept. Values are only
+     * added, never removed.
+     */
+    static final class Dictionary {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+        // Codes by spelling, so that repeated values are encoded without lower-casing them
+        private final Map<String, Integer> spellings = new HashMap<>();
+
+        int size() {
+            return values.size();
+        }
+
+        String value(int code) {
+            return code == NULL_CODE ? null : values.get(code);
+        }
+
+        int code(String value) {
+            return value == null ? NULL_CODE : codes.getOrDefault(value.toLowerCase(), NULL_CODE);
+        }
+
+        int encode(String value) {
+            if (value == null || value.isBlank()) {
+                return NULL_CODE;
+            }
+            Integer known = spellings.get(value);
+            if (known != null) {
+                return known;
+            }
+            int code = codes.computeIfAbsent(value.toLowerCase(), key -> {
+                values.add(value);
+                return values.size() - 1;
+            });
+            spellings.put(value, code);
+            return code;
+        }
+    }
+}
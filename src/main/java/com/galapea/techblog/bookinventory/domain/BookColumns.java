@@ -0,0 +1,59 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.Function;
+import com.galapea.techblog.base.griddb.query.GridDbField;
+import com.galapea.techblog.base.griddb.query.GridDbField.StringField;
+import com.galapea.techblog.base.griddb.query.Sort;
+
+/**
+ * Typed columns of the {@code Books} container, in schema order. Used to define
+ * the container and to build escaped conditions and sorts.
+ */
+public final class BookColumns {
+    public static final StringField ID = GridDbField.ofString("id");
+    public static final StringField TITLE = GridDbField.ofString("title");
+    public static final StringField AUTHORS = GridDbField.ofString("authors");
+    public static final StringField PUBLISHER = GridDbField.ofString("publisher");
+    public static final GridDbField<Double> RATING = GridDbField.ofDouble("rating");
+    public static final StringField GENRES = GridDbField.ofString("genres");
+    public static final StringField SUMMARY = GridDbField.ofString("summary");
+    public static final GridDbField<Long> GOODREADS_BOOK_ID = GridDbField.ofLong("goodreadsBookId");
+    public static final StringField GOODREADS_URL = GridDbField.ofString("goodreadsUrl");
+    public static final GridDbField<Instant> UPDATED_AT = GridDbField.ofTimestamp("updatedAt");
+
+    private static final Map<String, Comparator<Book>> ORDERS = Map.of(ID.name(), order(Book::id), TITLE.name(),
+            order(Book::title), AUTHORS.name(), order(Book::authors), PUBLISHER.name(), order(Book::publisher),
+            RATING.name(), order(Book::rating), GENRES.name(), order(Book::genres), SUMMARY.name(),
+            order(Book::summary), GOODREADS_BOOK_ID.name(), order(Book::goodreadsBookId), GOODREADS_URL.name(),
+            order(Book::goodreadsUrl), UPDATED_AT.name(), order(Book::updatedAt));
+
+    private BookColumns() {
+    }
+
+    /**
+     * Orders books in memory like GridDB orders rows for the given sort, e.g. to
+     * merge pages read from several containers. Nulls come first in ascending
+     * order.
+     *
+     * @throws IllegalArgumentException
+     *             if the sort uses a column that is not a book column
+     */
+    static Comparator<Book> comparator(Sort sort) {
+        Comparator<Book> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort.orders()) {
+            Comparator<Book> column = ORDERS.get(order.column());
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown book column: " + order.column());
+            }
+            comparator = comparator.thenComparing(order.descending() ? column.reversed() : column);
+        }
+        return comparator;
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<Book> order(Function<Book, T> value) {
+        return Comparator.comparing(value, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+}
@@ -1,33 +1,88 @@
 package com.galapea.techblog.bookinventory.domain;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
 import com.galapea.techblog.base.griddb.GridDbCloudClient;
 import com.galapea.techblog.base.griddb.GridDbCloudSQLInsert;
 import com.galapea.techblog.base.griddb.GridDbColumn;
 import com.galapea.techblog.base.griddb.GridDbContainerDefinition;
 import com.galapea.techblog.base.griddb.GridDbException;
+import com.galapea.techblog.base.griddb.GridDbRowMapping;
+import com.galapea.techblog.base.griddb.GridDbRowQuarantine;
+import com.galapea.techblog.base.griddb.GridDbSqlResult;
+import com.galapea.techblog.base.griddb.GridDbSqlUpdateResult;
 import com.galapea.techblog.base.griddb.acquisition.AcquireRowsRequest;
 import com.galapea.techblog.base.griddb.acquisition.AcquireRowsResponse;
+import com.galapea.techblog.base.griddb.acquisition.PartitionedScan;
+import com.galapea.techblog.base.griddb.query.Assignment;
+import com.galapea.techblog.base.griddb.query.Criteria;
+import com.galapea.techblog.base.griddb.query.GridDbField;
+import com.galapea.techblog.base.griddb.query.GridDbLiterals;
+import com.galapea.techblog.base.griddb.query.Sort;
+import com.github.f4b6a3.tsid.Tsid;
 
 @Service
 public class BookContainer {
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final GridDbCloudClient gridDbCloudClient;
     private static final String BOOKS_TBL_NAME = "Books";
+    private static final long SCAN_PAGE_SIZE = 1000L;
+    private static final int SCAN_PARTITIONS_PER_THREAD = 4;
+    private static final String BOOK_ID_PREFIX = "book_";
+    private static final int SQL_ROWS_PER_STATEMENT = 50;
+    private static final String SQL_COLUMNS = String.join(", ", BookColumns.ID.name(), BookColumns.TITLE.name(),
+            BookColumns.AUTHORS.name(), BookColumns.PUBLISHER.name(), BookColumns.RATING.name(),
+            BookColumns.GENRES.name(), BookColumns.SUMMARY.name(), BookColumns.GOODREADS_BOOK_ID.name(),
+            BookColumns.GOODREADS_URL.name(), BookColumns.UPDATED_AT.name());
+    private static final GridDbRowMapping<Book> BOOK_ROWS = GridDbRowMapping.of(Book.class);
+    private final BookShards shards;
 
     @Autowired
-    public ObjectMapper objectMapper;
+    public BookContainer(GridDbCloudClient gridDbCloudClient, BookInventoryProperties properties) {
+        this(gridDbCloudClient, BOOKS_TBL_NAME, properties.getSharding().getShards());
+    }
 
     public BookContainer(GridDbCloudClient gridDbCloudClient) {
+        this(gridDbCloudClient, BOOKS_TBL_NAME);
+    }
+
+    /**
+     * Creates a container accessor for a container other than "Books" with the
+     * same schema, e.g. for benchmarks.
+     */
+    BookContainer(GridDbCloudClient gridDbCloudClient, String containerName) {
+        this(gridDbCloudClient, containerName, 1);
+    }
+
+    /**
+     * Creates an accessor for books spread across {@code shards} containers
+     * named after {@code baseName}, see {@link BookShards}. Writes are routed to
+     * the container of each book, queries are sent to every container at once
+     * and their results merged.
+     */
+    BookContainer(GridDbCloudClient gridDbCloudClient, String baseName, int shards) {
         this.gridDbCloudClient = gridDbCloudClient;
+        this.shards = new BookShards(baseName, shards);
+    }
+
+    @PreDestroy
+    void close() {
+        shards.close();
     }
 
     /**
@@ -35,8 +90,9 @@ public class BookContainer {
      *
      * This method defines the structure of the Books table with columns for book
      * details including id, title, authors, publisher, rating, genres, summary, and
-     * goodreadsBookId. The 'id' column is set as the primary key with TREE
-     * indexing.
+     * goodreadsBookId, derived from the {@link Book} record. The 'id' column is
+     * set as the primary key with TREE indexing; 'authors', 'publisher' and
+     * 'goodreadsBookId' get secondary TREE indexes for lookups.
      *
      * After defining the schema, it creates the container in GridDB using the
      * GridDbCloudClient.
@@ -45,107 +101,434 @@ public class BookContainer {
      *             If there's an error during container creation in GridDB
      */
     public void createTableBooks() {
-        log.info("Creating table Books in GridDB...");
-        List<GridDbColumn> columns = List.of(new GridDbColumn("id", "STRING", Set.of("TREE")),
-                new GridDbColumn("title", "STRING"), new GridDbColumn("authors", "STRING"),
-                new GridDbColumn("publisher", "STRING"), new GridDbColumn("rating", "DOUBLE"),
-                new GridDbColumn("genres", "STRING"), new GridDbColumn("summary", "STRING"),
-                new GridDbColumn("goodreadsBookId", "LONG"), new GridDbColumn("goodreadsUrl", "STRING"));
+        List<GridDbColumn> columns = BOOK_ROWS.columns();
 
-        GridDbContainerDefinition containerDefinition = GridDbContainerDefinition.createContainer(BOOKS_TBL_NAME,
-                columns);
-        this.gridDbCloudClient.createContainer(containerDefinition);
-        log.info("Created table Books with columns: {}", columns);
+        for (String containerName : shards.names()) {
+            log.info("Creating table {} in GridDB...", containerName);
+            GridDbContainerDefinition containerDefinition = GridDbContainerDefinition.createContainer(containerName,
+                    columns);
+            this.gridDbCloudClient.createContainer(containerDefinition);
+            log.info("Created table {} with columns: {}", containerName, columns);
+        }
     }
 
-    private void post(String uri, Object body) {
-        try {
-            this.gridDbCloudClient.post(uri, body);
-        } catch (GridDbException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new GridDbException("Failed to execute POST request", HttpStatusCode.valueOf(500), e.getMessage(), e);
+    /**
+     * Brings a Books container created by an earlier version up to the current
+     * schema by adding the columns it lacks, e.g. {@code updatedAt}, and the
+     * secondary indexes on {@code authors}, {@code publisher} and
+     * {@code goodreadsBookId}. Does nothing if the container is up to date.
+     *
+     * @throws GridDbException
+     *             if the schema cannot be read or a statement is rejected
+     */
+    public void migrateTableBooks() {
+        shards.names().forEach(this::migrateTableBooks);
+    }
+
+    private void migrateTableBooks(String containerName) {
+        GridDbContainerDefinition info = this.gridDbCloudClient.getContainerInfo(containerName);
+        Map<String, GridDbColumn> existing = info.getColumns().stream()
+                .collect(Collectors.toMap(GridDbColumn::getName, column -> column));
+        List<GridDbCloudSQLInsert> statements = new ArrayList<>();
+        if (!existing.containsKey(BookColumns.UPDATED_AT.name())) {
+            statements.add(new GridDbCloudSQLInsert("ALTER TABLE " + containerName + " ADD COLUMN "
+                    + BookColumns.UPDATED_AT.name() + " " + BookColumns.UPDATED_AT.type()));
+        }
+        for (GridDbColumn column : BOOK_ROWS.columns()) {
+            GridDbColumn current = existing.get(column.getName());
+            boolean indexed = current != null && current.getIndex() != null && !current.getIndex().isEmpty();
+            if (column.getIndex() != null && current != null && !indexed
+                    && !column.getName().equals(BookColumns.ID.name())) {
+                statements.add(new GridDbCloudSQLInsert("CREATE INDEX IF NOT EXISTS " + containerName + "_"
+                        + column.getName() + "_idx ON " + containerName + " (" + column.getName() + ")"));
+            }
+        }
+        if (statements.isEmpty()) {
+            return;
+        }
+        for (GridDbSqlUpdateResult result : this.gridDbCloudClient.executeSqlUpdate(statements)) {
+            if (!result.isSuccess()) {
+                throw new GridDbException("Failed to migrate " + containerName, HttpStatusCode.valueOf(500),
+                        result.message());
+            }
+            log.info("Migrated {}: {}", containerName, result.statement());
         }
     }
 
+    /**
+     * Creates one book through SQL, see {@link #insertBooks(List)}.
+     *
+     * @throws GridDbException
+     *             if the book is not created, e.g. because a book with its id
+     *             already exists
+     */
     public void insert(Book book) {
-        String stmt = "INSERT INTO " + BOOKS_TBL_NAME + "(id, title, authors, genres) VALUES ('" + book.id() + "', '"
-                + book.title() + "', '" + book.authors() + "', '" + book.genres() + "')";
-        GridDbCloudSQLInsert insert = new GridDbCloudSQLInsert(stmt);
+        for (GridDbSqlUpdateResult result : insertBooks(List.of(book))) {
+            if (!result.isSuccess()) {
+                throw new GridDbException("Failed to create book " + book.id(), HttpStatusCode.valueOf(500),
+                        result.message());
+            }
+        }
+    }
+
+    /**
+     * Creates books through SQL, sending multi-row
+     * {@code INSERT ... VALUES (...), (...)} statements of up to
+     * {@value #SQL_ROWS_PER_STATEMENT} rows each in a single {@code /sql/update}
+     * request. Every column is written and every value is escaped through
+     * {@link GridDbLiterals}.
+     * <p>
+     * Unlike {@link #saveBooks(List)}, existing books are never overwritten: a
+     * statement containing a book whose id already exists fails.
+     * </p>
+     *
+     * @param books
+     *            the books to create, each with an id
+     * @return one result per statement, failed statements are logged
+     */
+    public List<GridDbSqlUpdateResult> insertBooks(List<Book> books) {
+        Map<String, List<Book>> byShard = shards.group(books);
+        List<GridDbSqlUpdateResult> results = shards.onEach(List.copyOf(byShard.keySet()),
+                containerName -> insertBooks(containerName, byShard.get(containerName))).stream()
+                .flatMap(List::stream).toList();
+        results.stream().filter(result -> !result.isSuccess())
+                .forEach(result -> log.warn("SQL insert failed: {}", result.message()));
+        return results;
+    }
 
-        post("/sql/update", List.of(insert));
+    private List<GridDbSqlUpdateResult> insertBooks(String containerName, List<Book> books) {
+        List<GridDbCloudSQLInsert> statements = new ArrayList<>();
+        for (int i = 0; i < books.size(); i += SQL_ROWS_PER_STATEMENT) {
+            List<Book> chunk = books.subList(i, Math.min(books.size(), i + SQL_ROWS_PER_STATEMENT));
+            statements.add(new GridDbCloudSQLInsert(insertStatement(containerName, chunk)));
+        }
+        return this.gridDbCloudClient.executeSqlUpdate(statements);
+    }
+
+    private String insertStatement(String containerName, List<Book> books) {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(containerName).append(" (")
+                .append(SQL_COLUMNS).append(") VALUES ");
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("(").append(GridDbLiterals.quote(book.id()));
+            sb.append(", ").append(GridDbLiterals.quote(book.title()));
+            sb.append(", ").append(GridDbLiterals.quote(book.authors()));
+            sb.append(", ").append(GridDbLiterals.quote(book.publisher()));
+            sb.append(", ").append(GridDbLiterals.number(book.rating()));
+            sb.append(", ").append(GridDbLiterals.quote(book.genres()));
+            sb.append(", ").append(GridDbLiterals.quote(book.summary()));
+            sb.append(", ").append(GridDbLiterals.number(book.goodreadsBookId()));
+            sb.append(", ").append(GridDbLiterals.quote(book.goodreadsUrl()));
+            sb.append(", ").append(GridDbLiterals.timestamp(book.updatedAt()));
+            sb.append(")");
+        }
+        return sb.toString();
     }
 
     /**
-     * Saves a list of books to the GridDB database. This method converts a list of
-     * Book objects into a JSON-like string representation and uses the GridDB
-     * client to register them in the Books table. Request body example:
+     * Updates only the given columns of one book with a single
+     * {@code UPDATE ... SET ... WHERE id = ...} statement. Other columns are left
+     * untouched, so concurrent updates of different columns (e.g. genre and
+     * summary enrichment) do not overwrite each other. {@code updatedAt} is
+     * always set as well.
+     *
+     * @param bookId
+     *            the id of the book to update
+     * @param updatedAt
+     *            the time of the change
+     * @param assignments
+     *            the columns to change, created with
+     *            {@code BookColumns.GENRES.set(value)}
+     * @return {@code true} if a row was updated, or if the update has been
+     *         journaled for replay because GridDB is unavailable
+     * @throws GridDbException
+     *             if the request fails or the statement is rejected
+     */
+    public boolean updateBook(String bookId, Instant updatedAt, Assignment... assignments) {
+        if (assignments.length == 0) {
+            throw new IllegalArgumentException("At least one column must be updated");
+        }
+        String containerName = shards.nameFor(bookId);
+        String stmt = "UPDATE " + containerName + " SET "
+                + Arrays.stream(assignments).map(Assignment::toString).collect(Collectors.joining(", ")) + ", "
+                + BookColumns.UPDATED_AT.set(updatedAt) + " WHERE " + BookColumns.ID.eq(bookId).toCondition();
+        List<GridDbSqlUpdateResult> results = this.gridDbCloudClient
+                .executeDurableSqlUpdate(containerName, List.of(new GridDbCloudSQLInsert(stmt)));
+        if (results.isEmpty()) {
+            // Journaled while GridDB is unavailable, applied on replay
+            return true;
+        }
+        GridDbSqlUpdateResult result = results.get(0);
+        if (!result.isSuccess()) {
+            String message = result.message();
+            throw new GridDbException("Failed to update book " + bookId, HttpStatusCode.valueOf(500), message);
+        }
+        return result.updatedRows() > 0;
+    }
+
+    /**
+     * Saves a list of books to the GridDB database. Each book is converted into a
+     * positional row in schema order, with its own {@code updatedAt}, and the rows
+     * are registered in the Books table with the
+     * GridDB client. The rows are serialized as JSON, so quotes and line breaks in
+     * titles or summaries are escaped. Request body example:
      * 
      * <pre>
      * [
-     *   ["abf8e412", "The Ultimate Hitchhiker's Guide to the Galaxy", "Douglas Adams", "Del Rey Books", 4.37, "", "", 13],
-     *   ["5f8bdef1", "The Lost Continent: Travels in Small Town America", "Bill Bryson", "William Morrow Paperbacks", 3.83, "", "", 26]
+     *   ["abf8e412", "The Ultimate Hitchhiker's Guide to the Galaxy", "Douglas Adams", "Del Rey Books", 4.37, "", "", 13, "", "2025-05-01T10:00:00.000Z"],
+     *   ["5f8bdef1", "The Lost Continent: Travels in Small Town America", "Bill Bryson", "William Morrow Paperbacks", 3.83, "", "", 26, "", "2025-05-01T10:00:00.000Z"]
      * ]
      * </pre>
      *
+     * Row registration is an upsert: a book whose id already exists replaces the
+     * stored row, including columns such as {@code genres} or {@code summary}.
+     * Use {@link #insertBooks(List)} to create books without overwriting.
+     * <p>
+     * With several shards the rows of each container are registered in parallel.
+     * </p>
+     *
      * @param books
      *            The list of Book objects to save to the database
+     * @throws GridDbRowQuarantine.PartialWriteException
+     *             if GridDB rejected some of the books and saved the others; its
+     *             {@link GridDbRowQuarantine.PartialWriteException#getRejected()}
+     *             are the rejected {@link Book}s
      */
     public void saveBooks(List<Book> books) {
-        // Initialize a StringBuilder to create the JSON-like array representation
-        StringBuilder sb = new StringBuilder();
-        sb.append("["); // Start the outer array
-        for (int i = 0; i < books.size(); i++) {
-            Book book = books.get(i);
-            sb.append("["); // Start the inner array (each book)
-            // Append each book field in order
-            sb.append("\"").append(book.id()).append("\"");
-            sb.append(", ");
-            sb.append("\"").append(book.title()).append("\"");
-            sb.append(", ");
-            sb.append("\"").append(book.authors()).append("\"");
-            sb.append(", ");
-            sb.append("\"").append(book.publisher()).append("\"");
-            sb.append(", ");
-            sb.append(book.rating()); // Numeric value, no quotes
-            sb.append(", ");
-            // Handle potentially null genres field
-            sb.append("\"").append(book.genres() != null ? book.genres() : "").append("\"");
-            sb.append(", ");
-            // Handle potentially null summary field
-            sb.append("\"").append(book.summary() != null ? book.summary() : "").append("\"");
-            sb.append(", ");
-            sb.append(book.goodreadsBookId()); // Numeric value, no quotes
-            sb.append(", ");
-            sb.append("\"").append(book.goodreadsUrl() != null ? book.goodreadsUrl() : "").append("\"");
-            sb.append("]"); // End the inner array
-            // Add a comma between books, except for the last one
-            if (i < books.size() - 1) {
-                sb.append(", ");
-            }
+        Map<String, List<Book>> byShard = shards.group(books);
+        List<GridDbRowQuarantine.PartialWriteException> partialWrites = shards
+                .onEach(List.copyOf(byShard.keySet()), containerName -> {
+                    try {
+                        saveBooks(containerName, byShard.get(containerName));
+                        return null;
+                    } catch (GridDbRowQuarantine.PartialWriteException e) {
+                        return e;
+                    }
+                }).stream().filter(Objects::nonNull).toList();
+        if (!partialWrites.isEmpty()) {
+            List<Object> rejected = partialWrites.stream().<Object> flatMap(e -> e.getRejected().stream()).toList();
+            throw new GridDbRowQuarantine.PartialWriteException(
+                    rejected.size() + " of " + books.size() + " books rejected by GridDB", partialWrites.get(0),
+                    rejected);
         }
-        sb.append("]"); // End the outer array
-        String result = sb.toString();
-        log.info("Books array: {}", result);
-        this.gridDbCloudClient.registerRows(BOOKS_TBL_NAME, result);
     }
 
-    public List<Book> getBooks() {
-        AcquireRowsRequest requestBody = AcquireRowsRequest.builder().limit(50L).build();
-        AcquireRowsResponse response = this.gridDbCloudClient.acquireRows(BOOKS_TBL_NAME, requestBody);
-        if (response == null || response.getRows() == null) {
-            log.error("Failed to acquire rows from GridDB");
-            return List.of();
+    private void saveBooks(String containerName, List<Book> books) {
+        List<List<Object>> rows = new ArrayList<>(books.size());
+        for (Book book : books) {
+            rows.add(BOOK_ROWS.toRow(new Book(book.id(), book.title(), book.authors(), book.publisher(),
+                    book.rating(), book.genres() != null ? book.genres() : "",
+                    book.summary() != null ? book.summary() : "", book.goodreadsBookId(),
+                    book.goodreadsUrl() != null ? book.goodreadsUrl() : "", book.updatedAt())));
         }
-        List<Book> books = convertResponseToBook(response);
+        log.debug("Books rows: {}", rows);
+        try {
+            this.gridDbCloudClient.registerRows(containerName, rows);
+        } catch (GridDbRowQuarantine.PartialWriteException e) {
+            // The id is the first column of a row
+            Set<Object> rejectedIds = e.getRejected().stream().map(row -> ((List<?>) row).get(0))
+                    .collect(Collectors.toSet());
+            throw new GridDbRowQuarantine.PartialWriteException(e.getMessage(), e,
+                    books.stream().filter(book -> rejectedIds.contains(book.id())).toList());
+        }
+    }
+
+    /**
+     * Fetches the 50 newest books, in {@code id desc} order. With several shards
+     * every container is asked for its first 50 books and the sorted pages are
+     * merged, so the result does not depend on which shard answered first.
+     */
+    public List<Book> getBooks() {
+        List<Book> books = findBooks(Criteria.none(), Sort.by(BookColumns.ID.desc()), 50L);
         log.info("Fetched {} books from GridDB", books.size());
         return books;
     }
 
+    /**
+     * Fetches every book in the container, page by page in {@code id desc} order.
+     * Used to build in-memory structures such as the search index. With several
+     * shards the containers are read in parallel and the result is ordered by
+     * shard only.
+     *
+     * @return all books stored in GridDB
+     */
+    public List<Book> getAllBooks() {
+        List<Book> books = shards.onEach(this::getAllBooks).stream().flatMap(List::stream).toList();
+        log.info("Fetched all {} books from GridDB", books.size());
+        return books;
+    }
+
+    private List<Book> getAllBooks(String containerName) {
+        List<Book> books = new ArrayList<>();
+        long offset = 0;
+        while (true) {
+            AcquireRowsRequest requestBody = AcquireRowsRequest.builder().offset(offset).limit(SCAN_PAGE_SIZE).build();
+            AcquireRowsResponse response = this.gridDbCloudClient.acquireRows(containerName, requestBody);
+            if (response == null || response.getRows() == null || response.getRows().isEmpty()) {
+                break;
+            }
+            books.addAll(convertResponseToBook(response));
+            offset += response.getRows().size();
+            if (response.getRows().size() < SCAN_PAGE_SIZE) {
+                break;
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Reads every book in the container with several acquisitions in flight at
+     * once. The id key space of every shard is split into ranges (see
+     * {@link #idRanges(String, int)}) which are read concurrently, each with its
+     * own {@code id} condition and keyset pagination.
+     *
+     * @param parallelism
+     *            the number of ranges read at the same time
+     * @return all books stored in GridDB, in no particular order. The stream must
+     *         be closed if it is not consumed to the end.
+     */
+    public Stream<Book> scan(int parallelism) {
+        int rangesPerShard = Math.max(1, Math.max(1, parallelism) * SCAN_PARTITIONS_PER_THREAD / shards.count());
+        List<PartitionedScan.Pager<Book>> partitions = new ArrayList<>();
+        for (String containerName : shards.names()) {
+            for (Criteria range : idRanges(containerName, rangesPerShard)) {
+                partitions.add(last -> findBooks(containerName,
+                        last == null ? range : range.and(BookColumns.ID.gt(last.id())),
+                        Sort.by(BookColumns.ID.asc()), SCAN_PAGE_SIZE));
+            }
+        }
+        log.info("Scanning books in {} id ranges with parallelism {}", partitions.size(), parallelism);
+        return PartitionedScan.stream("books-scan", partitions, SCAN_PAGE_SIZE, parallelism);
+    }
+
+    /**
+     * Splits the id key space into ranges of about the same size. Ids are
+     * {@code "book_"} followed by a TSID, whose string form sorts like its
+     * numeric value, so the span between the oldest and the newest id is cut at
+     * evenly spaced TSIDs. The first and last ranges are open-ended so ids of any
+     * other form are covered as well.
+     *
+     * @param containerName
+     *            the shard to split
+     * @param count
+     *            the requested number of ranges
+     * @return conditions that together match every row of the shard exactly once
+     */
+    List<Criteria> idRanges(String containerName, int count) {
+        List<Book> oldest = findBooks(containerName, Criteria.none(), Sort.by(BookColumns.ID.asc()), 1);
+        List<Book> newest = findBooks(containerName, Criteria.none(), Sort.by(BookColumns.ID.desc()), 1);
+        if (count < 2 || oldest.isEmpty() || newest.isEmpty()) {
+            return List.of(Criteria.none());
+        }
+        Long low = tsidOf(oldest.get(0).id());
+        Long high = tsidOf(newest.get(0).id());
+        if (low == null || high == null || high - low < count) {
+            return List.of(Criteria.none());
+        }
+        long step = (high - low) / count;
+        List<Criteria> ranges = new ArrayList<>(count);
+        String lower = null;
+        for (int i = 1; i <= count; i++) {
+            String upper = i == count ? null : BOOK_ID_PREFIX + Tsid.from(low + step * i);
+            Criteria range = lower == null ? BookColumns.ID.lt(upper)
+                    : upper == null ? BookColumns.ID.ge(lower)
+                            : BookColumns.ID.ge(lower).and(BookColumns.ID.lt(upper));
+            ranges.add(range);
+            lower = upper;
+        }
+        return ranges;
+    }
+
+    private static Long tsidOf(String bookId) {
+        if (bookId == null || !bookId.startsWith(BOOK_ID_PREFIX)) {
+            return null;
+        }
+        String tsid = bookId.substring(BOOK_ID_PREFIX.length());
+        return Tsid.isValid(tsid) ? Tsid.from(tsid).toLong() : null;
+    }
+
+    /**
+     * Fetches one page of books created after the given id, oldest first. TSID
+     * ids are time-ordered, so calling this with the last id of the previous page
+     * walks through new books without offsets and without re-reading known rows.
+     *
+     * @param lastSeenId
+     *            the newest id already known, or {@code null} to start from the
+     *            oldest book
+     * @param limit
+     *            the page size
+     * @return the next books in {@code id asc} order
+     */
+    public List<Book> getBooksAfter(String lastSeenId, long limit) {
+        Criteria criteria = lastSeenId == null ? Criteria.none() : BookColumns.ID.gt(lastSeenId);
+        return findBooks(criteria, Sort.by(BookColumns.ID.asc()), limit);
+    }
+
+    /**
+     * Fetches every book created after the given id, see
+     * {@link #getBooksAfter(String, long)}.
+     */
+    public List<Book> getAllBooksAfter(String lastSeenId) {
+        List<Book> books = new ArrayList<>();
+        String cursor = lastSeenId;
+        while (true) {
+            List<Book> page = getBooksAfter(cursor, SCAN_PAGE_SIZE);
+            books.addAll(page);
+            if (page.size() < SCAN_PAGE_SIZE) {
+                return books;
+            }
+            cursor = page.get(page.size() - 1).id();
+        }
+    }
+
+    /**
+     * Fetches one page of books written after the given position in
+     * {@code (updatedAt, id)} order. Rows with an equal timestamp are told apart
+     * by id, so pages never skip or repeat rows.
+     *
+     * @param updatedAt
+     *            the {@code updatedAt} of the last row already read
+     * @param lastSeenId
+     *            the id of the last row already read, or {@code ""} to include
+     *            every row written at {@code updatedAt}
+     * @param limit
+     *            the page size
+     * @return the next changed books, oldest change first
+     */
+    public List<Book> getBooksChangedAfter(Instant updatedAt, String lastSeenId, long limit) {
+        Criteria criteria = BookColumns.UPDATED_AT.gt(updatedAt)
+                .or(BookColumns.UPDATED_AT.eq(updatedAt).and(BookColumns.ID.gt(lastSeenId)));
+        return findBooks(criteria, Sort.by(BookColumns.UPDATED_AT.asc()).then(BookColumns.ID.asc()), limit);
+    }
+
+    /**
+     * Fetches every book written at or after the given time, see
+     * {@link #getBooksChangedAfter(Instant, String, long)}. Rows without
+     * {@code updatedAt} are not returned.
+     */
+    public List<Book> getAllBooksChangedSince(Instant since) {
+        List<Book> books = new ArrayList<>();
+        Instant updatedAt = since;
+        String lastSeenId = "";
+        while (true) {
+            List<Book> page = getBooksChangedAfter(updatedAt, lastSeenId, SCAN_PAGE_SIZE);
+            books.addAll(page);
+            if (page.size() < SCAN_PAGE_SIZE) {
+                return books;
+            }
+            Book last = page.get(page.size() - 1);
+            updatedAt = last.updatedAt();
+            lastSeenId = last.id();
+        }
+    }
+
     public Book getBook(String bookId) {
-        AcquireRowsRequest requestBody = AcquireRowsRequest.builder().limit(1L).condition("id == \'" + bookId + "\'")
+        AcquireRowsRequest requestBody = AcquireRowsRequest.builder().limit(1L).condition(BookColumns.ID.eq(bookId))
                 .build();
-        AcquireRowsResponse response = this.gridDbCloudClient.acquireRows(BOOKS_TBL_NAME, requestBody);
+        AcquireRowsResponse response = this.gridDbCloudClient.acquireRows(shards.nameFor(bookId), requestBody);
         if (response == null || response.getRows() == null) {
             log.error("Failed to acquire rows from GridDB");
             return null;
@@ -155,17 +538,175 @@ public class BookContainer {
         return books.stream().filter(b -> b.id().equals(bookId)).findFirst().orElse(null);
     }
 
+    /**
+     * Finds a book by its Goodreads id through the {@code goodreadsBookId} index.
+     *
+     * @return the book, or {@code null} if there is none. If several books share
+     *         the id, the newest is returned.
+     */
+    public Book findBookByGoodreadsId(long goodreadsBookId) {
+        List<Book> books = findBooks(BookColumns.GOODREADS_BOOK_ID.eq(goodreadsBookId),
+                Sort.by(BookColumns.ID.desc()), 1);
+        return books.isEmpty() ? null : books.get(0);
+    }
+
+    /**
+     * Lists the books whose {@code authors} value equals the given one, newest
+     * first, through the {@code authors} index. Unlike the author filter of
+     * {@link BookFilter}, which matches parts of the value and reads every row,
+     * this matches the whole value, e.g. {@code "Douglas Adams"}.
+     */
+    public List<Book> findBooksByAuthors(String authors, long limit) {
+        return findBooks(BookColumns.AUTHORS.eq(authors), Sort.by(BookColumns.ID.desc()), limit);
+    }
+
+    /**
+     * Lists the books of the given publisher, newest first, through the
+     * {@code publisher} index.
+     */
+    public List<Book> findBooksByPublisher(String publisher, long limit) {
+        return findBooks(BookColumns.PUBLISHER.eq(publisher), Sort.by(BookColumns.ID.desc()), limit);
+    }
+
+    /**
+     * Finds books matching the given criteria. Filtering and sorting are done by
+     * GridDB, only the matching page is transferred. With several shards every
+     * container is queried at once for a page of {@code limit} books and the
+     * sorted pages are merged here.
+     *
+     * @param criteria
+     *            the filter, built from {@link BookColumns}
+     * @param sort
+     *            the sort order, built from {@link BookColumns}
+     * @param limit
+     *            the maximum number of books to return
+     * @return the matching books
+     */
+    public List<Book> findBooks(Criteria criteria, Sort sort, long limit) {
+        if (shards.count() == 1) {
+            return findBooks(shards.names().get(0), criteria, sort, limit);
+        }
+        List<List<Book>> pages = shards.onEach(containerName -> findBooks(containerName, criteria, sort, limit));
+        return BookShards.merge(pages, BookColumns.comparator(sort), limit);
+    }
+
+    private List<Book> findBooks(String containerName, Criteria criteria, Sort sort, long limit) {
+        AcquireRowsRequest requestBody = AcquireRowsRequest.builder().limit(limit).condition(criteria).sort(sort)
+                .build();
+        AcquireRowsResponse response = this.gridDbCloudClient.acquireRows(containerName, requestBody);
+        if (response == null || response.getRows() == null) {
+            log.error("Failed to acquire rows from GridDB");
+            return List.of();
+        }
+        List<Book> books = convertResponseToBook(response);
+        log.info("Found {} books in GridDB for condition: {}", books.size(), criteria);
+        return books;
+    }
+
+    /**
+     * Computes catalog statistics in GridDB. All queries are sent in one
+     * {@code /sql} request and only grouped rows are transferred: one per rating
+     * bucket, top publisher and top author, and one per distinct {@code genres}
+     * value. The genre lists are split into single genres here. Empty summaries,
+     * genre lists, publishers and authors count as missing, as in
+     * {@link BookColumnarStore}. With several shards the queries read the
+     * {@code UNION ALL} of all containers, so the aggregation stays in GridDB and
+     * the result is exact.
+     *
+     * @param top
+     *            the number of publishers, authors and genres to return
+     * @return the statistics
+     * @throws GridDbException
+     *             if a query fails
+     */
+    public CatalogStatistics getCatalogStatistics(int top) {
+        String source = shards.source();
+        String bucket = "CAST(" + BookColumns.RATING.name() + " AS INTEGER)";
+        List<GridDbSqlResult> results = this.gridDbCloudClient.executeSqlSelect(List.of(
+                "SELECT COUNT(*) AS books, COUNT(CASE WHEN " + present(BookColumns.SUMMARY)
+                        + " THEN 1 END) AS withSummary, AVG(" + BookColumns.RATING.name() + ") AS avgRating FROM "
+                        + source,
+                "SELECT " + bucket + " AS bucket, COUNT(*) AS books FROM " + source + " WHERE "
+                        + BookColumns.RATING.name() + " IS NOT NULL GROUP BY " + bucket + " ORDER BY " + bucket,
+                topGroupsQuery(source, BookColumns.PUBLISHER, top),
+                topGroupsQuery(source, BookColumns.AUTHORS, top),
+                "SELECT " + BookColumns.GENRES.name() + " AS name, COUNT(*) AS books FROM " + source
+                        + " WHERE " + present(BookColumns.GENRES) + " GROUP BY "
+                        + BookColumns.GENRES.name()));
+        if (results.size() != 5) {
+            throw new GridDbException("Expected 5 results, got " + results.size(), HttpStatusCode.valueOf(500),
+                    null);
+        }
+        GridDbSqlResult.Row totals = results.get(0).first();
+        long totalBooks = totals == null ? 0 : totals.getLong("books");
+        long withSummary = totals == null ? 0 : totals.getLong("withSummary");
+        Double averageRating = totals == null ? null : totals.getDouble("avgRating");
+        return new CatalogStatistics(totalBooks, withSummary, averageRating, ratingHistogram(results.get(1)),
+                results.get(2).map(BookContainer::count), results.get(3).map(BookContainer::count),
+                splitGenres(results.get(4).map(BookContainer::count), top));
+    }
+
+    private static String topGroupsQuery(String source, GridDbField<?> column, int top) {
+        return "SELECT " + column.name() + " AS name, COUNT(*) AS books, AVG(" + BookColumns.RATING.name()
+                + ") AS avgRating FROM " + source + " WHERE " + present(column) + " GROUP BY " + column.name()
+                + " ORDER BY COUNT(*) DESC LIMIT " + top;
+    }
+
+    // saveBooks writes "" for a missing summary or genre list; like BookColumnarStore, blank counts as missing
+    private static String present(GridDbField<?> column) {
+        return column.name() + " IS NOT NULL AND " + column.name() + " <> ''";
+    }
+
+    private static CatalogStatistics.Count count(GridDbSqlResult.Row row) {
+        return new CatalogStatistics.Count(row.getString("name"), row.getLong("books"),
+                row.hasColumn("avgRating") ? row.getDouble("avgRating") : null);
+    }
+
+    // Whole-star buckets 0-1 ... 4-5, a rating of exactly 5 counts as 4-5
+    private static List<CatalogStatistics.Count> ratingHistogram(GridDbSqlResult result) {
+        long[] books = new long[5];
+        for (GridDbSqlResult.Row row : result.map(row -> row)) {
+            int star = (int) Math.max(0, Math.min(4, row.getLong("bucket")));
+            books[star] += row.getLong("books");
+        }
+        List<CatalogStatistics.Count> histogram = new ArrayList<>();
+        for (int star = 0; star < books.length; star++) {
+            histogram.add(new CatalogStatistics.Count(star + "-" + (star + 1), books[star], null));
+        }
+        return histogram;
+    }
+
+    // "Fantasy, Fiction" counts for Fantasy and for Fiction; spellings differing in case are merged
+    private static List<CatalogStatistics.Count> splitGenres(List<CatalogStatistics.Count> genreLists, int top) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, Long> books = new HashMap<>();
+        for (CatalogStatistics.Count genreList : genreLists) {
+            for (String genre : genreList.name().split(",")) {
+                String name = genre.trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                String key = name.toLowerCase();
+                names.putIfAbsent(key, name);
+                books.merge(key, genreList.books(), Long::sum);
+            }
+        }
+        return books.entrySet().stream()
+                .sorted(Map.Entry.<String, Long> comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(top)
+                .map(entry -> new CatalogStatistics.Count(names.get(entry.getKey()), entry.getValue(), null))
+                .toList();
+    }
+
     private List<Book> convertResponseToBook(AcquireRowsResponse response) {
         List<Book> books = response.getRows().stream().map(row -> {
             try {
-                var book = new Book(row.get(0).toString(), row.get(1).toString(), row.get(2).toString(),
-                        row.get(3).toString(),
-                        Optional.ofNullable(row.get(4)).map(Object::toString).map(Double::valueOf).orElse(null),
-                        Optional.ofNullable(row.get(5)).map(Object::toString).orElse(null),
-                        Optional.ofNullable(row.get(6)).map(Object::toString).orElse(null),
-                        Optional.ofNullable(row.get(7)).map(Object::toString).map(Long::valueOf).orElse(null),
-                        Optional.ofNullable(row.get(8)).map(Object::toString).orElse(null));
-                return book;
+                Book book = BOOK_ROWS.fromRow(row);
+                return new Book(book.id(), book.title(), BookStrings.canonicalize(book.authors()),
+                        BookStrings.canonicalize(book.publisher()), book.rating(),
+                        BookStrings.canonicalize(book.genres()), book.summary(), book.goodreadsBookId(),
+                        book.goodreadsUrl(), book.updatedAt());
             } catch (Exception e) {
                 log.error("Error parsing book row: {}. Error: {}", row.toString(), e.getMessage());
                 return null;
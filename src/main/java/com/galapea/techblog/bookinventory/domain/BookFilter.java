@@ -0,0 +1,42 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.base.griddb.query.Criteria;
+
+/**
+ * Filter on the Books container that is evaluated by GridDB. Every field is
+ * optional; {@code null} means no restriction.
+ *
+ * @param minRating
+ *            inclusive lower bound of the rating
+ * @param maxRating
+ *            inclusive upper bound of the rating
+ * @param publisher
+ *            exact publisher name
+ * @param author
+ *            text contained in the authors column
+ */
+public record BookFilter(Double minRating, Double maxRating, String publisher, String author) {
+
+    public static BookFilter byRating(Double minRating, Double maxRating) {
+        return new BookFilter(minRating, maxRating, null, null);
+    }
+
+    public static BookFilter byPublisher(String publisher) {
+        return new BookFilter(null, null, publisher, null);
+    }
+
+    public static BookFilter byAuthor(String author) {
+        return new BookFilter(null, null, null, author);
+    }
+
+    public Criteria toCriteria() {
+        Criteria criteria = BookColumns.RATING.between(minRating, maxRating);
+        if (publisher != null && !publisher.isBlank()) {
+            criteria = criteria.and(BookColumns.PUBLISHER.eq(publisher));
+        }
+        if (author != null && !author.isBlank()) {
+            criteria = criteria.and(BookColumns.AUTHORS.contains(author));
+        }
+        return criteria;
+    }
+}
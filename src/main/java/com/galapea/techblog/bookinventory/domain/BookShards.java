@@ -0,0 +1,178 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import com.galapea.techblog.base.griddb.GridDbWorkload;
+import com.galapea.techblog.base.griddb.query.GridDbLiterals;
+
+/**
+ * The containers books are spread across and the routing between them.
+ * <p>
+ * With one shard the only container is the base name itself, e.g.
+ * {@code Books}, and everything runs on the calling thread. With {@code n > 1}
+ * shards the containers are {@code Books_00} ... {@code Books_<n-1>} and a book
+ * lives in the shard selected by a hash of its id. Work that touches several
+ * shards runs on one thread per shard.
+ * </p>
+ */
+final class BookShards implements AutoCloseable {
+    private final List<String> names;
+    private final ExecutorService executor;
+
+    BookShards(String baseName, int count) {
+        if (count < 1 || count > 100) {
+            throw new IllegalArgumentException("Shard count must be between 1 and 100: " + count);
+        }
+        List<String> shardNames = new ArrayList<>(count);
+        if (count == 1) {
+            shardNames.add(GridDbLiterals.identifier(baseName));
+        } else {
+            for (int i = 0; i < count; i++) {
+                shardNames.add(GridDbLiterals.identifier(String.format("%s_%02d", baseName, i)));
+            }
+        }
+        this.names = List.copyOf(shardNames);
+        this.executor = count == 1 ? null
+                : Executors.newFixedThreadPool(count,
+                        Thread.ofPlatform().name(baseName.toLowerCase() + "-shard-", 0).daemon().factory());
+    }
+
+    int count() {
+        return names.size();
+    }
+
+    /**
+     * @return the container names, in shard order
+     */
+    List<String> names() {
+        return names;
+    }
+
+    /**
+     * @return the container holding the book with the given id
+     */
+    String nameFor(String bookId) {
+        if (names.size() == 1) {
+            return names.get(0);
+        }
+        // String.hashCode is specified, so the routing is stable across JVMs; mix it to spread similar ids
+        int hash = bookId.hashCode() * 0x9E3779B9;
+        return names.get(Math.floorMod(hash ^ (hash >>> 16), names.size()));
+    }
+
+    /**
+     * Groups books by the container holding them, keeping their order within a
+     * container.
+     */
+    Map<String, List<Book>> group(List<Book> books) {
+        Map<String, List<Book>> groups = new LinkedHashMap<>();
+        for (Book book : books) {
+            groups.computeIfAbsent(nameFor(book.id()), name -> new ArrayList<>()).add(book);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs the task once per shard, concurrently.
+     *
+     * @return the results in shard order
+     */
+    <T> List<T> onEach(Function<String, T> task) {
+        return onEach(names, task);
+    }
+
+    /**
+     * Runs the task once per given container, concurrently if there are several.
+     *
+     * @return the results in the order of {@code containers}
+     * @throws RuntimeException
+     *             the first failure of a task, after all tasks have ended
+     */
+    <T> List<T> onEach(List<String> containers, Function<String, T> task) {
+        if (executor == null || containers.size() == 1) {
+            return containers.stream().map(task).toList();
+        }
+        GridDbWorkload workload = GridDbWorkload.current();
+        List<Callable<T>> calls = containers.stream().<Callable<T>> map(name -> workload.wrap(() -> task.apply(name)))
+                .toList();
+        List<T> results = new ArrayList<>(containers.size());
+        try {
+            for (Future<T> future : executor.invokeAll(calls)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * @return a {@code FROM} source covering every shard, either the container
+     *         itself or a {@code UNION ALL} of all containers
+     */
+    String source() {
+        if (names.size() == 1) {
+            return names.get(0);
+        }
+        return "(" + String.join(" UNION ALL ", names.stream().map(name -> "SELECT * FROM " + name).toList())
+                + ") AS shards";
+    }
+
+    /**
+     * Merges lists that are each sorted by {@code order} into one sorted list.
+     *
+     * @param sorted
+     *            the sorted lists, e.g. one page per shard
+     * @param order
+     *            the order of every list
+     * @param limit
+     *            the maximum number of elements to return
+     * @return the first {@code limit} elements of the merged lists
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, long limit) {
+        record Cursor<T>(List<T> list, int position) {
+            T head() {
+                return list.get(position);
+            }
+        }
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> order.compare(a.head(), b.head()));
+        for (List<T> list : sorted) {
+            if (!list.isEmpty()) {
+                heads.add(new Cursor<>(list, 0));
+            }
+        }
+        List<T> merged = new ArrayList<>();
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor<T> cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.position() + 1 < cursor.list().size()) {
+                heads.add(new Cursor<>(cursor.list(), cursor.position() + 1));
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.base.domain.StringPool;
+
+/**
+ * Shared instances of the book fields that repeat across many rows: authors,
+ * publisher and genres. Everything that decodes books (GridDB responses, CSV
+ * imports) passes these fields through {@link #canonicalize(String)}, so the
+ * catalog holds each distinct value once instead of once per book.
+ * <p>
+ * The pool only holds values weakly: values that no cached book refers to
+ * anymore, e.g. those of a discarded CSV upload or of books that were dropped
+ * by a full reload, are released by the garbage collector and make room for
+ * new ones.
+ * </p>
+ */
+public final class BookStrings {
+    private static final int MAX_ENTRIES = 200_000;
+    // Longer values are unlikely to repeat
+    private static final int MAX_LENGTH = 256;
+    private static final StringPool POOL = new StringPool(MAX_ENTRIES, MAX_LENGTH);
+    private static volatile boolean enabled = true;
+
+    private BookStrings() {
+    }
+
+    /**
+     * @return the shared instance equal to {@code value}, see
+     *         {@link StringPool#canonicalize(String)}
+     */
+    public static String canonicalize(String value) {
+        return enabled ? POOL.canonicalize(value) : value;
+    }
+
+    /**
+     * Turns sharing on or off, e.g. to compare the heap held by the same books
+     * with and without it. While off, {@link #canonicalize(String)} returns
+     * values as they are. On by default.
+     */
+    public static void setEnabled(boolean enabled) {
+        BookStrings.enabled = enabled;
+    }
+
+    /**
+     * @return the number of shared values that are still referenced
+     */
+    public static int size() {
+        return POOL.size();
+    }
+}
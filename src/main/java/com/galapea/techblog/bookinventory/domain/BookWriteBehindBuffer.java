@@ -0,0 +1,234 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import com.galapea.techblog.base.griddb.GridDbRowQuarantine;
+import com.galapea.techblog.base.griddb.GridDbWorkload;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional write-behind buffer in front of {@link BookContainer#saveBooks(List)}
+ * (enabled with {@code bookinventory.write-behind.enabled=true}).
+ * <p>
+ * Writes are buffered per book id, keeping only the last version of each book,
+ * and flushed as batched row registrations when
+ * {@code bookinventory.write-behind.max-batch-size} books are pending or every
+ * {@code bookinventory.write-behind.flush-interval}. Flushes run on a single
+ * thread, so writes of the same book reach GridDB in submission order. Partial
+ * updates of a book that bypass the buffer, such as
+ * {@link BookContainer#updateBook}, must call {@link #awaitWritten(String)}
+ * first, so that an older buffered version of the book does not overwrite
+ * them. Pending writes are flushed when the application shuts down.
+ * </p>
+ */
+@Component
+public class BookWriteBehindBuffer {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final BookContainer bookContainer;
+    private final BookInventoryProperties.WriteBehind settings;
+    private final ScheduledExecutorService scheduler;
+    private final Object lock = new Object();
+
+    private LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<>();
+    // Ids of the batch being written by the current flush
+    private Set<String> inFlight = Set.of();
+    private boolean closed;
+
+    public BookWriteBehindBuffer(BookContainer bookContainer, BookInventoryProperties properties) {
+        this.bookContainer = bookContainer;
+        this.settings = properties.getWriteBehind();
+        if (settings.isEnabled()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(GridDbWorkload.BULK_IMPORT.wrap(runnable), "book-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = settings.getFlushInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    /**
+     * Buffers the given books, which must all have an id.
+     *
+     * @return a future that completes once every given book (or a later version of
+     *         it) has been written to GridDB, or completes exceptionally if the
+     *         batch containing one of them failed or GridDB rejected one of them,
+     *         see {@link BookContainer#saveBooks(List)}
+     * @throws IllegalStateException
+     *             if write-behind is not enabled or the buffer has been closed
+     */
+    public CompletableFuture<Void> submit(List<Book> books) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Write-behind is not enabled");
+        }
+        Waiter waiter = new Waiter();
+        boolean flushNow;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Write-behind buffer is closed");
+            }
+            for (Book book : books) {
+                PendingWrite write = pending.get(book.id());
+                if (write == null) {
+                    write = new PendingWrite();
+                    pending.put(book.id(), write);
+                }
+                write.book = book;
+                if (!write.waiters.contains(waiter)) {
+                    write.waiters.add(waiter);
+                    waiter.remaining.incrementAndGet();
+                }
+            }
+            flushNow = pending.size() >= settings.getMaxBatchSize();
+        }
+        if (waiter.remaining.get() == 0) {
+            waiter.future.complete(null);
+        }
+        if (flushNow) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // Closed in the meantime; the final flush of close() writes the books
+            }
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Waits until the pending and in-flight writes of the given book have been
+     * written to GridDB, or have failed. Returns at once if there are none.
+     */
+    public void awaitWritten(String bookId) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (lock) {
+            if (!pending.containsKey(bookId) && !inFlight.contains(bookId)) {
+                return;
+            }
+        }
+        try {
+            // Flushes run one at a time, so this one starts after the flush in flight
+            scheduler.submit(this::flush).get();
+        } catch (RejectedExecutionException e) {
+            awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write of book " + bookId, e);
+        } catch (ExecutionException e) {
+            log.warn("Write-behind flush failed: {}", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * @return the number of books waiting to be written
+     */
+    public int pendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private void flush() {
+        List<PendingWrite> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.values());
+            inFlight = new HashSet<>(pending.keySet());
+            pending = new LinkedHashMap<>();
+        }
+        try {
+            int batchSize = Math.max(1, settings.getMaxBatchSize());
+            for (int i = 0; i < batch.size(); i += batchSize) {
+                List<PendingWrite> chunk = batch.subList(i, Math.min(batch.size(), i + batchSize));
+                try {
+                    bookContainer.saveBooks(chunk.stream().map(write -> write.book).toList());
+                    chunk.forEach(write -> write.waiters.forEach(Waiter::written));
+                } catch (GridDbRowQuarantine.PartialWriteException e) {
+                    log.warn("Write-behind flush of {} books partly failed: {}", chunk.size(), e.getMessage());
+                    for (PendingWrite write : chunk) {
+                        if (e.getRejected().contains(write.book)) {
+                            write.waiters.forEach(waiter -> waiter.future.completeExceptionally(e));
+                        } else {
+                            write.waiters.forEach(Waiter::written);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("Write-behind flush of {} books failed: {}", chunk.size(), e.getMessage());
+                    chunk.forEach(write -> write.waiters.forEach(waiter -> waiter.future.completeExceptionally(e)));
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                inFlight = Set.of();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+        synchronized (lock) {
+            closed = true;
+        }
+        log.info("Flushing {} pending book writes before shutdown", pendingCount());
+        scheduler.execute(this::flush);
+        scheduler.shutdown();
+        awaitTermination();
+    }
+
+    private void awaitTermination() {
+        try {
+            if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Write-behind flush did not finish within 30 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PendingWrite {
+        private Book book;
+        private final List<Waiter> waiters = new ArrayList<>(1);
+    }
+
+    /**
+     * The future of one {@link #submit(List)} call, completed when all of its
+     * books have been written.
+     */
+    private static final class Waiter {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicInteger remaining = new AtomicInteger();
+
+        void written() {
+            if (remaining.decrementAndGet() == 0) {
+                future.complete(null);
+            }
+        }
+    }
+}
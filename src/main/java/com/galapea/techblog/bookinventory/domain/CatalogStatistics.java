@@ -0,0 +1,57 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.util.List;
+
+/**
+ * Aggregates over the whole Books container, computed by GridDB.
+ *
+ * @param totalBooks
+ *            number of books
+ * @param booksWithSummary
+ *            number of books that have a summary
+ * @param averageRating
+ *            average rating of the rated books, {@code null} if there are none
+ * @param ratingHistogram
+ *            books per whole-star rating bucket, e.g. {@code "3-4"}
+ * @param topPublishers
+ *            publishers with the most books
+ * @param topAuthors
+ *            authors with the most books
+ * @param topGenres
+ *            genres with the most books, a book counting once for each of its
+ *            genres
+ */
+public record CatalogStatistics(long totalBooks, long booksWithSummary, Double averageRating,
+        List<Count> ratingHistogram, List<Count> topPublishers, List<Count> topAuthors, List<Count> topGenres) {
+
+    public static final CatalogStatistics EMPTY = new CatalogStatistics(0, 0, null, List.of(), List.of(), List.of(),
+            List.of());
+
+    public CatalogStatistics {
+        ratingHistogram = List.copyOf(ratingHistogram);
+        topPublishers = List.copyOf(topPublishers);
+        topAuthors = List.copyOf(topAuthors);
+        topGenres = List.copyOf(topGenres);
+    }
+
+    /**
+     * @return the share of books without a summary, between 0 and 1
+     */
+    public double missingSummaryShare() {
+        return totalBooks == 0 ? 0 : (double) (totalBooks - booksWithSummary) / totalBooks;
+    }
+
+    /**
+     * Number of books in a group.
+     *
+     * @param name
+     *            the group, e.g. a publisher
+     * @param books
+     *            number of books in the group
+     * @param averageRating
+     *            average rating of the group, {@code null} if not computed or
+     *            no book is rated
+     */
+    public record Count(String name, long books, Double averageRating) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Latency percentiles of the AI calls started in one time window.
+ *
+ * @param start
+ *            the start of the window, inclusive
+ * @param calls
+ *            the number of calls in the window
+ * @param p50
+ *            the median latency in milliseconds
+ * @param p90
+ *            the 90th percentile latency in milliseconds
+ * @param p99
+ *            the 99th percentile latency in milliseconds
+ * @param max
+ *            the slowest call in milliseconds
+ */
+public record LatencyWindow(Instant start, long calls, long p50, long p90, long p99, long max) {
+
+    /**
+     * Computes the percentiles of the given latencies with the nearest-rank
+     * method, so every value is a latency that was actually measured.
+     *
+     * @param latencies
+     *            the latencies in milliseconds, at least one; sorted in place
+     */
+    public static LatencyWindow of(Instant start, long[] latencies) {
+        if (latencies.length == 0) {
+            throw new IllegalArgumentException("A window needs at least one call");
+        }
+        Arrays.sort(latencies);
+        return new LatencyWindow(start, latencies.length, percentile(latencies, 50), percentile(latencies, 90),
+                percentile(latencies, 99), latencies[latencies.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
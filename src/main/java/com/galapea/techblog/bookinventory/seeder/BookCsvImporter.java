@@ -0,0 +1,294 @@
+package com.galapea.techblog.bookinventory.seeder;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import com.galapea.techblog.base.griddb.GridDbRowQuarantine;
+import com.galapea.techblog.base.griddb.GridDbWorkload;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.service.BookImportDeduplicator;
+import com.galapea.techblog.bookinventory.service.BookService;
+
+/**
+ * Imports Goodreads CSV files as background jobs.
+ * <p>
+ * The CSV is parsed while it is still being received and the books are written
+ * in batches of {@code bookinventory.csv-import.batch-size}. At most
+ * {@code bookinventory.csv-import.max-in-flight-batches} batches wait for
+ * GridDB at a time; when they are all taken parsing pauses, which in turn slows
+ * down the upload. Memory use is therefore bounded regardless of the file size.
+ * </p>
+ * <p>
+ * Each batch is screened by {@link BookImportDeduplicator} before it is written,
+ * so books that are already in the inventory are skipped rather than created
+ * again.
+ * </p>
+ */
+@Component
+public class BookCsvImporter {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final BookService bookService;
+    private final BookImportDeduplicator deduplicator;
+    private final BookInventoryProperties.CsvImport settings;
+    private final TaskExecutor taskExecutor;
+    private final Clock clock;
+
+    public BookCsvImporter(BookService bookService, BookImportDeduplicator deduplicator,
+            BookInventoryProperties properties, @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+            Clock clock) {
+        this.bookService = bookService;
+        this.deduplicator = deduplicator;
+        this.settings = properties.getCsvImport();
+        this.taskExecutor = taskExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts importing the given stream on the application task executor.
+     *
+     * @param fileName
+     *            the name of the uploaded file, for logging
+     * @param input
+     *            the CSV content, closed when the job ends
+     * @return the running job
+     */
+    public ImportJob start(String fileName, InputStream input) {
+        ImportJob job = new ImportJob(fileName, input, clock.instant());
+        taskExecutor.execute(GridDbWorkload.BULK_IMPORT.wrap(() -> run(job)));
+        return job;
+    }
+
+    private void run(ImportJob job) {
+        log.info("Importing {}", job.fileName);
+        int batchSize = Math.max(1, settings.getBatchSize());
+        Semaphore inFlight = new Semaphore(Math.max(1, settings.getMaxInFlightBatches()));
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        List<Book> batch = new ArrayList<>(batchSize);
+        try {
+            new GoodReadBookCSVParser().parseBooks(job.input, book -> {
+                if (job.cancelled) {
+                    return false;
+                }
+                job.rowsParsed.incrementAndGet();
+                batch.add(book);
+                if (batch.size() == batchSize) {
+                    writes.add(write(job, List.copyOf(batch), inFlight));
+                    batch.clear();
+                }
+                return !job.cancelled;
+            });
+            if (!batch.isEmpty() && !job.cancelled) {
+                writes.add(write(job, List.copyOf(batch), inFlight));
+            }
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+            job.finish(job.cancelled ? State.CANCELLED : State.COMPLETED, null, clock.instant());
+        } catch (Exception e) {
+            if (job.cancelled) {
+                // Closing the stream on cancel makes the parser fail
+                job.finish(State.CANCELLED, null, clock.instant());
+            } else {
+                log.error("Import of {} failed", job.fileName, e);
+                job.finish(State.FAILED, e.getMessage(), clock.instant());
+            }
+        }
+        log.info("Import of {} finished: {}", job.fileName, job.progress());
+    }
+
+    private CompletableFuture<Void> write(ImportJob job, List<Book> batch, Semaphore inFlight) {
+        List<Book> books;
+        try {
+            books = deduplicator.screen(batch);
+        } catch (RuntimeException e) {
+            job.rowsFailed.addAndGet(batch.size());
+            log.warn("Failed to check batch of {} books for duplicates: {}", batch.size(), e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+        job.rowsSkipped.addAndGet(batch.size() - books.size());
+        if (books.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deduplicator.release(books);
+            throw new IllegalStateException("Interrupted while waiting for a write slot", e);
+        }
+        CompletableFuture<Void> written;
+        try {
+            written = bookService.saveBooksAsync(books);
+        } catch (RuntimeException e) {
+            written = CompletableFuture.failedFuture(e);
+        }
+        return written.whenComplete((result, e) -> {
+            inFlight.release();
+            deduplicator.release(books);
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (e == null) {
+                job.rowsWritten.addAndGet(books.size());
+            } else if (cause instanceof GridDbRowQuarantine.PartialWriteException partialWrite) {
+                int rejected = partialWrite.getRejected().size();
+                job.rowsWritten.addAndGet(books.size() - rejected);
+                job.rowsFailed.addAndGet(rejected);
+                log.warn("Imported {} of {} books of a batch: {}", books.size() - rejected, books.size(),
+                        cause.getMessage());
+            } else {
+                job.rowsFailed.addAndGet(books.size());
+                log.warn("Failed to import batch of {} books: {}", books.size(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * State of an import job.
+     */
+    public enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    /**
+     * Point-in-time progress of an import job.
+     *
+     * @param state
+     *            the job state
+     * @param rowsParsed
+     *            books read from the file
+     * @param rowsWritten
+     *            books written to GridDB
+     * @param rowsFailed
+     *            books whose batch could not be written, or that GridDB
+     *            rejected
+     * @param rowsSkipped
+     *            books not written because they were already in the inventory
+     * @param bytesRead
+     *            bytes consumed from the upload
+     * @param elapsed
+     *            time since the job started, up to its end
+     * @param error
+     *            the failure message of a failed job
+     */
+    public record Progress(State state, long rowsParsed, long rowsWritten, long rowsFailed, long rowsSkipped,
+            long bytesRead, Duration elapsed, String error) {
+        /**
+         * @return books written per second since the job started
+         */
+        public double rowsPerSecond() {
+            long millis = elapsed.toMillis();
+            return millis == 0 ? 0 : rowsWritten * 1000.0 / millis;
+        }
+
+        public boolean isDone() {
+            return state != State.RUNNING;
+        }
+    }
+
+    /**
+     * A running or finished import, polled by the UI for progress.
+     */
+    public final class ImportJob {
+        private final String fileName;
+        private final CountingInputStream input;
+        private final Instant startedAt;
+        private final AtomicLong rowsParsed = new AtomicLong();
+        private final AtomicLong rowsWritten = new AtomicLong();
+        private final AtomicLong rowsFailed = new AtomicLong();
+        private final AtomicLong rowsSkipped = new AtomicLong();
+        private final CompletableFuture<Progress> completion = new CompletableFuture<>();
+        private volatile boolean cancelled;
+        private volatile State state = State.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private ImportJob(String fileName, InputStream input, Instant startedAt) {
+            this.fileName = fileName;
+            this.input = new CountingInputStream(input);
+            this.startedAt = startedAt;
+        }
+
+        public String fileName() {
+            return fileName;
+        }
+
+        public Progress progress() {
+            Instant end = finishedAt != null ? finishedAt : clock.instant();
+            return new Progress(state, rowsParsed.get(), rowsWritten.get(), rowsFailed.get(), rowsSkipped.get(),
+                    input.count.get(), Duration.between(startedAt, end), error);
+        }
+
+        /**
+         * @return a future completed with the final progress when the job ends
+         */
+        public CompletableFuture<Progress> completion() {
+            return completion;
+        }
+
+        /**
+         * Stops parsing and closes the input, which aborts the upload. Batches
+         * already handed to GridDB are still written.
+         */
+        public void cancel() {
+            if (cancelled || state != State.RUNNING) {
+                return;
+            }
+            cancelled = true;
+            try {
+                input.close();
+            } catch (IOException e) {
+                log.debug("Failed to close import stream of {}: {}", fileName, e.getMessage());
+            }
+        }
+
+        private void finish(State finalState, String failure, Instant at) {
+            this.error = failure;
+            this.finishedAt = at;
+            this.state = finalState;
+            try {
+                input.close();
+            } catch (IOException e) {
+                log.debug("Failed to close import stream of {}: {}", fileName, e.getMessage());
+            }
+            completion.complete(progress());
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count = new AtomicLong();
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count.addAndGet(n);
+            }
+            return n;
+        }
+    }
+}
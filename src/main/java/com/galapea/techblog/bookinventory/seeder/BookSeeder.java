@@ -4,25 +4,112 @@ import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.util.backoff.BackOffExecution;
+import com.galapea.techblog.base.griddb.GridDbCloudClientProperties;
+import com.galapea.techblog.base.griddb.GridDbHealthIndicator;
+import com.galapea.techblog.base.griddb.GridDbRowQuarantine;
+import com.galapea.techblog.base.griddb.GridDbWorkload;
 import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.service.BookImportDeduplicator;
 import com.galapea.techblog.bookinventory.service.BookService;
 
+/**
+ * Creates the Books container and seeds it from the bundled Goodreads dataset.
+ * <p>
+ * The work runs on the application task executor so that the HTTP/Vaadin layer
+ * starts without waiting for GridDB Cloud. Progress is reported through the
+ * actuator health endpoint as {@code bookSeeder}, which is part of the readiness
+ * group.
+ * </p>
+ */
 @Component
-public class BookSeeder implements CommandLineRunner {
+public class BookSeeder implements CommandLineRunner, HealthIndicator {
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final BookService bookService;
+    private final BookImportDeduplicator deduplicator;
+    private final GridDbHealthIndicator gridDbHealthIndicator;
+    private final GridDbCloudClientProperties properties;
+    private final TaskExecutor taskExecutor;
 
-    public BookSeeder(BookService bookService) {
+    enum State {
+        PENDING, WAITING_FOR_GRIDDB, CREATING_CONTAINER, BUILDING_IMPORT_FILTER, SEEDING, INDEXING, COMPLETED, FAILED
+    }
+
+    private volatile State state = State.PENDING;
+    private final AtomicInteger seededCount = new AtomicInteger();
+    private volatile String lastError;
+
+    public BookSeeder(BookService bookService, BookImportDeduplicator deduplicator,
+            GridDbHealthIndicator gridDbHealthIndicator, GridDbCloudClientProperties properties,
+            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
         this.bookService = bookService;
+        this.deduplicator = deduplicator;
+        this.gridDbHealthIndicator = gridDbHealthIndicator;
+        this.properties = properties;
+        this.taskExecutor = taskExecutor;
     }
 
     @Override
     public void run(String... args) throws Exception {
-        bookService.createTableBooks();
+        taskExecutor.execute(GridDbWorkload.BULK_IMPORT.wrap(this::warmUpAndSeed));
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = switch (state) {
+            case COMPLETED -> Health.up();
+            case FAILED -> Health.down();
+            default -> Health.outOfService();
+        };
+        builder.withDetail("state", state).withDetail("seeded", seededCount.get());
+        if (lastError != null) {
+            builder.withDetail("lastError", lastError);
+        }
+        return builder.build();
+    }
+
+    private void warmUpAndSeed() {
+        try {
+            state = State.WAITING_FOR_GRIDDB;
+            if (!gridDbHealthIndicator.awaitConnection()) {
+                lastError = "GridDBCloud is not reachable";
+                state = State.FAILED;
+                log.error("Giving up on seeding: GridDBCloud is not reachable");
+                return;
+            }
+            state = State.CREATING_CONTAINER;
+            retry("create Books container", bookService::createTableBooks);
+            state = State.BUILDING_IMPORT_FILTER;
+            retry("build import filter", deduplicator::rebuild);
+            state = State.SEEDING;
+            retry("seed books", this::seedIfEmpty);
+            state = State.INDEXING;
+            retry("build search index", bookService::rebuildSearchIndex);
+            retry("build duplicate index", bookService::rebuildDuplicateIndex);
+            lastError = null;
+            state = State.COMPLETED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = State.FAILED;
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            state = State.FAILED;
+            log.error("Book seeding failed", e);
+        }
+    }
+
+    private void seedIfEmpty() throws Exception {
         if (bookService.listBooks().isEmpty()) {
             log.info("Seeding books...");
             InputStream is = getClass().getClassLoader().getResourceAsStream("goodreads-datasets-book1-100k.csv");
@@ -33,19 +120,51 @@ public class BookSeeder implements CommandLineRunner {
         }
     }
 
+    private void retry(String description, ThrowingRunnable task) throws Exception {
+        BackOffExecution backOff = properties.getStartup().newBackOff().start();
+        while (true) {
+            try {
+                task.run();
+                return;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                long waitMillis = backOff.nextBackOff();
+                if (waitMillis == BackOffExecution.STOP) {
+                    throw e;
+                }
+                log.warn("Failed to {}, retrying in {} ms: {}", description, waitMillis, e.getMessage());
+                Thread.sleep(waitMillis);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
     private void saveBooks(List<Book> books) {
         int count = 0;
         Instant start = Instant.now();
 
+        // Chunks are submitted without waiting so that write-behind can batch them
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
         List<List<Book>> chunks = splitIntoChunks(books, 10);
         for (List<Book> chunk : chunks) {
             count += chunk.size();
-            try {
-                bookService.saveBooks(chunk);
-            } catch (Exception e) {
-                log.warn("Failed to save chunk of books: {}", e.getMessage());
-            }
+            writes.add(bookService.saveBooksAsync(chunk).whenComplete((result, e) -> {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (e == null) {
+                    seededCount.addAndGet(chunk.size());
+                } else if (cause instanceof GridDbRowQuarantine.PartialWriteException partialWrite) {
+                    seededCount.addAndGet(chunk.size() - partialWrite.getRejected().size());
+                    log.warn("Failed to save some books of a chunk: {}", cause.getMessage());
+                } else {
+                    log.warn("Failed to save chunk of books: {}", e.getMessage());
+                }
+            }));
         }
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
         Instant end = Instant.now();
         log.info("Seeding completed in {} seconds", (end.toEpochMilli() - start.toEpochMilli()) / 1000.0);
         log.info("Seeding completed. Total books seeded: {}", count);
@@ -1,14 +1,17 @@
 package com.galapea.techblog.bookinventory.seeder;
 
 import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.BookStrings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 public class GoodReadBookCSVParser {
     private static final Logger log = LoggerFactory.getLogger(GoodReadBookCSVParser.class);
@@ -19,6 +22,32 @@ public class GoodReadBookCSVParser {
             log.error("CSV file not found in resources");
             return books;
         }
+        parseBooks(is, book -> {
+            books.add(book);
+            if (books.size() % 55 == 0) {
+                log.info("Parsed {} books...", books.size());
+                return false;
+            }
+            return true;
+        });
+        return books;
+    }
+
+    /**
+     * Parses a Goodreads CSV export line by line and hands each book to the sink
+     * as soon as it is read, so files of any size are processed without holding
+     * them in memory. Lines with too few columns are skipped.
+     *
+     * @param is
+     *            the CSV content, closed when parsing ends
+     * @param sink
+     *            receives the parsed books, returns {@code false} to stop parsing
+     * @return the number of books handed to the sink
+     * @throws IOException
+     *             if reading the stream fails
+     */
+    public long parseBooks(InputStream is, Predicate<Book> sink) throws IOException {
+        long count = 0;
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
             String line;
             boolean isFirst = true;
@@ -32,8 +61,9 @@ public class GoodReadBookCSVParser {
                 if (fields.length < 18)
                     continue;
                 String title = fields[1]; // 2nd column, should match quoted value
-                String authors = fields[12];
-                String publisher = fields[8];
+                // Authors and publishers repeat across many rows, keep one instance of each
+                String authors = BookStrings.canonicalize(fields[12]);
+                String publisher = BookStrings.canonicalize(fields[8]);
                 Double rating = null;
                 try {
                     rating = fields[13].isEmpty() ? null : Double.parseDouble(fields[13]);
@@ -45,14 +75,13 @@ public class GoodReadBookCSVParser {
                 } catch (NumberFormatException e) {
                 }
                 Book book = new Book(null, title, authors, publisher, rating, null, null, goodreadsBookId);
-                books.add(book);
-                if (books.size() % 55 == 0) {
-                    log.info("Parsed {} books...", books.size());
+                count++;
+                if (!sink.test(book)) {
                     break;
                 }
             }
         }
-        return books;
+        return count;
     }
 
     // Simple CSV parser for quoted fields
@@ -0,0 +1,147 @@
+package com.galapea.techblog.bookinventory.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.BookColumnarStore;
+import com.galapea.techblog.bookinventory.domain.BookContainer;
+import com.galapea.techblog.bookinventory.domain.CatalogStatistics;
+
+/**
+ * Catalog statistics for the analytics view.
+ * <p>
+ * The statistics are aggregated by GridDB (see
+ * {@link BookContainer#getCatalogStatistics(int)}) and cached for
+ * {@code bookinventory.analytics.refresh-interval}, so opening the view does not
+ * query GridDB every time. If recomputing fails, the previous statistics are
+ * served.
+ * </p>
+ * <p>
+ * Filtered statistics ({@link #statistics(Filter)}) are computed in memory from
+ * the catalog's {@link BookColumnarStore}, so drilling down does not query
+ * GridDB at all.
+ * </p>
+ */
+@Service
+public class BookAnalyticsService {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final BookContainer bookContainer;
+    private final BookCatalog bookCatalog;
+    private final BookInventoryProperties.Analytics settings;
+    private final Clock clock;
+    private volatile Analytics cached;
+
+    public BookAnalyticsService(BookContainer bookContainer, BookCatalog bookCatalog,
+            BookInventoryProperties properties, Clock clock) {
+        this.bookContainer = bookContainer;
+        this.bookCatalog = bookCatalog;
+        this.settings = properties.getAnalytics();
+        this.clock = clock;
+    }
+
+    /**
+     * Restricts filtered statistics; {@code null} fields do not filter.
+     *
+     * @param minRating
+     *            the lowest rating included
+     * @param genre
+     *            a genre the books must list
+     * @param publisher
+     *            the publisher of the books
+     */
+    public record Filter(Double minRating, String genre, String publisher) {
+
+        public boolean isEmpty() {
+            return minRating == null && (genre == null || genre.isBlank())
+                    && (publisher == null || publisher.isBlank());
+        }
+    }
+
+    /**
+     * Statistics and the time they were computed.
+     *
+     * @param statistics
+     *            the statistics
+     * @param computedAt
+     *            when GridDB computed them
+     */
+    public record Analytics(CatalogStatistics statistics, Instant computedAt) {
+    }
+
+    /**
+     * @return the cached statistics, recomputed first if they are older than the
+     *         refresh interval
+     */
+    public Analytics analytics() {
+        Analytics current = cached;
+        if (current != null && Duration.between(current.computedAt(), clock.instant())
+                .compareTo(settings.getRefreshInterval()) < 0) {
+            return current;
+        }
+        synchronized (this) {
+            if (cached != current) {
+                return cached;
+            }
+            try {
+                return refresh();
+            } catch (RuntimeException e) {
+                if (current == null) {
+                    throw e;
+                }
+                log.warn("Serving statistics computed at {}, refresh failed: {}", current.computedAt(),
+                        e.getMessage());
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the statistics now.
+     *
+     * @return the new statistics
+     */
+    public synchronized Analytics refresh() {
+        Instant computedAt = clock.instant();
+        CatalogStatistics statistics = bookContainer.getCatalogStatistics(settings.getTopCount());
+        cached = new Analytics(statistics, computedAt);
+        log.info("Computed catalog statistics for {} books", statistics.totalBooks());
+        return cached;
+    }
+
+    /**
+     * Computes statistics of the books matching the filter from the in-memory
+     * catalog.
+     *
+     * @param filter
+     *            the books to include
+     * @return the statistics of the matching books
+     */
+    public CatalogStatistics statistics(Filter filter) {
+        return bookCatalog.columnarStore().read(store -> {
+            BookColumnarStore.Selection selection = store.all();
+            if (filter.minRating() != null) {
+                selection = selection.and(store.ratingBetween(filter.minRating(), Double.MAX_VALUE));
+            }
+            if (filter.genre() != null && !filter.genre().isBlank()) {
+                selection = selection.and(store.hasGenre(filter.genre().trim()));
+            }
+            if (filter.publisher() != null && !filter.publisher().isBlank()) {
+                selection = selection.and(store.publisherEquals(filter.publisher().trim()));
+            }
+            return store.statistics(selection, settings.getTopCount());
+        });
+    }
+
+    /**
+     * @return the distinct genres of the in-memory catalog, sorted
+     */
+    public List<String> genres() {
+        return bookCatalog.columnarStore().read(BookColumnarStore::genreValues).stream()
+                .sorted(String.CASE_INSENSITIVE_ORDER).toList();
+    }
+}
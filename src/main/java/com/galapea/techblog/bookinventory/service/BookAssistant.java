@@ -1,9 +1,16 @@
 package com.galapea.techblog.bookinventory.service;
 
+import java.time.Clock;
+import java.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.stereotype.Service;
+import com.galapea.techblog.bookinventory.domain.AssistantCall;
+import com.galapea.techblog.bookinventory.domain.AssistantCallLog;
 import com.galapea.techblog.bookinventory.domain.BookAIReply;
 
 /**
@@ -13,6 +20,8 @@ import com.galapea.techblog.bookinventory.domain.BookAIReply;
  * This class uses a <a href=
  * "https://docs.spring.io/spring-ai/reference/api/chatclient.html">ChatClient</a>
  * to send prompts to an AI model (e.g., OpenAI) and receive structured answers.
+ * Every call is recorded in the {@link AssistantCallLog} with its model,
+ * latency, token usage and outcome.
  * </p>
  */
 @Service
@@ -20,53 +29,85 @@ public class BookAssistant {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final ChatClient chatClient;
+    private final AssistantCallLog callLog;
+    private final Clock clock;
 
     /**
      * Constructs a BookAssistant with the given ChatClient.
      *
      * @param chatClient
      *            the chat client used to communicate with the AI service
+     * @param callLog
+     *            records every call with its latency and outcome
+     * @param clock
+     *            the clock used to timestamp calls
      */
-    public BookAssistant(ChatClient chatClient) {
+    public BookAssistant(ChatClient chatClient, AssistantCallLog callLog, Clock clock) {
         this.chatClient = chatClient;
+        this.callLog = callLog;
+        this.clock = clock;
     }
 
     /**
      * Finds the genre of a book using the AI model.
      *
+     * @param bookId
+     *            the id of the book, recorded with the call
      * @param title
      *            the title of the book
      * @param authors
      *            the authors of the book
      * @return a BookAIReply containing the genre and source URL
      */
-    public BookAIReply findBookGenre(String title, String authors) {
+    public BookAIReply findBookGenre(String bookId, String title, String authors) {
         log.info("Requesting OpenAI for book genre: {}, {}", title, authors);
-        BookAIReply reply = chatClient.prompt()
-                .user(user -> user.text("What is the genre of the book {title} by {authors}. Provide the source url.")
-                        .param("title", title).param("authors", authors))
-                .call().entity(BookAIReply.class);
-        log.info("Received OpenAI response: {}", reply);
-        return reply;
+        return ask(bookId, AssistantCall.Kind.GENRE,
+                "What is the genre of the book {title} by {authors}. Provide the source url.", title, authors);
     }
 
     /**
      * Finds the summary of a book using the AI model.
      *
+     * @param bookId
+     *            the id of the book, recorded with the call
      * @param title
      *            the title of the book
      * @param authors
      *            the authors of the book
      * @return a BookAIReply containing the summary and source URL
      */
-    public BookAIReply findBookSummary(String title, String authors) {
+    public BookAIReply findBookSummary(String bookId, String title, String authors) {
         log.info("Requesting OpenAI for book summary: {}, {}", title, authors);
-        BookAIReply reply = chatClient.prompt()
-                .user(user -> user.text("What is the summary of the book {title} by {authors}. Provide the source url.")
-                        .param("title", title).param("authors", authors))
-                .call().entity(BookAIReply.class);
-        log.info("Received OpenAI response: {}", reply);
-        return reply;
+        return ask(bookId, AssistantCall.Kind.SUMMARY,
+                "What is the summary of the book {title} by {authors}. Provide the source url.", title, authors);
+    }
+
+    private BookAIReply ask(String bookId, AssistantCall.Kind kind, String question, String title, String authors) {
+        Instant calledAt = clock.instant();
+        long start = System.nanoTime();
+        try {
+            ResponseEntity<ChatResponse, BookAIReply> response = chatClient.prompt()
+                    .user(user -> user.text(question).param("title", title).param("authors", authors)).call()
+                    .responseEntity(BookAIReply.class);
+            BookAIReply reply = response.getEntity();
+            log.info("Received OpenAI response: {}", reply);
+            ChatResponse chatResponse = response.getResponse();
+            String model = chatResponse == null ? null : chatResponse.getMetadata().getModel();
+            Usage usage = chatResponse == null ? null : chatResponse.getMetadata().getUsage();
+            boolean answered = reply != null && reply.value() != null && !reply.value().isBlank();
+            callLog.record(new AssistantCall(calledAt, bookId, kind, model, elapsedMillis(start),
+                    usage == null ? null : usage.getTotalTokens(),
+                    answered ? AssistantCall.Outcome.SUCCESS : AssistantCall.Outcome.EMPTY));
+            return reply;
+        } catch (RuntimeException e) {
+            callLog.record(new AssistantCall(calledAt, bookId, kind, null, elapsedMillis(start), null,
+                    AssistantCall.Outcome.FAILURE));
+            throw e;
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
     }
 
 }
@@ -0,0 +1,506 @@
+package com.galapea.techblog.bookinventory.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import com.galapea.techblog.base.griddb.GridDbWorkload;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.BookColumnarStore;
+import com.galapea.techblog.bookinventory.domain.BookContainer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Application-wide in-memory copy of the Books container, shared by all
+ * sessions.
+ * <p>
+ * Readers get an immutable, versioned {@link Snapshot} without locking. Writes
+ * made through {@link BookService} arrive as {@link BooksChangedEvent}s, which
+ * are queued and merged copy-on-write by the next read, so a burst of changes,
+ * e.g. an import, costs one copy of the catalog rather than one per event. A
+ * background task reconciles the catalog
+ * with GridDB every {@code bookinventory.catalog.refresh-interval} to pick up
+ * changes made by other instances. If the last reconciliation is older than
+ * {@code bookinventory.catalog.max-staleness}, the next read reloads the
+ * catalog before returning.
+ * </p>
+ * <p>
+ * Reconciliation is incremental: it fetches books with an id above the newest
+ * known id (TSIDs are time-ordered) and books whose {@code updatedAt} is past
+ * the newest known change, then publishes the books that actually changed as a
+ * {@link BooksChangedEvent.Origin#GRIDDB} event for the search index and open
+ * views. Deletions are only seen by a full reload, which runs every
+ * {@code bookinventory.catalog.full-reload-interval}.
+ * </p>
+ */
+@Component
+public class BookCatalog {
+    private static final Comparator<Book> ID_DESC = Comparator.comparing(Book::id, Comparator.reverseOrder());
+    // Re-read changes this far behind the newest known change, for clock skew between writers
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+    // Merged without waiting for a read beyond this, so that an import nobody reads does not pile up events
+    private static final int MAX_UNMERGED_EVENTS = 1024;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final BookContainer bookContainer;
+    private final BookInventoryProperties.Catalog settings;
+    private final int scanParallelism;
+    private final Clock clock;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduledExecutorService scheduler;
+    private final Object reloadLock = new Object();
+    private final Object writeLock = new Object();
+    private final Object columnarLock = new Object();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private BookColumnarStore columnarStore;
+    // Books changed since the columnar store was last updated, null if it must be rebuilt
+    private List<Book> columnarChanges;
+    // Changes applied while a reload is running, re-applied on top of the loaded rows
+    private List<BooksChangedEvent> changesDuringReload;
+    // Local changes not merged into the snapshot yet
+    private List<BooksChangedEvent> unmerged = new ArrayList<>();
+    private volatile boolean hasUnmerged;
+    private Instant lastFullLoad;
+
+    public BookCatalog(BookContainer bookContainer, BookInventoryProperties properties, Clock clock,
+            ApplicationEventPublisher eventPublisher) {
+        this.bookContainer = bookContainer;
+        this.settings = properties.getCatalog();
+        this.scanParallelism = properties.getScan().getParallelism();
+        this.clock = clock;
+        this.eventPublisher = eventPublisher;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(GridDbWorkload.BACKGROUND.wrap(runnable), "book-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = settings.getRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::reconcile, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the current snapshot, reloaded first if it has never been loaded or
+     *         is older than the configured maximum staleness. If reloading a
+     *         stale snapshot fails, the stale snapshot is returned.
+     */
+    public Snapshot snapshot() {
+        Snapshot current = merged();
+        if (isFresh(current)) {
+            return current;
+        }
+        synchronized (reloadLock) {
+            current = merged();
+            if (isFresh(current)) {
+                return current;
+            }
+            try {
+                return load();
+            } catch (RuntimeException e) {
+                if (current.loadedAt() == null) {
+                    throw e;
+                }
+                log.warn("Serving catalog loaded at {}, reload failed: {}", current.loadedAt(), e.getMessage());
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Reloads the catalog from GridDB.
+     *
+     * @return the new snapshot
+     */
+    public Snapshot reload() {
+        synchronized (reloadLock) {
+            return load();
+        }
+    }
+
+    /**
+     * @return a columnar copy of the current snapshot for analytics. Changes are
+     *         written into it in place when it is asked for; it is only rebuilt
+     *         after a full reload or when many books changed. Summaries are not
+     *         copied, the store reads them from the snapshot. Queries should run
+     *         through {@link BookColumnarStore#read(java.util.function.Function)}.
+     */
+    public BookColumnarStore columnarStore() {
+        snapshot();
+        synchronized (columnarLock) {
+            Snapshot current;
+            List<Book> changes;
+            synchronized (writeLock) {
+                mergeUnmerged();
+                current = snapshot;
+                changes = columnarChanges;
+                columnarChanges = new ArrayList<>();
+            }
+            if (columnarStore == null || changes == null) {
+                columnarStore = BookColumnarStore.of(current.books(), bookId -> {
+                    Book book = merged().get(bookId);
+                    return book == null ? null : book.summary();
+                });
+            } else if (!changes.isEmpty()) {
+                columnarStore.apply(changes);
+            }
+            return columnarStore;
+        }
+    }
+
+    /**
+     * Applies the books created or changed in GridDB since the last
+     * reconciliation, see the class description. Falls back to a full reload if
+     * the catalog has not been loaded yet.
+     *
+     * @return the new snapshot
+     */
+    public Snapshot sync() {
+        synchronized (reloadLock) {
+            Snapshot base = merged();
+            if (base.loadedAt() == null) {
+                return load();
+            }
+            Instant syncedAt = clock.instant();
+            List<Book> fetched = fetch(() -> {
+                List<Book> rows = new ArrayList<>(bookContainer.getAllBooksAfter(base.newestId()));
+                if (base.changedUpTo() != null) {
+                    rows.addAll(bookContainer.getAllBooksChangedSince(base.changedUpTo().minus(SYNC_OVERLAP)));
+                }
+                return rows;
+            });
+            Map<String, Book> latest = new LinkedHashMap<>();
+            fetched.forEach(book -> latest.put(book.id(), book));
+            List<Book> changed = latest.values().stream().filter(book -> !book.equals(base.get(book.id()))).toList();
+            Snapshot synced;
+            synchronized (writeLock) {
+                noteColumnarChanges(changed);
+                synced = apply(snapshot.with(changed, syncedAt), changesDuringReload, syncedAt);
+                changesDuringReload = null;
+                clearUnmerged();
+                snapshot = synced;
+            }
+            if (!changed.isEmpty()) {
+                log.info("Catalog version {} synced {} changed books", synced.version(), changed.size());
+                eventPublisher.publishEvent(new BooksChangedEvent(changed, BooksChangedEvent.Origin.GRIDDB));
+            }
+            return synced;
+        }
+    }
+
+    /**
+     * Queues books saved or enriched through {@link BookService} for the next
+     * read. Runs before other listeners so that they read the new version from
+     * the catalog.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBooksChanged(BooksChangedEvent event) {
+        if (event.origin() == BooksChangedEvent.Origin.GRIDDB) {
+            // Published by sync(), already applied
+            return;
+        }
+        synchronized (writeLock) {
+            if (changesDuringReload != null) {
+                changesDuringReload.add(event);
+            }
+            unmerged.add(event);
+            hasUnmerged = true;
+            if (unmerged.size() >= MAX_UNMERGED_EVENTS) {
+                mergeUnmerged();
+            }
+        }
+    }
+
+    /**
+     * @return the snapshot with the queued local changes merged in
+     */
+    private Snapshot merged() {
+        if (!hasUnmerged) {
+            return snapshot;
+        }
+        synchronized (writeLock) {
+            mergeUnmerged();
+            return snapshot;
+        }
+    }
+
+    // Must hold writeLock
+    private void mergeUnmerged() {
+        if (!unmerged.isEmpty()) {
+            snapshot = apply(snapshot, unmerged, snapshot.loadedAt());
+            clearUnmerged();
+        }
+    }
+
+    // Must hold writeLock
+    private void clearUnmerged() {
+        unmerged = new ArrayList<>();
+        hasUnmerged = false;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return current.loadedAt() != null
+                && Duration.between(current.loadedAt(), clock.instant()).compareTo(settings.getMaxStaleness()) <= 0;
+    }
+
+    private void reconcile() {
+        if (snapshot.loadedAt() == null) {
+            // Loaded on first use, e.g. by the seeder once GridDB is reachable
+            return;
+        }
+        try {
+            Duration sinceFullLoad = Duration.between(lastFullLoad, clock.instant());
+            if (sinceFullLoad.compareTo(settings.getFullReloadInterval()) >= 0) {
+                reload();
+            } else {
+                sync();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Catalog reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot load() {
+        Instant loadedAt = clock.instant();
+        List<Book> rows = fetch(() -> {
+            try (Stream<Book> books = bookContainer.scan(scanParallelism)) {
+                return books.toList();
+            }
+        });
+        lastFullLoad = loadedAt;
+        synchronized (writeLock) {
+            Snapshot loaded = apply(Snapshot.of(snapshot.version() + 1, loadedAt, rows), changesDuringReload,
+                    loadedAt);
+            changesDuringReload = null;
+            clearUnmerged();
+            columnarChanges = null;
+            snapshot = loaded;
+            log.info("Catalog version {} loaded with {} books", loaded.version(), loaded.size());
+            return loaded;
+        }
+    }
+
+    /**
+     * Applies local changes to a snapshot. Column updates are applied to the
+     * version of the book in the snapshot, or in an earlier event; updates of
+     * books that are not in the catalog are dropped. Must hold writeLock.
+     */
+    private Snapshot apply(Snapshot base, List<BooksChangedEvent> events, Instant loadedAt) {
+        Map<String, Book> changes = new LinkedHashMap<>();
+        for (BooksChangedEvent event : events) {
+            event.books().forEach(book -> changes.put(book.id(), book));
+            for (BooksChangedEvent.Update update : event.updates()) {
+                Book current = changes.containsKey(update.bookId()) ? changes.get(update.bookId())
+                        : base.get(update.bookId());
+                if (current != null) {
+                    changes.put(update.bookId(), update.change().apply(current));
+                }
+            }
+        }
+        noteColumnarChanges(changes.values());
+        return base.with(changes.values(), loadedAt);
+    }
+
+    // Must hold writeLock. Rebuilding is cheaper than applying changes to a large part of the catalog
+    private void noteColumnarChanges(Collection<Book> changes) {
+        if (columnarChanges == null || changes.isEmpty()) {
+            return;
+        }
+        columnarChanges.addAll(changes);
+        if (columnarChanges.size() > Math.max(MAX_UNMERGED_EVENTS, snapshot.size() / 4)) {
+            columnarChanges = null;
+        }
+    }
+
+    /**
+     * Reads from GridDB while recording local changes made in the meantime, which
+     * the caller must re-apply on top of the fetched rows and then reset together
+     * with the unmerged changes.
+     */
+    private List<Book> fetch(Supplier<List<Book>> query) {
+        synchronized (writeLock) {
+            mergeUnmerged();
+            changesDuringReload = new ArrayList<>();
+        }
+        try {
+            return query.get();
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                changesDuringReload = null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Immutable view of the catalog at one point in time, sorted by id
+     * descending (newest first, ids are time-ordered TSIDs).
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, null, new Book[0], null);
+
+        private final long version;
+        private final Instant loadedAt;
+        private final Book[] books;
+        private final Instant changedUpTo;
+
+        private Snapshot(long version, Instant loadedAt, Book[] books, Instant changedUpTo) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.books = books;
+            this.changedUpTo = changedUpTo;
+        }
+
+        static Snapshot of(long version, Instant loadedAt, Collection<Book> books) {
+            return new Snapshot(version, loadedAt, sortedById(books), latestUpdate(books, null));
+        }
+
+        /**
+         * @return a number that increases with every reload and every applied
+         *         change
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * @return when the catalog was last reconciled with GridDB, or
+         *         {@code null} if it has never been loaded
+         */
+        public Instant loadedAt() {
+            return loadedAt;
+        }
+
+        /**
+         * @return the newest {@code updatedAt} among the books, or {@code null} if
+         *         no book has one
+         */
+        public Instant changedUpTo() {
+            return changedUpTo;
+        }
+
+        /**
+         * @return the id of the newest book, or {@code null} if the catalog is
+         *         empty
+         */
+        public String newestId() {
+            return books.length > 0 ? books[0].id() : null;
+        }
+
+        public int size() {
+            return books.length;
+        }
+
+        public List<Book> books() {
+            return Collections.unmodifiableList(Arrays.asList(books));
+        }
+
+        public List<Book> page(int offset, int limit) {
+            int from = Math.min(Math.max(0, offset), books.length);
+            int to = (int) Math.min((long) from + Math.max(0, limit), books.length);
+            return books().subList(from, to);
+        }
+
+        /**
+         * @return the book with the given id, or {@code null}
+         */
+        public Book get(String id) {
+            int index = indexOf(books, id);
+            return index >= 0 ? books[index] : null;
+        }
+
+        /**
+         * Returns a new snapshot with the given books added or replaced, merging the
+         * sorted arrays in linear time.
+         */
+        Snapshot with(Collection<Book> changes, Instant loadedAt) {
+            if (changes.isEmpty()) {
+                return new Snapshot(version, loadedAt, books, changedUpTo);
+            }
+            Book[] updates = sortedById(changes);
+            Book[] merged = new Book[books.length + updates.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < books.length || j < updates.length) {
+                int cmp = i == books.length ? 1
+                        : j == updates.length ? -1 : ID_DESC.compare(books[i], updates[j]);
+                if (cmp < 0) {
+                    merged[n++] = books[i++];
+                } else if (cmp > 0) {
+                    merged[n++] = updates[j++];
+                } else {
+                    merged[n++] = updates[j++];
+                    i++;
+                }
+            }
+            return new Snapshot(version + 1, loadedAt, Arrays.copyOf(merged, n), latestUpdate(changes, changedUpTo));
+        }
+
+        private static Instant latestUpdate(Collection<Book> books, Instant latest) {
+            for (Book book : books) {
+                if (book.updatedAt() != null && (latest == null || book.updatedAt().isAfter(latest))) {
+                    latest = book.updatedAt();
+                }
+            }
+            return latest;
+        }
+
+        private static Book[] sortedById(Collection<Book> books) {
+            // Last version of each id wins
+            Map<String, Book> byId = new LinkedHashMap<>();
+            for (Book book : books) {
+                if (book.id() != null) {
+                    byId.put(book.id(), book);
+                }
+            }
+            Book[] sorted = byId.values().toArray(Book[]::new);
+            Arrays.sort(sorted, ID_DESC);
+            return sorted;
+        }
+
+        private static int indexOf(Book[] books, String id) {
+            int low = 0;
+            int high = books.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = id.compareTo(books[mid].id());
+                if (cmp == 0) {
+                    return mid;
+                }
+                // Sorted descending
+                if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.galapea.techblog.bookinventory.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bridges {@link BooksChangedEvent}s to subscribers that are not Spring beans,
+ * such as open views, which subscribe when attached and cancel when detached.
+ * <p>
+ * Subscribers are called on the publishing thread and must not block; UI
+ * subscribers hand the change over to their session with {@code UI.access}.
+ * </p>
+ */
+@Component
+public class BookChangeFeed {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final List<Consumer<BooksChangedEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * A subscription to the feed.
+     */
+    @FunctionalInterface
+    public interface Subscription {
+        void cancel();
+    }
+
+    public Subscription subscribe(Consumer<BooksChangedEvent> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onBooksChanged(BooksChangedEvent event) {
+        for (Consumer<BooksChangedEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Book change subscriber failed: {}", e.getMessage());
+            }
+        }
+    }
+}
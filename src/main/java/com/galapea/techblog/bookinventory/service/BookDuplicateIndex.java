@@ -0,0 +1,480 @@
+package com.galapea.techblog.bookinventory.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.Book;
+
+/**
+ * In-memory index of near-duplicate books, e.g. the same title with different
+ * punctuation, an edition suffix or the authors in another order.
+ * <p>
+ * A book is reduced to a set of shingles: character trigrams of its normalized
+ * title, without bracketed series information, edition words and articles,
+ * plus the terms of its authors. Similarity is the Jaccard index of two such
+ * sets. To find similar books without comparing against every book, each set
+ * is summarized by a MinHash signature of {@value #HASHES} values, cut into
+ * {@value #BANDS} bands of {@value #ROWS}; books sharing any band land in the
+ * same bucket (locality-sensitive hashing). With these parameters a pair with
+ * a similarity of 0.7 shares a bucket with a probability of about 99%, a pair
+ * with 0.3 with about 12%. Candidates from the buckets are then verified
+ * against the exact Jaccard index.
+ * </p>
+ * <p>
+ * Only the books and their bucket entries are kept, packed in a primitive hash
+ * table. Signatures are recomputed from the book when it is re-indexed. The
+ * index is updated incrementally from {@link BooksChangedEvent}s and guarded by
+ * a read/write lock.
+ * </p>
+ */
+@Component
+public class BookDuplicateIndex {
+    static final int BANDS = 16;
+    static final int ROWS = 4;
+    static final int HASHES = BANDS * ROWS;
+    // A few generic titles, e.g. "Poems", fill huge buckets; pairs are only drawn from their first members
+    private static final int MAX_BUCKET_PAIRS = 64;
+    private static final Pattern BRACKETED = Pattern.compile("[(\\[][^)\\]]*[)\\]]");
+    private static final Set<String> IGNORED_TITLE_TERMS = Set.of("a", "an", "the", "edition", "ed", "anniversary",
+            "deluxe", "illustrated", "unabridged", "abridged", "revised", "expanded", "annotated", "special",
+            "collector", "collectors", "paperback", "hardcover", "mass", "market", "reprint", "1st", "2nd", "3rd");
+    private static final long[] SEEDS = seeds();
+
+    private final double minSimilarity;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private Book[] books = new Book[256];
+    private int documentCount;
+    private BandTable buckets = new BandTable();
+
+    public BookDuplicateIndex(BookInventoryProperties properties) {
+        this.minSimilarity = properties.getDuplicates().getMinSimilarity();
+    }
+
+    /**
+     * A book similar to a given one.
+     *
+     * @param book
+     *            the indexed book
+     * @param similarity
+     *            Jaccard index of the shingles of both books, from 0 to 1
+     */
+    public record Match(Book book, double similarity) {
+    }
+
+    /**
+     * Two indexed books that are probably the same.
+     *
+     * @param first
+     *            the older of the two books
+     * @param second
+     *            the newer of the two books
+     * @param similarity
+     *            Jaccard index of the shingles of both books, from 0 to 1
+     */
+    public record Pair(Book first, Book second, double similarity) {
+    }
+
+    /**
+     * Adds the given books to the index or replaces the indexed version of books
+     * that are already known by id. Books without an id are ignored.
+     */
+    public void index(Collection<Book> updates) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : updates) {
+                if (book.id() != null) {
+                    indexBook(book);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onBooksChanged(BooksChangedEvent event) {
+        index(event.books());
+        event.updates().forEach(update -> update(update.bookId(), update.change()));
+    }
+
+    /**
+     * Replaces the stored version of an indexed book with the result of the given
+     * function, keeping its buckets. Meant for changes of columns that are not
+     * part of the shingles, such as genres or summary.
+     *
+     * @return the updated book, or {@code null} if the book is not indexed
+     */
+    public Book update(String bookId, UnaryOperator<Book> change) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(bookId);
+            if (ordinal == null) {
+                return null;
+            }
+            books[ordinal] = change.apply(books[ordinal]);
+            return books[ordinal];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given books.
+     */
+    public void rebuild(Collection<Book> catalog) {
+        lock.writeLock().lock();
+        try {
+            ordinalById.clear();
+            books = new Book[Math.max(256, catalog.size())];
+            documentCount = 0;
+            buckets = new BandTable();
+            for (Book book : catalog) {
+                if (book.id() != null) {
+                    indexBook(book);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds indexed books similar to the given one, e.g. before it is saved. Only
+     * the books sharing a bucket with it are compared, so the cost does not grow
+     * with the size of the catalog.
+     *
+     * @param book
+     *            the book to check; an indexed book with the same id is not
+     *            reported
+     * @param limit
+     *            the maximum number of matches
+     * @return matches with a similarity of at least
+     *         {@code bookinventory.duplicates.min-similarity}, most similar first
+     */
+    public List<Match> similarTo(Book book, int limit) {
+        Set<String> shingles = shingles(book);
+        if (shingles.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        long[] signature = signature(shingles);
+        lock.readLock().lock();
+        try {
+            Set<Integer> candidates = new HashSet<>();
+            for (int band = 0; band < BANDS; band++) {
+                buckets.forEach(bandKey(signature, band), candidates::add);
+            }
+            List<Match> matches = new ArrayList<>();
+            for (int ordinal : candidates) {
+                Book candidate = books[ordinal];
+                if (candidate == null || candidate.id().equals(book.id())) {
+                    continue;
+                }
+                double similarity = jaccard(shingles, shingles(candidate));
+                if (similarity >= minSimilarity) {
+                    matches.add(new Match(candidate, similarity));
+                }
+            }
+            matches.sort(Comparator.comparingDouble(Match::similarity).reversed()
+                    .thenComparing(match -> match.book().id()));
+            return matches.size() > limit ? List.copyOf(matches.subList(0, limit)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists pairs of indexed books that are probably duplicates, by walking the
+     * buckets rather than comparing every pair of books.
+     *
+     * @param limit
+     *            the maximum number of pairs
+     * @return pairs with a similarity of at least
+     *         {@code bookinventory.duplicates.min-similarity}, most similar first
+     */
+    public List<Pair> duplicates(int limit) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Set<String>> shinglesByOrdinal = new HashMap<>();
+            Set<Long> compared = new HashSet<>();
+            List<Pair> pairs = new ArrayList<>();
+            buckets.forEachGroup(members -> {
+                int size = Math.min(members.length, MAX_BUCKET_PAIRS);
+                for (int i = 0; i < size; i++) {
+                    for (int j = i + 1; j < size; j++) {
+                        int a = Math.min(members[i], members[j]);
+                        int b = Math.max(members[i], members[j]);
+                        if (a == b || !compared.add(((long) a << 32) | b)) {
+                            continue;
+                        }
+                        Book first = books[a];
+                        Book second = books[b];
+                        double similarity = jaccard(
+                                shinglesByOrdinal.computeIfAbsent(a, ordinal -> shingles(books[ordinal])),
+                                shinglesByOrdinal.computeIfAbsent(b, ordinal -> shingles(books[ordinal])));
+                        if (similarity >= minSimilarity) {
+                            pairs.add(first.id().compareTo(second.id()) <= 0 ? new Pair(first, second, similarity)
+                                    : new Pair(second, first, similarity));
+                        }
+                    }
+                }
+            });
+            pairs.sort(Comparator.comparingDouble(Pair::similarity).reversed()
+                    .thenComparing(pair -> pair.second().id(), Comparator.reverseOrder()));
+            return pairs.size() > limit ? List.copyOf(pairs.subList(0, limit)) : pairs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexBook(Book book) {
+        Integer existing = ordinalById.get(book.id());
+        if (existing != null) {
+            Book previous = books[existing];
+            if (Objects.equals(previous.title(), book.title()) && Objects.equals(previous.authors(), book.authors())) {
+                books[existing] = book;
+                return;
+            }
+            addToBuckets(previous, existing, false);
+            books[existing] = book;
+            addToBuckets(book, existing, true);
+            return;
+        }
+        int ordinal = documentCount++;
+        if (ordinal == books.length) {
+            books = Arrays.copyOf(books, books.length * 2);
+        }
+        books[ordinal] = book;
+        ordinalById.put(book.id(), ordinal);
+        addToBuckets(book, ordinal, true);
+    }
+
+    private void addToBuckets(Book book, int ordinal, boolean add) {
+        Set<String> shingles = shingles(book);
+        if (shingles.isEmpty()) {
+            return;
+        }
+        long[] signature = signature(shingles);
+        for (int band = 0; band < BANDS; band++) {
+            if (add) {
+                buckets.put(bandKey(signature, band), ordinal);
+            } else {
+                buckets.remove(bandKey(signature, band), ordinal);
+            }
+        }
+    }
+
+    /**
+     * Reduces a book to the shingles compared for similarity: trigrams of the
+     * normalized title and the author terms, prefixed with {@code @}.
+     */
+    static Set<String> shingles(Book book) {
+        Set<String> shingles = new HashSet<>();
+        if (book.title() != null) {
+            List<String> terms = new ArrayList<>(
+                    BookSearchIndex.tokenize(BRACKETED.matcher(book.title()).replaceAll(" ")));
+            terms.removeIf(IGNORED_TITLE_TERMS::contains);
+            String title = String.join(" ", terms);
+            if (!title.isEmpty() && title.length() < 3) {
+                shingles.add(title);
+            }
+            for (int i = 0; i + 3 <= title.length(); i++) {
+                shingles.add(title.substring(i, i + 3));
+            }
+        }
+        if (shingles.isEmpty()) {
+            // Authors alone are not a duplicate
+            return shingles;
+        }
+        for (String term : BookSearchIndex.tokenize(book.authors())) {
+            shingles.add("@" + term);
+        }
+        return shingles;
+    }
+
+    static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int shared = 0;
+        for (String shingle : smaller) {
+            if (larger.contains(shingle)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    private static long[] signature(Set<String> shingles) {
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String shingle : shingles) {
+            long hash = mix(shingle.hashCode());
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], mix(hash ^ SEEDS[i]));
+            }
+        }
+        return signature;
+    }
+
+    private static int bandKey(long[] signature, int band) {
+        long hash = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            hash = hash * 0x9E3779B97F4A7C15L + signature[row];
+        }
+        hash = mix(hash);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static long[] seeds() {
+        long[] seeds = new long[HASHES];
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < HASHES; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(seed);
+        }
+        return seeds;
+    }
+
+    // Stafford variant 13 of the MurmurHash3 finalizer
+    private static long mix(long key) {
+        long z = key;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Multimap of band keys to ordinals in an open addressing table with linear
+     * probing. Each entry is one {@code long}: the key in the high half and the
+     * ordinal plus one in the low half, so that 0 marks an empty slot.
+     */
+    private static final class BandTable {
+        private long[] slots = new long[1024];
+        private int size;
+
+        void put(int key, int ordinal) {
+            if ((size + 1) * 4L > slots.length * 3L) {
+                grow();
+            }
+            insert(slots, ((long) key << 32) | (ordinal + 1L));
+            size++;
+        }
+
+        void remove(int key, int ordinal) {
+            long entry = ((long) key << 32) | (ordinal + 1L);
+            int mask = slots.length - 1;
+            int i = home(key, mask);
+            while (slots[i] != entry) {
+                if (slots[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            size--;
+            // Shift later entries of the probe sequence back into the hole
+            while (true) {
+                slots[i] = 0;
+                int j = i;
+                while (true) {
+                    j = (j + 1) & mask;
+                    if (slots[j] == 0) {
+                        return;
+                    }
+                    int home = home((int) (slots[j] >>> 32), mask);
+                    boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                    if (!reachable) {
+                        slots[i] = slots[j];
+                        i = j;
+                        break;
+                    }
+                }
+            }
+        }
+
+        void forEach(int key, IntConsumer action) {
+            int mask = slots.length - 1;
+            for (int i = home(key, mask); slots[i] != 0; i = (i + 1) & mask) {
+                if ((int) (slots[i] >>> 32) == key) {
+                    action.accept((int) slots[i] - 1);
+                }
+            }
+        }
+
+        // Calls the action with the ordinals of every key held by more than one entry
+        void forEachGroup(Consumer<int[]> action) {
+            long[] entries = new long[size];
+            int n = 0;
+            for (long slot : slots) {
+                if (slot != 0) {
+                    entries[n++] = slot;
+                }
+            }
+            // Sorting the packed entries groups them by key
+            Arrays.sort(entries, 0, n);
+            for (int from = 0, to; from < n; from = to) {
+                int key = (int) (entries[from] >>> 32);
+                to = from + 1;
+                while (to < n && (int) (entries[to] >>> 32) == key) {
+                    to++;
+                }
+                if (to - from > 1) {
+                    int[] members = new int[to - from];
+                    for (int i = from; i < to; i++) {
+                        members[i - from] = (int) entries[i] - 1;
+                    }
+                    action.accept(members);
+                }
+            }
+        }
+
+        private void grow() {
+            long[] grown = new long[slots.length * 2];
+            for (long slot : slots) {
+                if (slot != 0) {
+                    insert(grown, slot);
+                }
+            }
+            slots = grown;
+        }
+
+        private static void insert(long[] table, long entry) {
+            int mask = table.length - 1;
+            int i = home((int) (entry >>> 32), mask);
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = entry;
+        }
+
+        private static int home(int key, int mask) {
+            return (int) mix(key) & mask;
+        }
+    }
+}
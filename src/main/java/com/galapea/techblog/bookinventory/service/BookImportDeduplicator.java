@@ -0,0 +1,222 @@
+package com.galapea.techblog.bookinventory.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import com.galapea.techblog.base.domain.LongBloomFilter;
+import com.galapea.techblog.base.griddb.query.Sort;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.BookColumns;
+import com.galapea.techblog.bookinventory.domain.BookContainer;
+
+/**
+ * Drops books that are already in the inventory from CSV imports, so that
+ * uploading the same Goodreads file twice does not create every book again.
+ * <p>
+ * Books are matched by {@code goodreadsBookId}. The Goodreads ids of all known
+ * books are kept in a {@link LongBloomFilter}, built from the
+ * {@link BookCatalog} and updated from {@link BooksChangedEvent}s. A batch is
+ * screened against the filter first; only its possible hits are looked up in
+ * GridDB, with one query per batch through the {@code goodreadsBookId} index.
+ * A re-import of a known file therefore costs one lookup per batch, and a new
+ * file almost none.
+ * </p>
+ * <p>
+ * The filter is sized for {@code bookinventory.csv-import.dedup-expected-books}
+ * or twice the catalog, whichever is larger, and is rebuilt when the catalog
+ * outgrows it. Books without a Goodreads id are never treated as duplicates.
+ * </p>
+ */
+@Component
+public class BookImportDeduplicator {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final BookContainer bookContainer;
+    private final BookCatalog bookCatalog;
+    private final long expectedBooks;
+    private final double falsePositiveRate;
+    private final Object rebuildLock = new Object();
+    private final AtomicLong screened = new AtomicLong();
+    private final AtomicLong possibleHits = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    // Goodreads ids of screened books that are not written yet
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private volatile LongBloomFilter known;
+
+    public BookImportDeduplicator(BookContainer bookContainer, BookCatalog bookCatalog,
+            BookInventoryProperties properties) {
+        this.bookContainer = bookContainer;
+        this.bookCatalog = bookCatalog;
+        this.expectedBooks = Math.max(1, properties.getCsvImport().getDedupExpectedBooks());
+        this.falsePositiveRate = properties.getCsvImport().getDedupFalsePositiveRate();
+    }
+
+    /**
+     * Builds the filter from the Goodreads ids of the books in the catalog.
+     */
+    public void rebuild() {
+        build();
+    }
+
+    private LongBloomFilter build() {
+        synchronized (rebuildLock) {
+            BookCatalog.Snapshot snapshot = bookCatalog.snapshot();
+            LongBloomFilter filter = new LongBloomFilter(Math.max(expectedBooks, 2L * snapshot.size()),
+                    falsePositiveRate);
+            putAll(filter, snapshot.books());
+            this.known = filter;
+            // Books saved while the filter was filled went to the previous filter
+            BookCatalog.Snapshot latest = bookCatalog.snapshot();
+            if (latest.version() != snapshot.version()) {
+                putAll(filter, latest.books());
+            }
+            log.info("Import filter built from {} books, {} KiB", snapshot.size(), filter.sizeInBytes() / 1024);
+            return filter;
+        }
+    }
+
+    /**
+     * Adds the Goodreads ids of saved books to the filter.
+     */
+    @EventListener
+    public void onBooksChanged(BooksChangedEvent event) {
+        LongBloomFilter filter = this.known;
+        if (filter == null) {
+            return;
+        }
+        putAll(filter, event.books());
+        if (filter.addedCount() > filter.expectedKeys()) {
+            log.info("Import filter holds {} ids, more than the {} it was sized for; rebuilding",
+                    filter.addedCount(), filter.expectedKeys());
+            this.known = null;
+        }
+    }
+
+    /**
+     * Removes the books that already exist from an import batch. Books repeated
+     * within the batch are kept once.
+     * <p>
+     * The Goodreads ids of the returned books are claimed until
+     * {@link #release(List)} is called for them, so that batches screened while
+     * this one is still being written, by the same import or a concurrent one,
+     * drop their copies of these books.
+     * </p>
+     *
+     * @param books
+     *            parsed books, without ids
+     * @return the books to save, in their original order
+     * @throws com.galapea.techblog.base.griddb.GridDbException
+     *             if possible duplicates cannot be looked up
+     */
+    public List<Book> screen(List<Book> books) {
+        LongBloomFilter filter = filter();
+        // Claimed before the lookup: a batch that ends its write in between has put its ids into the filter
+        List<Book> claimed = new ArrayList<>(books.size());
+        Set<Long> candidates = new LinkedHashSet<>();
+        for (Book book : books) {
+            Long goodreadsBookId = book.goodreadsBookId();
+            if (goodreadsBookId == null) {
+                claimed.add(book);
+            } else if (pending.add(goodreadsBookId)) {
+                claimed.add(book);
+                if (filter.mightContain(goodreadsBookId)) {
+                    candidates.add(goodreadsBookId);
+                }
+            }
+        }
+        Set<Long> existing;
+        try {
+            existing = candidates.isEmpty() ? Set.of() : existingGoodreadsIds(candidates);
+        } catch (RuntimeException e) {
+            release(claimed);
+            throw e;
+        }
+        List<Book> accepted = new ArrayList<>(claimed.size());
+        for (Book book : claimed) {
+            Long goodreadsBookId = book.goodreadsBookId();
+            if (goodreadsBookId != null && existing.contains(goodreadsBookId)) {
+                pending.remove(goodreadsBookId);
+            } else {
+                accepted.add(book);
+                if (goodreadsBookId != null) {
+                    filter.put(goodreadsBookId);
+                }
+            }
+        }
+        screened.addAndGet(books.size());
+        possibleHits.addAndGet(candidates.size());
+        duplicates.addAndGet(books.size() - accepted.size());
+        return accepted;
+    }
+
+    /**
+     * Ends the claim of {@link #screen(List)} on the given books, once they have
+     * been saved or their write has failed.
+     *
+     * @param books
+     *            books returned by {@link #screen(List)}
+     */
+    public void release(List<Book> books) {
+        for (Book book : books) {
+            if (book.goodreadsBookId() != null) {
+                pending.remove(book.goodreadsBookId());
+            }
+        }
+    }
+
+    /**
+     * @return books passed to {@link #screen(List)}
+     */
+    public long screenedCount() {
+        return screened.get();
+    }
+
+    /**
+     * @return distinct Goodreads ids the filter reported as possibly known and
+     *         that were looked up in GridDB
+     */
+    public long possibleHitCount() {
+        return possibleHits.get();
+    }
+
+    /**
+     * @return books removed by {@link #screen(List)}
+     */
+    public long duplicateCount() {
+        return duplicates.get();
+    }
+
+    private LongBloomFilter filter() {
+        LongBloomFilter filter = this.known;
+        return filter != null ? filter : build();
+    }
+
+    private Set<Long> existingGoodreadsIds(Set<Long> candidates) {
+        // Room for ids that earlier imports already stored twice
+        List<Book> found = bookContainer.findBooks(BookColumns.GOODREADS_BOOK_ID.in(candidates),
+                Sort.by(BookColumns.GOODREADS_BOOK_ID.asc()), 2L * candidates.size());
+        Set<Long> existing = new HashSet<>();
+        for (Book book : found) {
+            existing.add(book.goodreadsBookId());
+        }
+        log.debug("{} of {} possible duplicates exist", existing.size(), candidates.size());
+        return existing;
+    }
+
+    private static void putAll(LongBloomFilter filter, List<Book> books) {
+        for (Book book : books) {
+            if (book.goodreadsBookId() != null) {
+                filter.put(book.goodreadsBookId());
+            }
+        }
+    }
+}
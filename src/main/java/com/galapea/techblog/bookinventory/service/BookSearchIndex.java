@@ -0,0 +1,407 @@
+package com.galapea.techblog.bookinventory.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import com.galapea.techblog.bookinventory.domain.Book;
+
+/**
+ * In-memory prefix index over the title, authors and publisher of the books in
+ * the catalog, used for search-as-you-type.
+ * <p>
+ * Terms are normalized (accents stripped, lower-cased) and tokenized on
+ * non-alphanumeric characters. They are stored in a trie kept in flat parallel
+ * arrays, each terminal node holding a sorted posting list of document
+ * ordinals. Every node also tracks how many postings its subtree holds, so a
+ * multi-term query enumerates only the most selective term and verifies the
+ * remaining terms against the tokens of each candidate.
+ * </p>
+ * <p>
+ * The index is updated incrementally from {@link BooksChangedEvent}s:
+ * re-indexing a book with a known id replaces its previous terms. Reads and
+ * writes are guarded by a read/write lock.
+ * </p>
+ */
+@Component
+public class BookSearchIndex {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int ROOT = 0;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Trie nodes, siblings are kept sorted by label
+    private char[] labels = new char[1024];
+    private int[] firstChild = new int[1024];
+    private int[] nextSibling = new int[1024];
+    private int[] subtreePostings = new int[1024];
+    private PostingList[] postings = new PostingList[1024];
+    private int nodeCount = 1;
+
+    // Documents by ordinal
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private Book[] books = new Book[256];
+    private String[][] tokens = new String[256][];
+    private int documentCount;
+
+    public BookSearchIndex() {
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+    }
+
+    /**
+     * Adds the given books to the index or replaces the indexed version of books
+     * that are already known by id. Books without an id are ignored.
+     */
+    public void index(Collection<Book> updates) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : updates) {
+                if (book.id() != null) {
+                    indexBook(book);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keeps the index up to date with books saved or enriched through
+     * {@link BookService}.
+     */
+    @EventListener
+    public void onBooksChanged(BooksChangedEvent event) {
+        index(event.books());
+        event.updates().forEach(update -> update(update.bookId(), update.change()));
+    }
+
+    /**
+     * Replaces the stored version of an indexed book with the result of the given
+     * function, atomically with respect to other updates. Meant for changes of
+     * columns that are not indexed, such as genres or summary; the terms of the
+     * book are kept.
+     *
+     * @return the updated book, or {@code null} if the book is not indexed
+     */
+    public Book update(String bookId, UnaryOperator<Book> change) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(bookId);
+            if (ordinal == null) {
+                return null;
+            }
+            books[ordinal] = change.apply(books[ordinal]);
+            return books[ordinal];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discards the current content and indexes the given catalog.
+     */
+    public void rebuild(Collection<Book> catalog) {
+        lock.writeLock().lock();
+        try {
+            labels = new char[1024];
+            firstChild = new int[1024];
+            nextSibling = new int[1024];
+            subtreePostings = new int[1024];
+            postings = new PostingList[1024];
+            Arrays.fill(firstChild, -1);
+            Arrays.fill(nextSibling, -1);
+            nodeCount = 1;
+            ordinalById.clear();
+            books = new Book[Math.max(256, catalog.size())];
+            tokens = new String[books.length][];
+            documentCount = 0;
+            for (Book book : catalog) {
+                if (book.id() != null) {
+                    indexBook(book);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds books whose title, authors or publisher contain a term starting with
+     * each term of the query, e.g. {@code "tolk hob"} matches "The Hobbit" by
+     * "J.R.R. Tolkien".
+     *
+     * @param query
+     *            the text typed by the user
+     * @param limit
+     *            the maximum number of books to return
+     * @return the matching books, at most {@code limit}
+     */
+    public List<Book> search(String query, int limit) {
+        String[] queryTerms = tokenize(query).toArray(String[]::new);
+        if (queryTerms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            // Start from the term whose subtree has the fewest postings
+            int pivot = -1;
+            int pivotNode = -1;
+            for (int i = 0; i < queryTerms.length; i++) {
+                int node = findNode(queryTerms[i]);
+                if (node < 0) {
+                    return List.of();
+                }
+                if (pivotNode < 0 || subtreePostings[node] < subtreePostings[pivotNode]) {
+                    pivot = i;
+                    pivotNode = node;
+                }
+            }
+            List<Book> result = new ArrayList<>(Math.min(limit, subtreePostings[pivotNode]));
+            collect(pivotNode, queryTerms, pivot, new BitSet(documentCount), result, limit);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Depth-first walk of the subtree, returns {@code false} once the limit has
+     * been reached.
+     */
+    private boolean collect(int node, String[] queryTerms, int pivot, BitSet seen, List<Book> result, int limit) {
+        PostingList list = postings[node];
+        if (list != null) {
+            for (int i = 0; i < list.size; i++) {
+                int ordinal = list.values[i];
+                if (seen.get(ordinal)) {
+                    continue;
+                }
+                seen.set(ordinal);
+                if (matchesAll(tokens[ordinal], queryTerms, pivot)) {
+                    result.add(books[ordinal]);
+                    if (result.size() >= limit) {
+                        return false;
+                    }
+                }
+            }
+        }
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+            if (!collect(child, queryTerms, pivot, seen, result, limit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAll(String[] documentTerms, String[] queryTerms, int pivot) {
+        for (int i = 0; i < queryTerms.length; i++) {
+            if (i == pivot) {
+                continue;
+            }
+            boolean found = false;
+            for (String term : documentTerms) {
+                if (term.startsWith(queryTerms[i])) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void indexBook(Book book) {
+        Integer existing = ordinalById.get(book.id());
+        int ordinal;
+        if (existing != null) {
+            ordinal = existing;
+            for (String term : tokens[ordinal]) {
+                removePosting(term, ordinal);
+            }
+        } else {
+            ordinal = documentCount++;
+            if (ordinal == books.length) {
+                books = Arrays.copyOf(books, ordinal * 2);
+                tokens = Arrays.copyOf(tokens, ordinal * 2);
+            }
+            ordinalById.put(book.id(), ordinal);
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        terms.addAll(tokenize(book.title()));
+        terms.addAll(tokenize(book.authors()));
+        terms.addAll(tokenize(book.publisher()));
+        books[ordinal] = book;
+        tokens[ordinal] = terms.toArray(String[]::new);
+        for (String term : terms) {
+            addPosting(term, ordinal);
+        }
+    }
+
+    private void addPosting(String term, int ordinal) {
+        int node = ROOT;
+        subtreePostings[node]++;
+        for (int i = 0; i < term.length(); i++) {
+            node = childOrCreate(node, term.charAt(i));
+            subtreePostings[node]++;
+        }
+        if (postings[node] == null) {
+            postings[node] = new PostingList();
+        }
+        postings[node].add(ordinal);
+    }
+
+    private void removePosting(String term, int ordinal) {
+        int node = findNode(term);
+        if (node < 0 || postings[node] == null || !postings[node].remove(ordinal)) {
+            return;
+        }
+        node = ROOT;
+        subtreePostings[node]--;
+        for (int i = 0; i < term.length(); i++) {
+            node = child(node, term.charAt(i));
+            subtreePostings[node]--;
+        }
+    }
+
+    private int findNode(String term) {
+        int node = ROOT;
+        for (int i = 0; i < term.length() && node >= 0; i++) {
+            node = child(node, term.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char label) {
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+            if (labels[child] == label) {
+                return child;
+            }
+            if (labels[child] > label) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private int childOrCreate(int node, char label) {
+        int previous = -1;
+        int child = firstChild[node];
+        while (child >= 0 && labels[child] < label) {
+            previous = child;
+            child = nextSibling[child];
+        }
+        if (child >= 0 && labels[child] == label) {
+            return child;
+        }
+        int created = newNode(label);
+        nextSibling[created] = child;
+        if (previous < 0) {
+            firstChild[node] = created;
+        } else {
+            nextSibling[previous] = created;
+        }
+        return created;
+    }
+
+    private int newNode(char label) {
+        if (nodeCount == labels.length) {
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            subtreePostings = Arrays.copyOf(subtreePostings, capacity);
+            postings = Arrays.copyOf(postings, capacity);
+            Arrays.fill(firstChild, nodeCount, capacity, -1);
+            Arrays.fill(nextSibling, nodeCount, capacity, -1);
+        }
+        int node = nodeCount++;
+        labels[node] = label;
+        return node;
+    }
+
+    /**
+     * Splits the text into normalized terms: accents are removed, letters are
+     * lower-cased and anything that is not a letter or a digit separates terms.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = isAscii(text) ? text.toLowerCase(Locale.ROOT)
+                : DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                        .toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        for (String term : TOKEN_SEPARATOR.split(normalized)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Growable sorted array of document ordinals.
+     */
+    private static final class PostingList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int ordinal) {
+            int position = Arrays.binarySearch(values, 0, size, ordinal);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = ordinal;
+            size++;
+        }
+
+        boolean remove(int ordinal) {
+            int position = Arrays.binarySearch(values, 0, size, ordinal);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
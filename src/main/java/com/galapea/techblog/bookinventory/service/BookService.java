@@ -1,14 +1,28 @@
 package com.galapea.techblog.bookinventory.service;
 
+import com.galapea.techblog.base.griddb.GridDbRowQuarantine;
+import com.galapea.techblog.base.griddb.GridDbWorkload;
+import com.galapea.techblog.base.griddb.query.Assignment;
+import com.galapea.techblog.base.griddb.query.Sort;
 import com.galapea.techblog.bookinventory.domain.Book;
 import com.galapea.techblog.bookinventory.domain.BookAIReply;
+import com.galapea.techblog.bookinventory.domain.BookColumns;
 import com.galapea.techblog.bookinventory.domain.BookContainer;
+import com.galapea.techblog.bookinventory.domain.BookFilter;
+import com.galapea.techblog.bookinventory.domain.BookWriteBehindBuffer;
 import com.github.f4b6a3.tsid.TsidCreator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -19,10 +33,24 @@ public class BookService {
     private final ConcurrentHashMap<String, Book> bookStore = new ConcurrentHashMap<>();
     private final BookAssistant bookAssistant;
     private final BookContainer bookContainer;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookDuplicateIndex bookDuplicateIndex;
+    private final BookCatalog bookCatalog;
+    private final BookWriteBehindBuffer writeBehindBuffer;
+    private final Clock clock;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public BookService(BookAssistant bookAssistant, BookContainer bookContainer) {
+    public BookService(BookAssistant bookAssistant, BookContainer bookContainer, BookSearchIndex bookSearchIndex,
+            BookDuplicateIndex bookDuplicateIndex, BookCatalog bookCatalog, BookWriteBehindBuffer writeBehindBuffer,
+            Clock clock, ApplicationEventPublisher eventPublisher) {
         this.bookAssistant = bookAssistant;
         this.bookContainer = bookContainer;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookDuplicateIndex = bookDuplicateIndex;
+        this.bookCatalog = bookCatalog;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.clock = clock;
+        this.eventPublisher = eventPublisher;
     }
 
     private void createBook(Book book) {
@@ -38,18 +66,100 @@ public class BookService {
         bookStore.put(id, book);
     }
 
+    /**
+     * @return every book, newest first, served from the shared
+     *         {@link BookCatalog}
+     */
     public List<Book> listBooks() {
-        return this.bookContainer.getBooks();
+        return this.bookCatalog.snapshot().books();
     }
 
+    /**
+     * Returns one page of the catalog, newest first, for lazy loading grids.
+     */
+    public List<Book> fetchBooks(int offset, int limit) {
+        return this.bookCatalog.snapshot().page(offset, limit);
+    }
+
+    public int countBooks() {
+        return this.bookCatalog.snapshot().size();
+    }
+
+    /**
+     * Finds books by rating range, publisher and/or author. The filter is
+     * evaluated by GridDB; results are sorted by rating, best first.
+     */
+    public List<Book> findBooks(BookFilter filter, int limit) {
+        return this.bookContainer.findBooks(filter.toCriteria(),
+                Sort.by(BookColumns.RATING.desc()).then(BookColumns.ID.desc()), limit);
+    }
+
+    /**
+     * Search-as-you-type over title, authors and publisher, served from the
+     * in-memory {@link BookSearchIndex}.
+     */
+    public List<Book> searchBooks(String query, int limit) {
+        return this.bookSearchIndex.search(query, limit);
+    }
+
+    /**
+     * Rebuilds the search index from the catalog.
+     */
+    public void rebuildSearchIndex() {
+        List<Book> catalog = this.bookCatalog.snapshot().books();
+        this.bookSearchIndex.rebuild(catalog);
+        log.info("Search index rebuilt with {} books", catalog.size());
+    }
+
+    /**
+     * Rebuilds the near-duplicate index from the catalog.
+     */
+    public void rebuildDuplicateIndex() {
+        List<Book> catalog = this.bookCatalog.snapshot().books();
+        this.bookDuplicateIndex.rebuild(catalog);
+        log.info("Duplicate index rebuilt with {} books", catalog.size());
+    }
+
+    /**
+     * Finds books that are probably the same as the given one, e.g. to warn
+     * before a manually entered book is saved.
+     */
+    public List<BookDuplicateIndex.Match> findSimilarBooks(Book book, int limit) {
+        return this.bookDuplicateIndex.similarTo(book, limit);
+    }
+
+    /**
+     * Lists pairs of books in the catalog that are probably duplicates, most
+     * similar first.
+     */
+    public List<BookDuplicateIndex.Pair> findDuplicateCandidates(int limit) {
+        return this.bookDuplicateIndex.duplicates(limit);
+    }
+
+    /**
+     * Returns a book from the catalog, falling back to GridDB for books that are
+     * not in the catalog yet, e.g. written by another instance since the last
+     * reconciliation.
+     */
     public Book getBook(String id) {
-        Book book = this.bookContainer.getBook(id);
+        Book book = this.bookCatalog.snapshot().get(id);
+        if (book == null) {
+            book = this.bookContainer.getBook(id);
+        }
         if (book == null) {
             throw new IllegalArgumentException("Book with ID " + id + " does not exist.");
         }
         return book;
     }
 
+    /**
+     * @return the catalog version of a book, or {@code null} if the book is not in
+     *         the catalog
+     */
+    public Book findBook(String id) {
+        return this.bookCatalog.snapshot().get(id);
+    }
+
     private void updateBook(String id, Book updatedBook) {
         if (!bookStore.containsKey(id)) {
             throw new IllegalArgumentException("Book with ID " + id + " does not exist.");
@@ -71,14 +181,17 @@ public class BookService {
             throw new IllegalArgumentException("Book with ID " + bookId + " does not exist.");
         }
 
-        BookAIReply reply = bookAssistant.findBookSummary(book.title(), book.authors());
+        BookAIReply reply = bookAssistant.findBookSummary(bookId, book.title(), book.authors());
         String summary = reply.value();
         if (summary == null || summary.isEmpty()) {
             throw new IllegalArgumentException("Failed to generate summary for book with ID " + bookId);
         }
-        Book updated = new Book(book.id(), book.title(), book.authors(), book.publisher(), book.rating(), book.genres(),
-                summary, book.goodreadsBookId(), reply.sourceUrl());
-        saveBooks(List.of(updated));
+        // Only the summary and source URL columns are written, see BookContainer.updateBook
+        Instant updatedAt = now();
+        updateColumns(bookId, updatedAt, BookColumns.SUMMARY.set(summary),
+                BookColumns.GOODREADS_URL.set(reply.sourceUrl()));
+        this.eventPublisher.publishEvent(BooksChangedEvent.updated(bookId,
+                current -> current.withSummary(summary, reply.sourceUrl()).withUpdatedAt(updatedAt)));
     }
 
     public void generateGenre(String bookId) {
@@ -87,12 +200,24 @@ public class BookService {
             throw new IllegalArgumentException("Book with ID " + bookId + " does not exist.");
         }
 
-        BookAIReply reply = bookAssistant.findBookGenre(book.title(), book.authors());
+        BookAIReply reply = bookAssistant.findBookGenre(bookId, book.title(), book.authors());
         String genres = reply.value();
         log.info("Fetched genre for book with ID {}: {}", bookId, genres);
-        Book updated = new Book(book.id(), book.title(), book.authors(), book.publisher(), book.rating(), genres,
-                book.summary(), book.goodreadsBookId(), book.goodreadsUrl());
-        saveBooks(List.of(updated));
+        Instant updatedAt = now();
+        updateColumns(bookId, updatedAt, BookColumns.GENRES.set(genres));
+        this.eventPublisher.publishEvent(BooksChangedEvent.updated(bookId,
+                current -> current.withGenres(genres).withUpdatedAt(updatedAt)));
+    }
+
+    // A buffered full row of the book is written first, so that it cannot overwrite the updated columns later
+    private void updateColumns(String bookId, Instant updatedAt, Assignment... assignments) {
+        this.writeBehindBuffer.awaitWritten(bookId);
+        GridDbWorkload.ENRICHMENT.run(() -> this.bookContainer.updateBook(bookId, updatedAt, assignments));
+    }
+
+    // GridDB keeps milliseconds, so that books read back equal the published ones
+    private Instant now() {
+        return clock.instant().truncatedTo(ChronoUnit.MILLIS);
     }
 
     @Async
@@ -121,21 +246,87 @@ public class BookService {
         }
     }
 
+    /**
+     * Creates the Books container, or adds the columns missing from a container
+     * created by an earlier version.
+     */
     public void createTableBooks() {
         this.bookContainer.createTableBooks();
+        this.bookContainer.migrateTableBooks();
     }
 
+    /**
+     * Saves the given books, assigning ids to new books, and waits until they are
+     * written to GridDB.
+     */
     public void saveBooks(List<Book> books) {
+        try {
+            saveBooksAsync(books).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Saves the given books, assigning ids to new books and stamping
+     * {@code updatedAt}. A book that already has an id replaces the stored book
+     * with that id, see
+     * {@link BookContainer#saveBooks(List)}. With write-behind enabled
+     * the books are buffered and written in batches, otherwise they are written
+     * immediately. A {@link BooksChangedEvent} is published once the books are
+     * written. If GridDB rejected some of them, the event carries only the
+     * others and the future fails with a
+     * {@link GridDbRowQuarantine.PartialWriteException} listing the rejected
+     * books of this call.
+     *
+     * @return a future that completes when the books are durably written to
+     *         GridDB, or exceptionally if the write failed
+     */
+    public CompletableFuture<Void> saveBooksAsync(List<Book> books) {
         if (books == null || books.isEmpty()) {
             log.warn("No books to save.");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
+        Instant updatedAt = now();
         List<Book> newBooks = books.stream().map(book -> {
             String id = (book.id() != null) ? book.id() : nextId();
             return new Book(id, book.title(), book.authors(), book.publisher(), book.rating(), book.genres(),
-                    book.summary(), book.goodreadsBookId(), book.goodreadsUrl());
+                    book.summary(), book.goodreadsBookId(), book.goodreadsUrl(), updatedAt);
         }).collect(Collectors.toList());
-        this.bookContainer.saveBooks(newBooks);
+        CompletableFuture<Void> written;
+        if (this.writeBehindBuffer.isEnabled()) {
+            written = this.writeBehindBuffer.submit(newBooks);
+        } else {
+            try {
+                this.bookContainer.saveBooks(newBooks);
+                written = CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                written = CompletableFuture.failedFuture(e);
+            }
+        }
+        return written.handle((result, e) -> {
+            if (e == null) {
+                this.eventPublisher.publishEvent(new BooksChangedEvent(newBooks));
+                return null;
+            }
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (!(cause instanceof GridDbRowQuarantine.PartialWriteException partialWrite)) {
+                throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+            }
+            // A write-behind batch may also hold the books of other calls, or a later version of one of these
+            Set<String> rejectedIds = partialWrite.getRejected().stream().map(book -> ((Book) book).id())
+                    .collect(Collectors.toSet());
+            List<Book> rejected = newBooks.stream().filter(book -> rejectedIds.contains(book.id())).toList();
+            List<Book> saved = newBooks.stream().filter(book -> !rejectedIds.contains(book.id())).toList();
+            if (!saved.isEmpty()) {
+                this.eventPublisher.publishEvent(new BooksChangedEvent(saved));
+            }
+            throw new CompletionException(new GridDbRowQuarantine.PartialWriteException(
+                    rejected.size() + " of " + newBooks.size() + " books rejected by GridDB", partialWrite, rejected));
+        });
     }
 
     public static String nextId() {
@@ -0,0 +1,66 @@
+package com.galapea.techblog.bookinventory.service;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+import com.galapea.techblog.bookinventory.domain.Book;
+
+/**
+ * Published after books were created or changed, e.g. by an upload or an AI
+ * enrichment.
+ *
+ * @param books
+ *            the new version of every created or replaced book
+ * @param updates
+ *            changes of single columns of books, applied by listeners to their
+ *            current version of the book
+ * @param origin
+ *            where the change was made
+ */
+public record BooksChangedEvent(List<Book> books, List<Update> updates, Origin origin) {
+    /**
+     * Where a change was made.
+     */
+    public enum Origin {
+        /** Written through {@link BookService} in this instance. */
+        LOCAL,
+        /**
+         * Found in GridDB by {@link BookCatalog} reconciliation, e.g. written by
+         * another instance.
+         */
+        GRIDDB
+    }
+
+    /**
+     * A change of some columns of a book that leaves its other columns as they
+     * are, e.g. the genres found by an AI enrichment. Carrying the change rather
+     * than a copy of the book keeps concurrent updates of different columns of
+     * one book from overwriting each other.
+     *
+     * @param bookId
+     *            the id of the changed book
+     * @param change
+     *            sets the changed columns on a version of the book
+     */
+    public record Update(String bookId, UnaryOperator<Book> change) {
+    }
+
+    public BooksChangedEvent {
+        books = List.copyOf(books);
+        updates = List.copyOf(updates);
+    }
+
+    public BooksChangedEvent(List<Book> books, Origin origin) {
+        this(books, List.of(), origin);
+    }
+
+    public BooksChangedEvent(List<Book> books) {
+        this(books, Origin.LOCAL);
+    }
+
+    /**
+     * @return an event for a change of some columns of one book
+     */
+    public static BooksChangedEvent updated(String bookId, UnaryOperator<Book> change) {
+        return new BooksChangedEvent(List.of(), List.of(new Update(bookId, change)), Origin.LOCAL);
+    }
+}
@@ -0,0 +1,204 @@
+package com.galapea.techblog.bookinventory.ui.view;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.List;
+import com.galapea.techblog.base.ui.component.ViewToolbar;
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.CatalogStatistics;
+import com.galapea.techblog.bookinventory.service.BookAnalyticsService;
+import com.galapea.techblog.bookinventory.service.BookDuplicateIndex;
+import com.galapea.techblog.bookinventory.service.BookService;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.combobox.ComboBox;
+import com.vaadin.flow.component.grid.ColumnTextAlign;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridVariant;
+import com.vaadin.flow.component.html.Anchor;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.H3;
+import com.vaadin.flow.component.html.Main;
+import com.vaadin.flow.component.html.NativeLabel;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.NotificationVariant;
+import com.vaadin.flow.component.orderedlayout.FlexComponent.Alignment;
+import com.vaadin.flow.component.orderedlayout.FlexLayout;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.component.textfield.NumberField;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.data.value.ValueChangeMode;
+import com.vaadin.flow.router.Menu;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.theme.lumo.LumoUtility;
+
+@Route("analytics")
+@PageTitle("Catalog Analytics")
+@Menu(order = 1, icon = "vaadin:chart", title = "Analytics")
+public class AnalyticsView extends Main {
+    private static final DateTimeFormatter COMPUTED_AT = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM)
+            .withZone(ZoneId.systemDefault());
+    private static final int DUPLICATE_LIMIT = 20;
+    private final BookAnalyticsService analyticsService;
+    private final BookService bookService;
+    private final NativeLabel computedAtLabel = new NativeLabel();
+    private final NumberField minRatingField = new NumberField();
+    private final ComboBox<String> genreField = new ComboBox<>();
+    private final TextField publisherField = new TextField();
+    private final FlexLayout content = new FlexLayout();
+    private boolean genresLoaded;
+
+    public AnalyticsView(BookAnalyticsService analyticsService, BookService bookService) {
+        this.analyticsService = analyticsService;
+        this.bookService = bookService;
+        Button refreshButton = new Button("Refresh", VaadinIcon.REFRESH.create(), event -> {
+            try {
+                analyticsService.refresh();
+                load();
+            } catch (RuntimeException e) {
+                Notification.show("Refresh failed: " + e.getMessage(), 4000, Notification.Position.BOTTOM_END)
+                        .addThemeVariants(NotificationVariant.LUMO_ERROR);
+            }
+        });
+        computedAtLabel.addClassName(LumoUtility.TextColor.SECONDARY);
+        minRatingField.setPlaceholder("Min rating");
+        minRatingField.setMin(0);
+        minRatingField.setMax(5);
+        minRatingField.setStep(0.5);
+        minRatingField.setClearButtonVisible(true);
+        genreField.setPlaceholder("Genre");
+        genreField.setClearButtonVisible(true);
+        publisherField.setPlaceholder("Publisher");
+        publisherField.setClearButtonVisible(true);
+        publisherField.setValueChangeMode(ValueChangeMode.LAZY);
+        minRatingField.addValueChangeListener(event -> load());
+        genreField.addValueChangeListener(event -> load());
+        publisherField.addValueChangeListener(event -> load());
+        add(new ViewToolbar("Catalog Analytics", ViewToolbar.group(minRatingField, genreField, publisherField),
+                ViewToolbar.group(computedAtLabel, refreshButton)));
+
+        content.setFlexWrap(FlexLayout.FlexWrap.WRAP);
+        content.addClassName(LumoUtility.Gap.LARGE);
+        add(content);
+
+        setSizeFull();
+        addClassNames(LumoUtility.BoxSizing.BORDER, LumoUtility.Display.FLEX, LumoUtility.FlexDirection.COLUMN,
+                LumoUtility.Padding.MEDIUM, LumoUtility.Gap.SMALL, LumoUtility.Overflow.AUTO);
+        addAttachListener(event -> load());
+    }
+
+    // Unfiltered statistics come from GridDB, filtered ones from the in-memory catalog
+    private void load() {
+        BookAnalyticsService.Filter filter = new BookAnalyticsService.Filter(minRatingField.getValue(),
+                genreField.getValue(), publisherField.getValue());
+        try {
+            if (!genresLoaded) {
+                genreField.setItems(analyticsService.genres());
+                genresLoaded = true;
+            }
+            if (filter.isEmpty()) {
+                BookAnalyticsService.Analytics analytics = analyticsService.analytics();
+                computedAtLabel.setText("Computed " + COMPUTED_AT.format(analytics.computedAt()));
+                show(analytics.statistics());
+                content.add(section("Possible duplicates",
+                        duplicates(bookService.findDuplicateCandidates(DUPLICATE_LIMIT))));
+            } else {
+                computedAtLabel.setText("Filtered from the in-memory catalog");
+                show(analyticsService.statistics(filter));
+            }
+        } catch (RuntimeException e) {
+            content.removeAll();
+            content.add(new Span("Statistics are not available: " + e.getMessage()));
+        }
+    }
+
+    private void show(CatalogStatistics statistics) {
+        content.removeAll();
+        content.add(section("Overview", overview(statistics)));
+        content.add(section("Ratings", bars(statistics.ratingHistogram())));
+        content.add(section("Genres", bars(statistics.topGenres())));
+        content.add(section("Top publishers", table(statistics.topPublishers(), "Publisher")));
+        content.add(section("Top authors", table(statistics.topAuthors(), "Authors")));
+    }
+
+    private static Component overview(CatalogStatistics statistics) {
+        ProgressBar missingSummaries = new ProgressBar(0, 1, statistics.missingSummaryShare());
+        VerticalLayout layout = new VerticalLayout(new Span(String.format("%,d books", statistics.totalBooks())),
+                new Span(statistics.averageRating() == null ? "No ratings"
+                        : String.format("Average rating %.2f", statistics.averageRating())),
+                new Span(String.format("%.0f%% without summary (%,d books)", statistics.missingSummaryShare() * 100,
+                        statistics.totalBooks() - statistics.booksWithSummary())),
+                missingSummaries);
+        layout.setPadding(false);
+        return layout;
+    }
+
+    // Horizontal bars scaled to the largest group
+    private static Component bars(List<CatalogStatistics.Count> counts) {
+        VerticalLayout layout = new VerticalLayout();
+        layout.setPadding(false);
+        layout.setSpacing(false);
+        long max = counts.stream().mapToLong(CatalogStatistics.Count::books).max().orElse(0);
+        if (counts.isEmpty()) {
+            layout.add(new Span("No data"));
+        }
+        for (CatalogStatistics.Count count : counts) {
+            Span name = new Span(count.name());
+            name.setWidth("10em");
+            ProgressBar bar = new ProgressBar(0, Math.max(1, max), count.books());
+            bar.setWidth("12em");
+            Span books = new Span(String.format("%,d", count.books()));
+            books.addClassName(LumoUtility.TextColor.SECONDARY);
+            HorizontalLayout row = new HorizontalLayout(name, bar, books);
+            row.setAlignItems(Alignment.CENTER);
+            layout.add(row);
+        }
+        return layout;
+    }
+
+    private static Component table(List<CatalogStatistics.Count> counts, String header) {
+        Grid<CatalogStatistics.Count> grid = new Grid<>(CatalogStatistics.Count.class, false);
+        grid.addColumn(CatalogStatistics.Count::name).setHeader(header).setFlexGrow(1);
+        grid.addColumn(count -> String.format("%,d", count.books())).setHeader("Books")
+                .setTextAlign(ColumnTextAlign.END).setAutoWidth(true).setFlexGrow(0);
+        grid.addColumn(count -> count.averageRating() == null ? "-" : String.format("%.2f", count.averageRating()))
+                .setHeader("Avg rating").setTextAlign(ColumnTextAlign.END).setAutoWidth(true).setFlexGrow(0);
+        grid.addThemeVariants(GridVariant.LUMO_COMPACT);
+        grid.setAllRowsVisible(true);
+        grid.setItems(counts);
+        return grid;
+    }
+
+    private static Component duplicates(List<BookDuplicateIndex.Pair> pairs) {
+        if (pairs.isEmpty()) {
+            return new Span("No similar titles found");
+        }
+        Grid<BookDuplicateIndex.Pair> grid = new Grid<>(BookDuplicateIndex.Pair.class, false);
+        grid.addComponentColumn(pair -> bookLink(pair.first())).setHeader("Book").setFlexGrow(1);
+        grid.addComponentColumn(pair -> bookLink(pair.second())).setHeader("Similar to").setFlexGrow(1);
+        grid.addColumn(pair -> String.format("%.0f%%", pair.similarity() * 100)).setHeader("Similarity")
+                .setTextAlign(ColumnTextAlign.END).setAutoWidth(true).setFlexGrow(0);
+        grid.addThemeVariants(GridVariant.LUMO_COMPACT);
+        grid.setAllRowsVisible(true);
+        grid.setItems(pairs);
+        return grid;
+    }
+
+    private static Component bookLink(Book book) {
+        Anchor anchor = new Anchor("/book-detail/" + book.id(), book.title());
+        anchor.setTitle(book.authors() == null ? "" : book.authors());
+        return anchor;
+    }
+
+    private static Component section(String title, Component body) {
+        Div section = new Div(new H3(title), body);
+        section.setWidth("28em");
+        return section;
+    }
+}
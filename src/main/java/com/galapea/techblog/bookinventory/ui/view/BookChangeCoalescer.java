@@ -0,0 +1,107 @@
+package com.galapea.techblog.bookinventory.ui.view;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.service.BookChangeFeed;
+import com.galapea.techblog.bookinventory.service.BooksChangedEvent;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+
+/**
+ * Subscribes a view to the {@link BookChangeFeed} while it is attached and
+ * pushes changed books to it.
+ * <p>
+ * Changes arriving while an update is already queued for the session are merged
+ * into that update (last version per book id), so a burst of changes results in
+ * a single {@code UI.access} round trip.
+ * </p>
+ * <p>
+ * Books of which only some columns changed are looked up when the update runs,
+ * so the view gets the version with every column update applied so far rather
+ * than a copy taken by one of several concurrent updates.
+ * </p>
+ */
+final class BookChangeCoalescer {
+    private final Object lock = new Object();
+    private final BookChangeFeed feed;
+    private final Consumer<Collection<Book>> apply;
+    private final Function<String, Book> lookup;
+    // A null value marks a book to look up
+    private Map<String, Book> pending = new LinkedHashMap<>();
+    private BookChangeFeed.Subscription subscription;
+    private UI ui;
+
+    /**
+     * @param view
+     *            the view to update
+     * @param feed
+     *            the change feed
+     * @param apply
+     *            applies the changed books to the view, called with the session
+     *            lock held
+     * @param lookup
+     *            returns the current version of a book, or {@code null} if it
+     *            does not exist
+     */
+    BookChangeCoalescer(Component view, BookChangeFeed feed, Consumer<Collection<Book>> apply,
+            Function<String, Book> lookup) {
+        this.feed = feed;
+        this.apply = apply;
+        this.lookup = lookup;
+        view.addAttachListener(event -> {
+            ui = event.getUI();
+            subscription = this.feed.subscribe(this::onBooksChanged);
+        });
+        view.addDetachListener(event -> cancel());
+    }
+
+    private void cancel() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+        synchronized (lock) {
+            pending = new LinkedHashMap<>();
+        }
+    }
+
+    private void onBooksChanged(BooksChangedEvent event) {
+        boolean schedule;
+        synchronized (lock) {
+            schedule = pending.isEmpty();
+            for (Book book : event.books()) {
+                pending.put(book.id(), book);
+            }
+            for (BooksChangedEvent.Update update : event.updates()) {
+                pending.put(update.bookId(), null);
+            }
+        }
+        UI target = ui;
+        if (schedule && target != null) {
+            try {
+                target.access(this::drain);
+            } catch (UIDetachedException e) {
+                cancel();
+            }
+        }
+    }
+
+    private void drain() {
+        Map<String, Book> changes;
+        synchronized (lock) {
+            changes = pending;
+            pending = new LinkedHashMap<>();
+        }
+        changes.replaceAll((bookId, book) -> book != null ? book : lookup.apply(bookId));
+        changes.values().removeIf(Objects::isNull);
+        if (!changes.isEmpty()) {
+            apply.accept(changes.values());
+        }
+    }
+}
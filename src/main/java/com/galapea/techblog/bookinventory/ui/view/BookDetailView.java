@@ -1,6 +1,7 @@
 package com.galapea.techblog.bookinventory.ui.view;
 
 import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.service.BookChangeFeed;
 import com.galapea.techblog.bookinventory.service.BookService;
 import com.vaadin.flow.component.Text;
 import com.vaadin.flow.component.UI;
@@ -31,8 +32,11 @@ public class BookDetailView extends VerticalLayout implements HasUrlParameter<St
     private NativeLabel progresLabel;
     private Button fetchSummaryBtn;
 
-    public BookDetailView(BookService bookService) {
+    public BookDetailView(BookService bookService, BookChangeFeed bookChangeFeed) {
         this.bookService = bookService;
+        new BookChangeCoalescer(this, bookChangeFeed, changed -> changed.stream()
+                .filter(book -> book.id().equals(bookId)).findFirst().ifPresent(this::showBook),
+                bookService::findBook);
         Button backButton = new Button("Back", e -> getUI().ifPresent(ui -> ui.navigate("book-list")));
         add(backButton);
         content = new FormLayout();
@@ -88,7 +92,6 @@ public class BookDetailView extends VerticalLayout implements HasUrlParameter<St
         progressBar.setVisible(false);
         progressBar.setValue(0);
         progresLabel.setVisible(false);
-        setParameter(null, result);
     }
 
     private void onJobFailed(Exception error) {
@@ -114,8 +117,11 @@ public class BookDetailView extends VerticalLayout implements HasUrlParameter<St
 
     @Override
     public void setParameter(BeforeEvent event, String parameter) {
+        showBook(bookService.getBook(parameter));
+    }
+
+    private void showBook(Book book) {
         content.removeAll();
-        Book book = bookService.getBook(parameter);
         if (book == null) {
             content.add(new Text("Book not found."));
         } else {
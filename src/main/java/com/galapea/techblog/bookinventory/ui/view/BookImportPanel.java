@@ -0,0 +1,159 @@
+package com.galapea.techblog.bookinventory.ui.view;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import com.galapea.techblog.bookinventory.seeder.BookCsvImporter;
+import com.galapea.techblog.bookinventory.seeder.BookCsvImporter.ImportJob;
+import com.galapea.techblog.bookinventory.seeder.BookCsvImporter.Progress;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.button.ButtonVariant;
+import com.vaadin.flow.component.html.NativeLabel;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.NotificationVariant;
+import com.vaadin.flow.component.orderedlayout.FlexComponent.Alignment;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.component.upload.Upload;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.theme.lumo.LumoUtility;
+
+/**
+ * CSV upload with live import progress.
+ * <p>
+ * The uploaded bytes are piped straight into a {@link BookCsvImporter} job
+ * instead of being buffered, so the file is parsed and written to GridDB while
+ * it is being received. Progress (bytes received, rows written and rows per
+ * second) is refreshed by polling while the job runs, and the job can be
+ * cancelled.
+ * </p>
+ */
+class BookImportPanel extends HorizontalLayout {
+    private static final int PIPE_BUFFER_SIZE = 256 * 1024;
+    private static final int POLL_INTERVAL_MILLIS = 500;
+
+    private final Upload upload;
+    private final ProgressBar progressBar = new ProgressBar();
+    private final NativeLabel progressLabel = new NativeLabel();
+    private final Button cancelButton = new Button("Cancel import");
+    private ImportJob job;
+    private long contentLength = -1;
+    private Registration pollRegistration;
+
+    BookImportPanel(BookCsvImporter importer, long maxFileSize) {
+        upload = new Upload((fileName, mimeType) -> {
+            try {
+                PipedInputStream input = new PipedInputStream(PIPE_BUFFER_SIZE);
+                PipedOutputStream output = new PipedOutputStream(input);
+                startJob(importer.start(fileName, input));
+                return output;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        upload.setAcceptedFileTypes("text/csv");
+        upload.setMaxFileSize((int) Math.min(Integer.MAX_VALUE, maxFileSize));
+        upload.setMaxFiles(1);
+        Button uploadButton = new Button("Upload CSV");
+        uploadButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+        upload.setUploadButton(uploadButton);
+        upload.addStartedListener(event -> contentLength = event.getContentLength());
+        upload.addFailedListener(event -> {
+            if (job == null || job.progress().state() == BookCsvImporter.State.RUNNING) {
+                Notification.show("Upload failed", 4000, Notification.Position.BOTTOM_END)
+                        .addThemeVariants(NotificationVariant.LUMO_ERROR);
+            }
+        });
+        upload.addFileRejectedListener(event -> {
+            Notification.show("File rejected", 4000, Notification.Position.BOTTOM_END)
+                    .addThemeVariants(NotificationVariant.LUMO_ERROR);
+        });
+        upload.getElement().addEventListener("max-files-reached-changed", event -> {
+            boolean maxFilesReached = event.getEventData().getBoolean("event.detail.value");
+            uploadButton.setEnabled(!maxFilesReached);
+        }).addEventData("event.detail.value");
+
+        progressBar.setWidth("15em");
+        progressLabel.addClassName(LumoUtility.TextColor.SECONDARY);
+        cancelButton.addThemeVariants(ButtonVariant.LUMO_ERROR, ButtonVariant.LUMO_TERTIARY);
+        cancelButton.addClickListener(event -> {
+            if (job != null) {
+                job.cancel();
+                upload.interruptUpload();
+            }
+        });
+        setImportVisible(false);
+        setAlignItems(Alignment.CENTER);
+        add(upload, progressBar, progressLabel, cancelButton);
+        addDetachListener(event -> stopPolling());
+    }
+
+    private void startJob(ImportJob started) {
+        job = started;
+        setImportVisible(true);
+        progressBar.setIndeterminate(contentLength <= 0);
+        progressBar.setValue(0);
+        progressLabel.setText("Importing " + started.fileName() + "...");
+        getUI().ifPresent(ui -> {
+            stopPolling();
+            ui.setPollInterval(POLL_INTERVAL_MILLIS);
+            pollRegistration = ui.addPollListener(event -> refresh());
+        });
+    }
+
+    private void refresh() {
+        if (job == null) {
+            return;
+        }
+        Progress progress = job.progress();
+        if (contentLength > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setValue(Math.min(1.0, (double) progress.bytesRead() / contentLength));
+        }
+        progressLabel.setText(String.format("%,d rows imported, %,d already present, %,.0f rows/s",
+                progress.rowsWritten(), progress.rowsSkipped(), progress.rowsPerSecond()));
+        if (progress.isDone()) {
+            finish(progress);
+        }
+    }
+
+    private void finish(Progress progress) {
+        stopPolling();
+        job = null;
+        contentLength = -1;
+        setImportVisible(false);
+        upload.clearFileList();
+        String summary = String.format("%,d books imported in %d s", progress.rowsWritten(),
+                progress.elapsed().toSeconds());
+        if (progress.rowsSkipped() > 0) {
+            summary += String.format(", %,d already present", progress.rowsSkipped());
+        }
+        switch (progress.state()) {
+            case COMPLETED -> Notification
+                    .show(progress.rowsFailed() == 0 ? summary
+                            : summary + String.format(", %,d failed", progress.rowsFailed()), 5000,
+                            Notification.Position.BOTTOM_END)
+                    .addThemeVariants(progress.rowsFailed() == 0 ? NotificationVariant.LUMO_SUCCESS
+                            : NotificationVariant.LUMO_WARNING);
+            case CANCELLED -> Notification.show("Import cancelled, " + summary, 5000, Notification.Position.BOTTOM_END)
+                    .addThemeVariants(NotificationVariant.LUMO_CONTRAST);
+            default -> Notification.show("Import failed: " + progress.error(), 5000, Notification.Position.BOTTOM_END)
+                    .addThemeVariants(NotificationVariant.LUMO_ERROR);
+        }
+    }
+
+    private void stopPolling() {
+        if (pollRegistration != null) {
+            pollRegistration.remove();
+            pollRegistration = null;
+            getUI().ifPresent(ui -> ui.setPollInterval(-1));
+        }
+    }
+
+    private void setImportVisible(boolean visible) {
+        progressBar.setVisible(visible);
+        progressLabel.setVisible(visible);
+        cancelButton.setVisible(visible);
+    }
+}
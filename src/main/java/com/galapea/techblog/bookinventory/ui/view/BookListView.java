@@ -1,26 +1,37 @@
 package com.galapea.techblog.bookinventory.ui.view;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.galapea.techblog.base.ui.component.ViewToolbar;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
 import com.galapea.techblog.bookinventory.domain.Book;
-import com.galapea.techblog.bookinventory.seeder.GoodReadBookCSVParser;
+import com.galapea.techblog.bookinventory.seeder.BookCsvImporter;
+import com.galapea.techblog.bookinventory.service.BookChangeFeed;
+import com.galapea.techblog.bookinventory.service.BookDuplicateIndex;
 import com.galapea.techblog.bookinventory.service.BookService;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
+import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.grid.ColumnTextAlign;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.Anchor;
+import com.vaadin.flow.component.icon.VaadinIcon;
 import com.vaadin.flow.component.html.Main;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.notification.NotificationVariant;
 import com.vaadin.flow.component.orderedlayout.FlexComponent.Alignment;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.textfield.NumberField;
 import com.vaadin.flow.component.textfield.TextField;
-import com.vaadin.flow.component.upload.Upload;
-import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
+import com.vaadin.flow.data.provider.CallbackDataProvider;
+import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
@@ -30,14 +41,35 @@ import com.vaadin.flow.theme.lumo.LumoUtility;
 @PageTitle("Book List")
 @Menu(order = 0, icon = "vaadin:book", title = "Book List")
 public class BookListView extends Main {
+    private static final int SEARCH_LIMIT = 100;
+    private static final int SIMILAR_LIMIT = 5;
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final BookService bookService;
     private final Grid<Book> bookGrid;
+    // The whole catalog, fetched lazily page by page from the shared snapshot
+    private final CallbackDataProvider<Book, Void> catalogProvider;
+    private final List<Book> searchResults = new ArrayList<>();
+    private final ListDataProvider<Book> searchProvider;
+    private boolean searching;
+    private int catalogSize;
 
-    public BookListView(BookService bookService) {
+    public BookListView(BookService bookService, BookChangeFeed bookChangeFeed, BookCsvImporter bookCsvImporter,
+            BookInventoryProperties properties) {
         this.bookService = bookService;
         bookGrid = new Grid<>(Book.class, false);
-        bookGrid.setItems(bookService.listBooks());
+        catalogProvider = new CallbackDataProvider<>(
+                query -> bookService.fetchBooks(query.getOffset(), query.getLimit()).stream(), query -> {
+                    catalogSize = bookService.countBooks();
+                    return catalogSize;
+                }, Book::id);
+        searchProvider = new ListDataProvider<>(searchResults) {
+            @Override
+            public Object getId(Book item) {
+                return item.id();
+            }
+        };
+        showCatalog();
+        new BookChangeCoalescer(this, bookChangeFeed, this::applyChanges, bookService::findBook);
         bookGrid.setEmptyStateText("No books found");
         bookGrid.setSizeFull();
 
@@ -55,23 +87,27 @@ public class BookListView extends Main {
         summaryFieldNew.setPlaceholder("Summary");
         NumberField goodreadsIdFieldNew = new NumberField();
         goodreadsIdFieldNew.setPlaceholder("Goodreads ID");
+        Runnable clearNewBook = () -> {
+            titleFieldNew.clear();
+            authorsFieldNew.clear();
+            publisherFieldNew.clear();
+            ratingFieldNew.clear();
+            genresFieldNew.clear();
+            summaryFieldNew.clear();
+            goodreadsIdFieldNew.clear();
+        };
         Button addBookBtn = new Button("Add Book", event -> {
             try {
                 Book newBook = new Book(null, // id will be generated in BookService
                         titleFieldNew.getValue(), authorsFieldNew.getValue(), publisherFieldNew.getValue(),
                         ratingFieldNew.getValue(), genresFieldNew.getValue(), summaryFieldNew.getValue(),
                         goodreadsIdFieldNew.getValue() != null ? goodreadsIdFieldNew.getValue().longValue() : null);
-                bookService.saveBooks(List.of(newBook));
-                bookGrid.setItems(bookService.listBooks());
-                titleFieldNew.clear();
-                authorsFieldNew.clear();
-                publisherFieldNew.clear();
-                ratingFieldNew.clear();
-                genresFieldNew.clear();
-                summaryFieldNew.clear();
-                goodreadsIdFieldNew.clear();
-                Notification.show("Book added", 3000, Notification.Position.BOTTOM_END)
-                        .addThemeVariants(NotificationVariant.LUMO_SUCCESS);
+                List<BookDuplicateIndex.Match> similar = bookService.findSimilarBooks(newBook, SIMILAR_LIMIT);
+                if (similar.isEmpty()) {
+                    addBook(newBook, clearNewBook);
+                } else {
+                    confirmPossibleDuplicate(newBook, similar, clearNewBook);
+                }
             } catch (Exception e) {
                 Notification.show(e.getMessage(), 4000, Notification.Position.BOTTOM_END)
                         .addThemeVariants(NotificationVariant.LUMO_ERROR);
@@ -101,49 +137,120 @@ public class BookListView extends Main {
         setSizeFull();
         addClassNames(LumoUtility.BoxSizing.BORDER, LumoUtility.Display.FLEX, LumoUtility.FlexDirection.COLUMN,
                 LumoUtility.Padding.MEDIUM, LumoUtility.Gap.SMALL);
-        add(new ViewToolbar("Book List"));
-
-        MemoryBuffer fileBuffer = new MemoryBuffer();
-        Upload upload = new Upload(fileBuffer);
-        upload.setAcceptedFileTypes("text/csv");
-        upload.setMaxFileSize(1 * 1024 * 1024); // 1 MB
-        upload.setMaxFiles(1);
-        Button uploadButton = new Button("Upload CSV");
-        uploadButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
-        upload.setUploadButton(uploadButton);
-        upload.addSucceededListener(event -> {
-            try {
-                log.info("File name: {}", fileBuffer.getFileName());
-                List<Book> parsedBooks = new GoodReadBookCSVParser().parseBooksFromCsv(fileBuffer.getInputStream());
-                bookService.saveBooks(parsedBooks);
-                bookGrid.setItems(bookService.listBooks());
-                Notification.show("Books uploaded", 5000, Notification.Position.BOTTOM_END)
-                        .addThemeVariants(NotificationVariant.LUMO_SUCCESS);
-            } catch (Exception e) {
-                Notification.show(e.getMessage(), 5000, Notification.Position.BOTTOM_END)
-                        .addThemeVariants(NotificationVariant.LUMO_ERROR);
+        TextField searchField = new TextField();
+        searchField.setPlaceholder("Search title, authors or publisher");
+        searchField.setPrefixComponent(VaadinIcon.SEARCH.create());
+        searchField.setClearButtonVisible(true);
+        searchField.setValueChangeMode(ValueChangeMode.LAZY);
+        searchField.setValueChangeTimeout(150);
+        searchField.setMinWidth("20em");
+        searchField.addValueChangeListener(event -> {
+            String query = event.getValue();
+            if (query == null || query.isBlank()) {
+                showCatalog();
+            } else {
+                showSearchResults(bookService.searchBooks(query, SEARCH_LIMIT));
             }
         });
-        upload.addFailedListener(event -> {
-            Notification.show("Upload failed", 4000, Notification.Position.BOTTOM_END)
-                    .addThemeVariants(NotificationVariant.LUMO_ERROR);
-        });
-        upload.addFileRejectedListener(event -> {
-            Notification.show("File rejected", 4000, Notification.Position.BOTTOM_END)
-                    .addThemeVariants(NotificationVariant.LUMO_ERROR);
-        });
-        upload.getElement().addEventListener("max-files-reached-changed", event -> {
-            boolean maxFilesReached = event.getEventData().getBoolean("event.detail.value");
-            uploadButton.setEnabled(!maxFilesReached);
-        }).addEventData("event.detail.value");
-        HorizontalLayout uploadCsvLayout = new HorizontalLayout(upload);
-        add(uploadCsvLayout);
+        add(new ViewToolbar("Book List", ViewToolbar.group(searchField)));
+
+        add(new BookImportPanel(bookCsvImporter, properties.getCsvImport().getMaxFileSize().toBytes()));
         // add(addBookLayout);
         add(bookGrid);
     }
 
+    private void addBook(Book book, Runnable onAdded) {
+        try {
+            bookService.saveBooks(List.of(book));
+            onAdded.run();
+            Notification.show("Book added", 3000, Notification.Position.BOTTOM_END)
+                    .addThemeVariants(NotificationVariant.LUMO_SUCCESS);
+        } catch (Exception e) {
+            Notification.show(e.getMessage(), 4000, Notification.Position.BOTTOM_END)
+                    .addThemeVariants(NotificationVariant.LUMO_ERROR);
+        }
+    }
+
+    // Lists the books the new one probably duplicates and lets the user add it anyway
+    private void confirmPossibleDuplicate(Book book, List<BookDuplicateIndex.Match> similar, Runnable onAdded) {
+        Dialog dialog = new Dialog();
+        dialog.setHeaderTitle("Possible duplicate");
+        VerticalLayout matches = new VerticalLayout(new Span("The catalog already has similar books:"));
+        matches.setPadding(false);
+        for (BookDuplicateIndex.Match match : similar) {
+            Anchor anchor = new Anchor("/book-detail/" + match.book().id(), match.book().title());
+            Span details = new Span(String.format("%s, %.0f%% similar", match.book().authors(),
+                    match.similarity() * 100));
+            details.addClassName(LumoUtility.TextColor.SECONDARY);
+            matches.add(new HorizontalLayout(anchor, details));
+        }
+        dialog.add(matches);
+        Button addAnyway = new Button("Add anyway", event -> {
+            dialog.close();
+            addBook(book, onAdded);
+        });
+        addAnyway.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+        dialog.getFooter().add(new Button("Cancel", event -> dialog.close()), addAnyway);
+        dialog.open();
+    }
+
+    private void showCatalog() {
+        searching = false;
+        searchResults.clear();
+        bookGrid.setItems(catalogProvider);
+    }
+
+    private void showSearchResults(List<Book> books) {
+        searching = true;
+        searchResults.clear();
+        searchResults.addAll(books);
+        bookGrid.setItems(searchProvider);
+    }
+
+    /**
+     * Applies changes pushed by the {@link BookChangeFeed}: shown rows are
+     * refreshed in place. New books show up on top of the catalog, which is
+     * re-read from the in-memory snapshot only when its size has changed.
+     */
+    private void applyChanges(Collection<Book> changed) {
+        if (searching) {
+            for (Book book : changed) {
+                int index = indexOf(book.id());
+                if (index >= 0) {
+                    searchResults.set(index, book);
+                    searchProvider.refreshItem(book);
+                }
+            }
+        } else if (bookService.countBooks() != catalogSize) {
+            catalogProvider.refreshAll();
+        } else {
+            changed.forEach(catalogProvider::refreshItem);
+        }
+    }
+
+    private int indexOf(String bookId) {
+        for (int i = 0; i < searchResults.size(); i++) {
+            if (searchResults.get(i).id().equals(bookId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The AI call runs in the background; the grid picks up the summary from the BooksChangedEvent
     private void generateBookSummary(Book book) {
-        bookService.generateSummary(book.id());
-        bookGrid.getDataProvider().refreshAll();
+        UI ui = UI.getCurrent();
+        bookService.asyncGenerateSummary(book.id(), ui.accessLater(this::onSummaryGenerated, null), progress -> {
+        }, ui.accessLater(this::onSummaryFailed, null));
+    }
+
+    private void onSummaryGenerated(String bookId) {
+        Notification.show("Summary generated", 3000, Notification.Position.BOTTOM_END)
+                .addThemeVariants(NotificationVariant.LUMO_SUCCESS);
+    }
+
+    private void onSummaryFailed(Exception error) {
+        Notification.show("Summary failed: " + error.getMessage(), 4000, Notification.Position.BOTTOM_END)
+                .addThemeVariants(NotificationVariant.LUMO_ERROR);
     }
 }
@@ -0,0 +1,49 @@
+package com.galapea.techblog.base.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongBloomFilterTest {
+
+    @Test
+    void testAddedKeysAreAlwaysFound() {
+        LongBloomFilter filter = new LongBloomFilter(10_000, 0.01);
+        for (long key = 0; key < 10_000; key++) {
+            filter.put(key * 7);
+        }
+        for (long key = 0; key < 10_000; key++) {
+            assertTrue(filter.mightContain(key * 7));
+        }
+        assertEquals(10_000, filter.addedCount());
+    }
+
+    @Test
+    void testFalsePositiveRateIsNearTheConfiguredRate() {
+        LongBloomFilter filter = new LongBloomFilter(100_000, 0.01);
+        for (long key = 1; key <= 100_000; key++) {
+            filter.put(key);
+        }
+        int falsePositives = 0;
+        for (long key = 1_000_001; key <= 1_100_000; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_500, falsePositives + " false positives in 100000");
+        assertTrue(filter.sizeInBytes() < 130_000, filter.sizeInBytes() + " bytes");
+    }
+
+    @Test
+    void testEmptyFilterContainsNothing() {
+        LongBloomFilter filter = new LongBloomFilter(1_000, 0.001);
+        assertFalse(filter.mightContain(0));
+        assertFalse(filter.mightContain(Long.MIN_VALUE));
+    }
+
+    @Test
+    void testInvalidSizingIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LongBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new LongBloomFilter(100, 1.0));
+    }
+}
@@ -0,0 +1,69 @@
+package com.galapea.techblog.base.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringPoolTest {
+
+    @Test
+    void testEqualValuesShareOneInstance() {
+        StringPool pool = new StringPool(10, 20);
+        String first = pool.canonicalize(new String("Penguin Books"));
+        String second = pool.canonicalize(new String("Penguin Books"));
+        assertSame(first, second);
+        assertEquals(1, pool.size());
+        assertNull(pool.canonicalize(null));
+    }
+
+    @Test
+    void testPoolIsBounded() {
+        StringPool pool = new StringPool(2, 5);
+        String tooLong = new String("Scholastic");
+        assertSame(tooLong, pool.canonicalize(tooLong));
+        pool.canonicalize("Tor");
+        pool.canonicalize("Ace");
+        String notAdmitted = new String("Baen");
+        assertSame(notAdmitted, pool.canonicalize(notAdmitted));
+        assertEquals(2, pool.size());
+        assertSame(pool.canonicalize("Tor"), pool.canonicalize(new String("Tor")));
+    }
+
+    @Test
+    void testValuesNoLongerReferencedAreDropped() throws InterruptedException {
+        StringPool pool = new StringPool(1, 20);
+        pool.canonicalize(new String("Discarded Press"));
+        for (int i = 0; i < 50 && pool.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.size());
+        String next = new String("Tor");
+        assertSame(next, pool.canonicalize(next));
+        assertSame(next, pool.canonicalize(new String("Tor")));
+    }
+
+    @Test
+    void testConcurrentCallersGetTheSameInstance() throws Exception {
+        StringPool pool = new StringPool(1000, 50);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> pool.canonicalize(new String("J.K. Rowling"))));
+            }
+            String expected = results.get(0).get();
+            for (Future<String> result : results) {
+                assertSame(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
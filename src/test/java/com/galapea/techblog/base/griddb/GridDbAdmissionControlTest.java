@@ -0,0 +1,87 @@
+package com.galapea.techblog.base.griddb;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridDbAdmissionControlTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong();
+    private final List<Long> sleeps = new ArrayList<>();
+
+    @Test
+    void testBurstIsAdmittedAtOnceThenRequestsWaitForTheRate() {
+        GridDbAdmissionControl control = control(GridDbWorkload.BULK_IMPORT,
+                new GridDbAdmissionControl.Limit(10, 2, GridDbAdmissionControl.Policy.WAIT, Duration.ofSeconds(1)));
+
+        control.acquire(GridDbWorkload.BULK_IMPORT);
+        control.acquire(GridDbWorkload.BULK_IMPORT);
+        assertTrue(sleeps.isEmpty());
+
+        control.acquire(GridDbWorkload.BULK_IMPORT);
+        control.acquire(GridDbWorkload.BULK_IMPORT);
+
+        // One token per 100 ms; each sleep advances the clock
+        assertEquals(List.of(100L, 100L), sleeps);
+        assertEquals(4, meterRegistry.get("griddb.admission.wait").tag("workload", "bulk_import").timer().count());
+    }
+
+    @Test
+    void testRejectPolicyFailsWhenTheBucketIsEmpty() {
+        GridDbAdmissionControl control = control(GridDbWorkload.ENRICHMENT,
+                new GridDbAdmissionControl.Limit(2, 1, GridDbAdmissionControl.Policy.REJECT, Duration.ofSeconds(1)));
+        control.acquire(GridDbWorkload.ENRICHMENT);
+
+        GridDbAdmissionControl.RejectedException e = assertThrows(GridDbAdmissionControl.RejectedException.class,
+                () -> control.acquire(GridDbWorkload.ENRICHMENT));
+
+        assertEquals(429, e.getStatusCode().value());
+        assertEquals(Duration.ofMillis(500), e.getRetryAfter());
+        assertTrue(sleeps.isEmpty());
+        assertEquals(1.0,
+                meterRegistry.get("griddb.admission.rejected").tag("workload", "enrichment").counter().count());
+    }
+
+    @Test
+    void testWaitLongerThanMaxWaitIsRejectedWithoutTakingAToken() {
+        GridDbAdmissionControl control = control(GridDbWorkload.BACKGROUND,
+                new GridDbAdmissionControl.Limit(1, 1, GridDbAdmissionControl.Policy.WAIT, Duration.ofMillis(500)));
+        control.acquire(GridDbWorkload.BACKGROUND);
+
+        assertThrows(GridDbAdmissionControl.RejectedException.class, () -> control.acquire(GridDbWorkload.BACKGROUND));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        control.acquire(GridDbWorkload.BACKGROUND);
+
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    void testWorkloadsWithoutQuotaAreNotLimited() {
+        GridDbAdmissionControl control = control(GridDbWorkload.BULK_IMPORT,
+                new GridDbAdmissionControl.Limit(1, 1, GridDbAdmissionControl.Policy.REJECT, Duration.ZERO));
+        control.acquire(GridDbWorkload.BULK_IMPORT);
+
+        for (int i = 0; i < 100; i++) {
+            control.acquire(GridDbWorkload.INTERACTIVE);
+        }
+
+        assertTrue(sleeps.isEmpty());
+        assertThrows(GridDbAdmissionControl.RejectedException.class, () -> control.acquire(GridDbWorkload.BULK_IMPORT));
+    }
+
+    private GridDbAdmissionControl control(GridDbWorkload workload, GridDbAdmissionControl.Limit limit) {
+        return new GridDbAdmissionControl(Map.of(workload, limit), meterRegistry, now::get, millis -> {
+            sleeps.add(millis);
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package com.galapea.techblog.base.griddb;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class GridDbBulkheadTest {
+    private final HttpRequest request = mock(HttpRequest.class);
+    private final GridDbBulkhead bulkhead = new GridDbBulkhead(GridDbWorkload.BULK_IMPORT, 2, Duration.ofMillis(10));
+
+    @Test
+    void testPermitIsHeldUntilTheResponseIsClosed() throws IOException {
+        ClientHttpResponse first = bulkhead.intercept(request, new byte[0], (r, b) -> mock(ClientHttpResponse.class));
+        ClientHttpResponse second = bulkhead.intercept(request, new byte[0], (r, b) -> mock(ClientHttpResponse.class));
+        assertEquals(2, bulkhead.inFlight());
+
+        GridDbException e = assertThrows(GridDbException.class,
+                () -> bulkhead.intercept(request, new byte[0], (r, b) -> mock(ClientHttpResponse.class)));
+        assertEquals(503, e.getStatusCode().value());
+
+        first.close();
+        first.close();
+        assertEquals(1, bulkhead.inFlight());
+        second.close();
+        assertEquals(0, bulkhead.inFlight());
+    }
+
+    @Test
+    void testPermitIsReleasedWhenTheRequestFails() {
+        assertThrows(IOException.class, () -> bulkhead.intercept(request, new byte[0], (r, b) -> {
+            throw new IOException("Connection reset");
+        }));
+
+        assertEquals(0, bulkhead.inFlight());
+    }
+}
@@ -0,0 +1,178 @@
+package com.galapea.techblog.base.griddb;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridDbCloudClientTest {
+    @TempDir
+    Path directory;
+    private HttpServer server;
+    private GridDbCloudClient client;
+    private final List<String> registered = new CopyOnWriteArrayList<>();
+    private final AtomicInteger unavailable = new AtomicInteger();
+    private final CountDownLatch slowEntered = new CountDownLatch(1);
+    private final CountDownLatch slowReleased = new CountDownLatch(1);
+    private ExecutorService serverThreads;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Rejects batches holding a row with "bad", fails with 503 while unavailable is positive
+        server.createContext("/containers/Books/rows", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            int status;
+            if (unavailable.getAndDecrement() > 0) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                status = 503;
+            } else if (body.contains("bad")) {
+                status = 400;
+            } else {
+                registered.add(body);
+                status = 200;
+            }
+            byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        // Holds every request until the test releases it
+        server.createContext("/containers/Slow/rows", exchange -> {
+            slowEntered.countDown();
+            try {
+                slowReleased.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+        client = new GridDbCloudClient("http://127.0.0.1:" + server.getAddress().getPort(), "token");
+        client.enableRetries(
+                new GridDbRetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofSeconds(1)));
+        client.enableRowQuarantine(new GridDbRowQuarantine(100, Clock.systemUTC()), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowReleased.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+        client.close();
+    }
+
+    @Test
+    void testRejectedRowsAreQuarantinedAndTheRestRegistered() {
+        GridDbRowQuarantine.PartialWriteException e = assertThrows(GridDbRowQuarantine.PartialWriteException.class,
+                () -> client.registerRows("Books",
+                        List.of(List.of("b1"), List.of("bad2"), List.of("b3"), List.of("b4"), List.of("b5"))));
+
+        String written = String.join("", registered);
+        for (String id : List.of("b1", "b3", "b4", "b5")) {
+            assertTrue(written.contains("\"" + id + "\""), written);
+        }
+        assertFalse(written.contains("bad2"));
+        assertEquals(List.of(List.of("bad2")), e.getRejected());
+        assertEquals(1, client.getRowQuarantine().count());
+        assertEquals(List.of("bad2"), client.getRowQuarantine().entries().get(0).row());
+    }
+
+    @Test
+    void testBatchFailsWhenTooManyRowsAreRejected() {
+        GridDbException e = assertThrows(GridDbException.class, () -> client.registerRows("Books",
+                List.of(List.of("bad1"), List.of("bad2"), List.of("bad3"), List.of("b4"))));
+
+        assertEquals(400, e.getStatusCode().value());
+        assertFalse(e instanceof GridDbRowQuarantine.PartialWriteException);
+        // The caller retries or drops the whole batch, so none of its rows stay quarantined
+        assertEquals(0, client.getRowQuarantine().count());
+    }
+
+    @Test
+    void testRejectedSingleRowFailsTheCall() {
+        GridDbException e = assertThrows(GridDbException.class,
+                () -> client.registerRows("Books", List.of(List.of("bad1"))));
+
+        assertEquals(400, e.getStatusCode().value());
+        assertFalse(e instanceof GridDbRowQuarantine.PartialWriteException);
+        assertEquals(0, client.getRowQuarantine().count());
+    }
+
+    @Test
+    void testTransientErrorsAreRetried() {
+        unavailable.set(2);
+
+        client.registerRows("Books", List.of(List.of("b1")));
+
+        assertEquals(1, registered.size());
+    }
+
+    @Test
+    void testRequestsGoThroughTheTransportOfTheirWorkload() throws Exception {
+        GridDbBulkhead interactive = new GridDbBulkhead(GridDbWorkload.INTERACTIVE, 1, Duration.ofMillis(50));
+        GridDbBulkhead bulkImport = new GridDbBulkhead(GridDbWorkload.BULK_IMPORT, 1, Duration.ofMillis(50));
+        client.enableBulkheads(List.of(interactive, bulkImport));
+        ExecutorService importer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slowImport = importer.submit(
+                    GridDbWorkload.BULK_IMPORT.wrap(() -> client.registerRows("Slow", List.of(List.of("b1")))));
+            assertTrue(slowEntered.await(5, TimeUnit.SECONDS));
+            assertEquals(1, bulkImport.inFlight());
+            assertEquals(0, interactive.inFlight());
+
+            // The import holds the only connection of its transport, page loads still have theirs
+            GridDbException e = assertThrows(GridDbException.class, () -> GridDbWorkload.BULK_IMPORT
+                    .run(() -> client.registerRows("Books", List.of(List.of("b2")))));
+            assertEquals(503, e.getStatusCode().value());
+            GridDbWorkload.INTERACTIVE.run(() -> client.registerRows("Books", List.of(List.of("b3"))));
+            assertEquals(List.of("[[\"b3\"]]"), registered);
+
+            slowReleased.countDown();
+            slowImport.get(5, TimeUnit.SECONDS);
+            assertEquals(0, bulkImport.inFlight());
+        } finally {
+            importer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLaterWriteOfARowIsDeliveredAfterTheJournaledOne() {
+        GridDbWriteJournal journal = new GridDbWriteJournal(directory);
+        client.enableWriteJournal(journal, Duration.ofHours(1));
+        unavailable.set(3);
+
+        client.registerRows("Books", List.of(List.of("b1", "The Hobbit")));
+        client.registerRows("Books", List.of(List.of("b1", "The Hobbit, 2nd edition")));
+
+        // The first write is journaled while GridDB is unavailable and must not overtake the second
+        assertEquals(List.of("[[\"b1\",\"The Hobbit\"]]", "[[\"b1\",\"The Hobbit, 2nd edition\"]]"),
+                registered);
+        assertFalse(journal.hasPending());
+    }
+}
@@ -0,0 +1,95 @@
+package com.galapea.techblog.base.griddb;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridDbRetryPolicyTest {
+    private final List<Long> sleeps = new ArrayList<>();
+    private final GridDbRetryPolicy policy = new GridDbRetryPolicy(4, Duration.ofMillis(100), Duration.ofMillis(250),
+            Duration.ofSeconds(30), sleeps::add, () -> 0.5);
+
+    @Test
+    void testTransientErrorsAreRetriedWithJitteredExponentialBackOff() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = policy.execute("test", () -> {
+            if (calls.incrementAndGet() < 4) {
+                throw error(503, null);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(4, calls.get());
+        // Half of 100, 200 and 400 capped at 250
+        assertEquals(List.of(50L, 100L, 125L), sleeps);
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        GridDbException e = assertThrows(GridDbException.class, () -> policy.execute("test", () -> {
+            calls.incrementAndGet();
+            throw error(500, null);
+        }));
+
+        assertEquals(500, e.getStatusCode().value());
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void testClientErrorsAreNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(GridDbException.class, () -> policy.execute("test", () -> {
+            calls.incrementAndGet();
+            throw error(400, null);
+        }));
+
+        assertEquals(1, calls.get());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    void testRetryAfterIsHonouredUpToTheLimit() {
+        AtomicInteger calls = new AtomicInteger();
+
+        policy.execute("test", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw error(429, Duration.ofSeconds(2));
+            }
+            return null;
+        });
+        assertEquals(List.of(2000L), sleeps);
+
+        assertThrows(GridDbException.class, () -> policy.execute("test", () -> {
+            throw error(429, Duration.ofMinutes(5));
+        }));
+        assertEquals(1, sleeps.size());
+    }
+
+    @Test
+    void testRetryAfterHeaderIsParsed() {
+        assertEquals(Duration.ofSeconds(120), GridDbRetryPolicy.parseRetryAfter("120"));
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusSeconds(30));
+        Duration delay = GridDbRetryPolicy.parseRetryAfter(date);
+        assertTrue(delay.compareTo(Duration.ofSeconds(25)) > 0 && delay.compareTo(Duration.ofSeconds(31)) < 0,
+                delay.toString());
+        assertNull(GridDbRetryPolicy.parseRetryAfter(null));
+        assertNull(GridDbRetryPolicy.parseRetryAfter("soon"));
+    }
+
+    private static GridDbException error(int status, Duration retryAfter) {
+        return new GridDbException("failed", HttpStatusCode.valueOf(status), "", retryAfter);
+    }
+}
@@ -0,0 +1,78 @@
+package com.galapea.techblog.base.griddb;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridDbRowMappingTest {
+    enum Status {
+        ACTIVE, RETIRED
+    }
+
+    record Sensor(@GridDbColumnSpec(index = "TREE") String id, @GridDbColumnSpec(name = "seenAt") Instant lastSeen,
+            double reading, Long count, Integer level, boolean enabled, Status status) {
+    }
+
+    record Unsupported(String id, List<String> tags) {
+    }
+
+    @Test
+    void testColumnsAreDerivedFromComponents() {
+        List<GridDbColumn> columns = GridDbRowMapping.of(Sensor.class).columns();
+
+        assertEquals(List.of("id", "seenAt", "reading", "count", "level", "enabled", "status"),
+                columns.stream().map(GridDbColumn::getName).toList());
+        assertEquals(List.of("STRING", "TIMESTAMP", "DOUBLE", "LONG", "INTEGER", "BOOL", "STRING"),
+                columns.stream().map(GridDbColumn::getType).toList());
+        assertEquals(Set.of("TREE"), columns.get(0).getIndex());
+        assertNull(columns.get(1).getIndex());
+    }
+
+    @Test
+    void testRowsRoundTrip() {
+        GridDbRowMapping<Sensor> mapping = GridDbRowMapping.of(Sensor.class);
+        Sensor sensor = new Sensor("s1", Instant.parse("2025-05-01T10:00:00Z"), 21.5, null, 3, true, Status.ACTIVE);
+
+        List<Object> row = mapping.toRow(sensor);
+
+        assertEquals(Arrays.asList("s1", "2025-05-01T10:00:00.000Z", 21.5, null, 3, true, "ACTIVE"), row);
+        assertEquals(sensor, mapping.fromRow(row));
+    }
+
+    @Test
+    void testRowsAsParsedFromJsonAreConverted() {
+        Sensor sensor = GridDbRowMapping.of(Sensor.class)
+                .fromRow(List.of("s2", "2025-05-01T10:00:00.000Z", 7, 12, 1L, "false", "RETIRED"));
+
+        assertEquals(new Sensor("s2", Instant.parse("2025-05-01T10:00:00Z"), 7.0, 12L, 1, false, Status.RETIRED),
+                sensor);
+    }
+
+    @Test
+    void testMissingTrailingValuesAreNull() {
+        record Note(String id, String text, Instant updatedAt) {
+        }
+        assertEquals(new Note("n1", "hello", null), GridDbRowMapping.of(Note.class).fromRow(List.of("n1", "hello")));
+    }
+
+    @Test
+    void testNullForPrimitiveIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> GridDbRowMapping.of(Sensor.class)
+                .fromRow(Arrays.asList("s3", null, null, null, null, true, null)));
+    }
+
+    @Test
+    void testMappingIsCompiledOncePerType() {
+        assertSame(GridDbRowMapping.of(Sensor.class), GridDbRowMapping.of(Sensor.class));
+    }
+
+    @Test
+    void testUnsupportedComponentTypeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> GridDbRowMapping.of(Unsupported.class));
+    }
+}
@@ -0,0 +1,62 @@
+package com.galapea.techblog.base.griddb;
+
+import org.springframework.http.HttpStatusCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridDbWriteJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testUnacknowledgedWritesAreRecoveredAfterReopen() {
+        try (GridDbWriteJournal journal = new GridDbWriteJournal(directory)) {
+            long first = journal.append(GridDbWriteJournal.Kind.ROWS, "Books", List.of(List.of("b1", "The Hobbit")));
+            journal.append(GridDbWriteJournal.Kind.SQL, null,
+                    List.of(new GridDbCloudSQLInsert("UPDATE Books SET genres = 'Fantasy' WHERE id = 'b1'")));
+            journal.acknowledge(first);
+            assertEquals(1, journal.pendingCount());
+        }
+
+        try (GridDbWriteJournal journal = new GridDbWriteJournal(directory)) {
+            assertTrue(journal.hasPending());
+            assertEquals(1, journal.pendingCount());
+            long next = journal.append(GridDbWriteJournal.Kind.ROWS, "Books", List.of(List.of("b2", "Dune")));
+            assertEquals(3, next);
+        }
+    }
+
+    @Test
+    void testPendingWritesAreDeliveredPerContainerInJournalOrder() {
+        try (GridDbWriteJournal journal = new GridDbWriteJournal(directory)) {
+            long first = journal.append(GridDbWriteJournal.Kind.ROWS, "Books", List.of(List.of("b1", "v1")));
+            journal.append(GridDbWriteJournal.Kind.ROWS, "Authors", List.of(List.of("a1")));
+            long second = journal.append(GridDbWriteJournal.Kind.SQL, "Books",
+                    List.of(new GridDbCloudSQLInsert("UPDATE Books SET title = 'v2' WHERE id = 'b1'")));
+            long third = journal.append(GridDbWriteJournal.Kind.ROWS, "Books", List.of(List.of("b1", "v3")));
+            List<Long> delivered = new ArrayList<>();
+
+            assertTrue(journal.deliverPending("Books", third, entry -> delivered.add(entry.seq())));
+
+            assertEquals(List.of(first, second), delivered);
+            assertEquals(2, journal.pendingCount());
+            assertFalse(journal.deliverPending("Authors", Long.MAX_VALUE, entry -> {
+                throw new GridDbException("down", HttpStatusCode.valueOf(503), "");
+            }));
+            assertEquals(2, journal.pendingCount());
+        }
+    }
+
+    @Test
+    void testTransientErrors() {
+        assertTrue(GridDbWriteJournal.isTransient(new GridDbException("down", HttpStatusCode.valueOf(503), "")));
+        assertTrue(GridDbWriteJournal.isTransient(new GridDbException("throttled", HttpStatusCode.valueOf(429), "")));
+        assertFalse(GridDbWriteJournal.isTransient(new GridDbException("bad", HttpStatusCode.valueOf(400), "")));
+    }
+}
@@ -0,0 +1,83 @@
+package com.galapea.techblog.base.griddb.acquisition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedScanTest {
+    private static final int PAGE_SIZE = 10;
+
+    @Test
+    void testAllPartitionsAreReadConcurrentlyAndMerged() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<PartitionedScan.Pager<Integer>> partitions = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            int from = p * 1000;
+            int size = p * 7 + 3;
+            partitions.add(last -> {
+                threads.add(Thread.currentThread().getName());
+                int start = last == null ? from : last + 1;
+                int end = Math.min(from + size, start + PAGE_SIZE);
+                return IntStream.range(start, end).boxed().toList();
+            });
+        }
+
+        List<Integer> rows;
+        try (Stream<Integer> stream = PartitionedScan.stream("test-scan", partitions, PAGE_SIZE, 3)) {
+            rows = stream.sorted().toList();
+        }
+
+        int expected = IntStream.range(0, 8).map(p -> p * 7 + 3).sum();
+        assertEquals(expected, rows.size());
+        assertEquals(expected, rows.stream().distinct().count());
+        assertTrue(rows.contains(7000 + 51));
+        assertFalse(rows.contains(7000 + 52));
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("test-scan-")));
+    }
+
+    @Test
+    void testFailureOfOnePartitionFailsTheStream() {
+        List<PartitionedScan.Pager<Integer>> partitions = List.of(last -> List.of(1, 2), last -> {
+            throw new IllegalStateException("GridDB down");
+        });
+        try (Stream<Integer> stream = PartitionedScan.stream("test-scan", partitions, PAGE_SIZE, 2)) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, stream::toList);
+            assertEquals("GridDB down", e.getMessage());
+        }
+    }
+
+    @Test
+    void testClosingTheStreamStopsTheWorkers() {
+        AtomicInteger pages = new AtomicInteger();
+        PartitionedScan.Pager<Integer> endless = last -> {
+            pages.incrementAndGet();
+            int start = last == null ? 0 : last + 1;
+            return IntStream.range(start, start + PAGE_SIZE).boxed().toList();
+        };
+        try (Stream<Integer> stream = PartitionedScan.stream("test-scan", List.of(endless), PAGE_SIZE, 1)) {
+            assertEquals(List.of(0, 1, 2), stream.limit(3).toList());
+        }
+        int read = pages.get();
+        assertTrue(read < 10, "Workers must block on the bounded queue, read " + read + " pages");
+    }
+
+    @Test
+    void testParallelConsumption() {
+        List<PartitionedScan.Pager<Integer>> partitions = IntStream.range(0, 4)
+                .<PartitionedScan.Pager<Integer>> mapToObj(p -> last -> {
+                    int start = last == null ? p * 100 : last + 1;
+                    return IntStream.range(start, Math.min(p * 100 + 95, start + PAGE_SIZE)).boxed().toList();
+                }).toList();
+        try (Stream<Integer> stream = PartitionedScan.stream("test-scan", partitions, PAGE_SIZE, 4)) {
+            assertEquals(4 * 95, stream.parallel().mapToInt(Integer::intValue).count());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.galapea.techblog.base.griddb.query;
+
+import com.galapea.techblog.base.griddb.acquisition.AcquireRowsRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CriteriaTest {
+    private static final GridDbField.StringField ID = GridDbField.ofString("id");
+    private static final GridDbField.StringField PUBLISHER = GridDbField.ofString("publisher");
+    private static final GridDbField<Double> RATING = GridDbField.ofDouble("rating");
+
+    @Test
+    void testStringLiteralsAreEscaped() {
+        assertEquals("id = 'x'' OR ''1''=''1'", ID.eq("x' OR '1'='1").toCondition());
+        assertEquals("publisher LIKE '%O''Reilly%'", PUBLISHER.contains("O'Reilly").toCondition());
+    }
+
+    @Test
+    void testCombinedCriteria() {
+        Criteria criteria = RATING.between(4.0, 5.0).and(PUBLISHER.eq("Scholastic Inc."));
+        assertEquals("((rating >= 4.0) AND (rating <= 5.0)) AND (publisher = 'Scholastic Inc.')",
+                criteria.toCondition());
+        assertEquals("rating >= 4.0", RATING.between(4.0, null).toCondition());
+        assertTrue(RATING.between(null, null).isEmpty());
+        assertEquals("(id = 'a' OR id = 'b')", ID.in(List.of("a", "b")).toCondition());
+        assertEquals("NOT (rating IS NULL)", RATING.isNull().not().toCondition());
+    }
+
+    @Test
+    void testInvalidInputIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RATING.eq(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> RATING.eq(null));
+        assertThrows(IllegalArgumentException.class, () -> GridDbField.ofString("id; DROP TABLE Books"));
+    }
+
+    @Test
+    void testCompilesToAcquireRowsRequest() {
+        AcquireRowsRequest request = AcquireRowsRequest.builder().condition(PUBLISHER.eq("Penguin"))
+                .sort(Sort.by(RATING.desc()).then(ID.asc())).build();
+        assertEquals("publisher = 'Penguin'", request.getCondition());
+        assertEquals("rating desc, id asc", request.getSort());
+    }
+
+    @Test
+    void testAssignmentsAreEscaped() {
+        assertEquals("publisher = 'O''Reilly'", PUBLISHER.set("O'Reilly").toString());
+        assertEquals("rating = NULL", RATING.set(null).toString());
+    }
+}
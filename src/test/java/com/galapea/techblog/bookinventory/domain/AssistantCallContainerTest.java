@@ -0,0 +1,62 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.base.griddb.GridDbCloudClient;
+import com.galapea.techblog.base.griddb.GridDbContainerDefinition;
+import com.galapea.techblog.base.griddb.GridDbSqlResult;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AssistantCallContainerTest {
+    private static final Instant FROM = Instant.parse("2026-10-01T00:00:00Z");
+
+    private final GridDbCloudClient client = Mockito.mock(GridDbCloudClient.class);
+    private final AssistantCallContainer container = new AssistantCallContainer(client);
+
+    @Test
+    void testCreateTableDefinesTimeSeriesKeyedByCallTime() {
+        container.createTable();
+
+        ArgumentCaptor<GridDbContainerDefinition> definition = ArgumentCaptor
+                .forClass(GridDbContainerDefinition.class);
+        verify(client).createContainer(definition.capture());
+        assertEquals("TIME_SERIES", definition.getValue().getContainerType());
+        assertEquals("calledAt", definition.getValue().getColumns().get(0).getName());
+        assertEquals("TIMESTAMP", definition.getValue().getColumns().get(0).getType());
+    }
+
+    @Test
+    void testLatencyPercentilesPerWindow() {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            rows.add(List.of(FROM.plusSeconds(i).toString(), i * 10));
+        }
+        rows.add(List.of(FROM.plus(Duration.ofHours(2)).toString(), 700));
+        when(client.executeSqlSelect(anyList())).thenReturn(List.of(new GridDbSqlResult(
+                List.of(new GridDbSqlResult.Column("calledAt", "TIMESTAMP"),
+                        new GridDbSqlResult.Column("latency", "LONG")),
+                rows)));
+
+        List<LatencyWindow> windows = container.latencyPercentiles(FROM, FROM.plus(Duration.ofDays(1)),
+                Duration.ofHours(1), AssistantCall.Kind.SUMMARY);
+
+        assertEquals(List.of(new LatencyWindow(FROM, 100, 500, 900, 990, 1000),
+                new LatencyWindow(FROM.plus(Duration.ofHours(2)), 1, 700, 700, 700, 700)), windows);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> statements = ArgumentCaptor.forClass(List.class);
+        verify(client).executeSqlSelect(statements.capture());
+        String query = statements.getValue().get(0);
+        assertTrue(query.startsWith("SELECT calledAt, latency FROM BookAssistantCalls WHERE "), query);
+        assertTrue(query.contains("calledAt >= TIMESTAMP('2026-10-01T00:00:00.000Z')"), query);
+        assertTrue(query.contains("kind = 'SUMMARY'"), query);
+    }
+}
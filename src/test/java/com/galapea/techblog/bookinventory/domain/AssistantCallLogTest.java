@@ -0,0 +1,92 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AssistantCallLogTest {
+    private static final Instant NOW = Instant.parse("2026-10-19T12:00:00Z");
+
+    private AssistantCallContainer container;
+    private AssistantCallLog callLog;
+
+    @BeforeEach
+    void setUp() {
+        container = Mockito.mock(AssistantCallContainer.class);
+        BookInventoryProperties properties = new BookInventoryProperties();
+        properties.getAssistantAudit().setCapacity(3);
+        properties.getAssistantAudit().setMaxBatchSize(100);
+        properties.getAssistantAudit().setFlushInterval(Duration.ofHours(1));
+        callLog = new AssistantCallLog(container, properties, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        callLog.close();
+    }
+
+    @Test
+    void testCallsBeyondCapacityAreDropped() {
+        for (int i = 0; i < 5; i++) {
+            callLog.record(call(NOW.plusSeconds(i)));
+        }
+        assertEquals(3, callLog.pendingCount());
+        assertEquals(2, callLog.droppedCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushAppendsCallsWithDistinctTimestamps() {
+        callLog.record(call(NOW));
+        callLog.record(call(NOW));
+        callLog.record(call(NOW.plusNanos(300_000)));
+
+        callLog.flush();
+
+        verify(container).createTable();
+        ArgumentCaptor<List<AssistantCall>> batch = ArgumentCaptor.forClass(List.class);
+        verify(container).append(batch.capture());
+        assertEquals(List.of(NOW, NOW.plusMillis(1), NOW.plusMillis(2)),
+                batch.getValue().stream().map(AssistantCall::timestamp).toList());
+        assertEquals(0, callLog.pendingCount());
+    }
+
+    @Test
+    void testFailedAppendDoesNotStopLaterBatches() {
+        doThrow(new IllegalStateException("down")).doNothing().when(container).append(anyList());
+        callLog.record(call(NOW));
+        callLog.flush();
+        callLog.record(call(NOW.plusSeconds(1)));
+        callLog.flush();
+
+        verify(container, times(2)).append(anyList());
+        verify(container, times(1)).createTable();
+    }
+
+    @Test
+    void testRetentionDeletesCallsOlderThanRetention() {
+        callLog.applyRetention();
+
+        verify(container).deleteOlderThan(NOW.minus(Duration.ofDays(30)));
+        verify(container, never()).append(any());
+    }
+
+    private static AssistantCall call(Instant timestamp) {
+        return new AssistantCall(timestamp, "book_1", AssistantCall.Kind.GENRE, "gpt-4o-mini", 1200, 350,
+                AssistantCall.Outcome.SUCCESS);
+    }
+}
@@ -0,0 +1,94 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares heap use and query time of 100k books held as {@link Book} records
+ * and as a {@link BookColumnarStore}. Heap is the number of bytes the thread
+ * allocates while building each representation, which for the store is an upper
+ * bound of what it retains. The records share their author, publisher and genre
+ * strings, as the catalog does once they are canonicalized.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dtest=BookColumnarStoreBenchmark
+ * </pre>
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BookColumnarStoreBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(BookColumnarStoreBenchmark.class);
+    private static final int BOOKS = 100_000;
+    private static final int RUNS = 20;
+
+    @Test
+    void compareRecordsWithColumns() {
+        long before = allocatedBytes();
+        List<Book> books = generate();
+        long recordsHeap = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        BookColumnarStore store = BookColumnarStore.of(books, id -> null);
+        long storeHeap = allocatedBytes() - before;
+
+        long recordsMicros = time(() -> books.stream()
+                .filter(book -> book.genres() != null && book.genres().contains("Fantasy") && book.rating() != null
+                        && book.rating() >= 4.0)
+                .mapToDouble(Book::rating).average().orElse(0));
+        long storeMicros = time(
+                () -> store.averageRating(store.hasGenre("Fantasy").and(store.ratingBetween(4.0, Double.MAX_VALUE))));
+        long statisticsMicros = time(() -> store.statistics(store.all(), 10));
+        long rebuildMicros = time(() -> BookColumnarStore.of(books, id -> null));
+        List<Book> changes = books.subList(0, 10).stream().map(book -> book.withGenres("Poetry")).toList();
+        long applyMicros = time(() -> {
+            store.apply(changes);
+            return store;
+        });
+
+        log.info("Heap for {} books: records {} KB, columnar store {} KB (sharing ids and titles)", BOOKS,
+                recordsHeap / 1024, storeHeap / 1024);
+        log.info("Average rating of highly rated fantasy books: records {} us, columns {} us", recordsMicros,
+                storeMicros);
+        log.info("Full statistics from columns: {} us", statisticsMicros);
+        log.info("Rebuilding the store: {} us, writing 10 changed books in place: {} us", rebuildMicros, applyMicros);
+        assertEquals(BOOKS, store.size());
+    }
+
+    private static List<Book> generate() {
+        String[] genres = { "Fantasy, Fiction", "Mystery", "Science Fiction, Fiction", "History", "Romance" };
+        String[] authors = IntStream.range(0, 5000).mapToObj(i -> "Author " + i).toArray(String[]::new);
+        String[] publishers = IntStream.range(0, 800).mapToObj(i -> "Publisher " + i).toArray(String[]::new);
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new Book("book_" + i, "Benchmark Book " + i, authors[i % authors.length],
+                    publishers[i % publishers.length], i % 50 == 0 ? null : 2.5 + (i % 25) / 10.0,
+                    genres[i % genres.length], null, (long) i));
+        }
+        return books;
+    }
+
+    private static long time(Supplier<?> query) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            assertNotNull(query.get());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1000;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,112 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookColumnarStoreTest {
+    private final List<String> loadedSummaries = new ArrayList<>();
+    private BookColumnarStore store;
+
+    @BeforeEach
+    void setUp() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            Double rating = i % 10 == 0 ? null : 2.0 + (i % 4) * 0.75;
+            String genres = switch (i % 3) {
+                case 0 -> "Fantasy, Fiction";
+                case 1 -> "fiction";
+                default -> null;
+            };
+            books.add(new Book("book_" + i, "Title " + i, "Author " + (i % 5), i % 2 == 0 ? "Penguin" : "Tor",
+                    rating, genres, i % 4 == 0 ? "Summary " + i : null, (long) i));
+        }
+        store = BookColumnarStore.of(books, id -> {
+            loadedSummaries.add(id);
+            return "Loaded " + id;
+        });
+    }
+
+    @Test
+    void testRowsAreReadBackFromColumns() {
+        assertEquals(130, store.size());
+        assertEquals("book_7", store.id(7));
+        assertEquals(4.25, store.rating(7));
+        assertNull(store.rating(10));
+        assertEquals(Long.valueOf(7), store.goodreadsBookId(7));
+        assertEquals("Author 2", store.authors(7));
+        assertEquals("Tor", store.publisher(7));
+        assertEquals("fiction", store.genres(7));
+        assertNull(store.genres(8));
+    }
+
+    @Test
+    void testSummariesAreLoadedOnDemand() {
+        assertTrue(loadedSummaries.isEmpty());
+        assertNull(store.summary(1));
+        assertEquals("Loaded book_4", store.summary(4));
+        assertEquals(List.of("book_4"), loadedSummaries);
+    }
+
+    @Test
+    void testFilterKernels() {
+        BookColumnarStore.Selection rated = store.isRated();
+        assertEquals(117, rated.count());
+        assertEquals(rated.count(), store.ratingBetween(0, 5).count());
+        // Ratings cycle 2.0, 2.75, 3.5, 4.25 with every tenth book unrated
+        BookColumnarStore.Selection high = store.ratingBetween(3.5, 5);
+        assertTrue(high.contains(2));
+        assertFalse(high.contains(1));
+        assertFalse(high.contains(30));
+        assertEquals(65, store.publisherEquals("penguin").count());
+        assertEquals(0, store.publisherEquals("Unknown").count());
+        assertEquals(44, store.hasGenre("Fantasy").count());
+        assertEquals(87, store.hasGenre("FICTION").count());
+        assertEquals(130 - 87, store.hasGenre("Fiction").not().count());
+        assertEquals(33, store.hasSummary().count());
+        assertEquals(store.size(), store.all().count());
+        assertEquals(List.of(0, 5, 10), store.authorsEqual("Author 0").and(store.publisherEquals("Penguin"))
+                .or(store.authorsEqual("Author 0")).rows().limit(3).boxed().toList());
+    }
+
+    @Test
+    void testAggregateKernels() {
+        BookColumnarStore.Selection penguin = store.publisherEquals("Penguin");
+        // Even rows rate 2.0 or 3.5, every tenth row unrated
+        assertEquals(2.75, store.averageRating(penguin), 0.0001);
+        assertArrayEquals(new long[] { 0, 0, 26, 26, 0 }, store.ratingHistogram(penguin));
+        assertNull(store.averageRating(store.publisherEquals("Unknown")));
+
+        CatalogStatistics statistics = store.statistics(store.all(), 2);
+        assertEquals(130, statistics.totalBooks());
+        assertEquals(33, statistics.booksWithSummary());
+        assertEquals(List.of(new CatalogStatistics.Count("Fantasy", 44, null),
+                new CatalogStatistics.Count("Fiction", 87, null)).reversed(), statistics.topGenres());
+        assertEquals(List.of("Author 0", "Author 1"),
+                statistics.topAuthors().stream().map(CatalogStatistics.Count::name).toList());
+        assertEquals(new CatalogStatistics.Count("Penguin", 65, 2.75), statistics.topPublishers().get(0));
+    }
+
+    @Test
+    void testChangesAreWrittenInPlaceAndNewBooksAppended() {
+        store.apply(List.of(new Book("book_7", "Title 7", "Author 9", "Tor", null, "Poetry", "Summary 7", 7L),
+                new Book("book_200", "Title 200", "Author 0", "Penguin", 5.0, "Fantasy", null, null)));
+
+        assertEquals(131, store.size());
+        assertNull(store.rating(7));
+        assertEquals("Author 9", store.authors(7));
+        assertEquals("Poetry", store.genres(7));
+        assertEquals("Loaded book_7", store.summary(7));
+        assertEquals("book_200", store.id(130));
+        assertNull(store.goodreadsBookId(130));
+        assertEquals(45, store.hasGenre("fantasy").count());
+        assertEquals(86, store.hasGenre("fiction").count());
+        assertEquals(1, store.hasGenre("poetry").count());
+        assertEquals(117, store.read(BookColumnarStore::isRated).count());
+        assertTrue(store.genreValues().contains("Poetry"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.base.griddb.GridDbCloudClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the catalog statistics queries on books stored in a real GridDB Cloud
+ * instance, in a separate container which is dropped afterwards.
+ *
+ * <pre>
+ * GRIDDBCLOUD_BASE_URL=... GRIDDBCLOUD_AUTH_TOKEN=... ./mvnw test -Dtest=BookContainerIntegrationTest
+ * </pre>
+ */
+@EnabledIfEnvironmentVariable(named = "GRIDDBCLOUD_BASE_URL", matches = ".+")
+class BookContainerIntegrationTest {
+    private static final String CONTAINER = "BooksStatisticsTest";
+
+    private GridDbCloudClient client;
+    private BookContainer bookContainer;
+
+    @BeforeEach
+    void setUp() {
+        client = new GridDbCloudClient(System.getenv("GRIDDBCLOUD_BASE_URL"), System.getenv("GRIDDBCLOUD_AUTH_TOKEN"));
+        bookContainer = new BookContainer(client, CONTAINER);
+        bookContainer.createTableBooks();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.dropContainer(CONTAINER);
+        client.close();
+    }
+
+    @Test
+    void testStatisticsTreatEmptyColumnsAsMissing() {
+        // saveBooks stores the missing summaries and genres of uploaded books as ""
+        List<Book> books = List.of(new Book("book_1", "Dune", "Frank Herbert", "Ace", 4.3, "Science Fiction",
+                "A desert planet.", 1L), new Book("book_2", "Emma", "Jane Austen", "Penguin", 4.0, null, null, 2L),
+                new Book("book_3", "Persuasion", "Jane Austen", null, 4.1, null, null, 3L),
+                new Book("book_4", "Untitled", null, "Penguin", null, null, null, 4L));
+        bookContainer.saveBooks(books);
+
+        CatalogStatistics statistics = bookContainer.getCatalogStatistics(10);
+
+        assertEquals(4, statistics.totalBooks());
+        assertEquals(1, statistics.booksWithSummary());
+        assertEquals(List.of("Penguin=2", "Ace=1"), booksPerGroup(statistics.topPublishers()));
+        assertEquals(List.of("Jane Austen=2", "Frank Herbert=1"), booksPerGroup(statistics.topAuthors()));
+        assertEquals(List.of(new CatalogStatistics.Count("Science Fiction", 1, null)), statistics.topGenres());
+        // The in-memory statistics of the same books agree
+        BookColumnarStore store = BookColumnarStore.of(books, id -> null);
+        CatalogStatistics columns = store.statistics(store.all(), 10);
+        assertEquals(columns.booksWithSummary(), statistics.booksWithSummary());
+        assertEquals(booksPerGroup(columns.topPublishers()), booksPerGroup(statistics.topPublishers()));
+        assertEquals(booksPerGroup(columns.topAuthors()), booksPerGroup(statistics.topAuthors()));
+        assertEquals(columns.topGenres(), statistics.topGenres());
+    }
+
+    private static List<String> booksPerGroup(List<CatalogStatistics.Count> counts) {
+        return counts.stream().map(count -> count.name() + "=" + count.books()).toList();
+    }
+}
@@ -0,0 +1,159 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.base.griddb.GridDbCloudClient;
+import com.galapea.techblog.base.griddb.GridDbCloudSQLInsert;
+import com.galapea.techblog.base.griddb.GridDbColumn;
+import com.galapea.techblog.base.griddb.GridDbContainerDefinition;
+import com.galapea.techblog.base.griddb.GridDbException;
+import com.galapea.techblog.base.griddb.GridDbRowMapping;
+import com.galapea.techblog.base.griddb.GridDbSqlResult;
+import com.galapea.techblog.base.griddb.GridDbSqlUpdateResult;
+import com.galapea.techblog.base.griddb.acquisition.AcquireRowsResponse;
+import com.galapea.techblog.base.griddb.query.Criteria;
+import com.galapea.techblog.base.griddb.query.Sort;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BookContainerTest {
+
+    @Test
+    void testCatalogStatisticsAreMappedFromGroupedRows() {
+        GridDbCloudClient client = Mockito.mock(GridDbCloudClient.class);
+        when(client.executeSqlSelect(anyList())).thenReturn(List.of(
+                result(List.of("books", "withSummary", "avgRating"), List.of(10, 4, 3.9)),
+                result(List.of("bucket", "books"), List.of(3, 4), List.of(4, 5), List.of(5, 1)),
+                result(List.of("name", "books", "avgRating"), List.of("Penguin", 6, 4.0), List.of("Tor", 4, 3.75)),
+                result(List.of("name", "books", "avgRating"), Arrays.asList("J.K. Rowling", 3, null)),
+                result(List.of("name", "books"), List.of("Fantasy, Fiction", 5), List.of("fantasy", 2),
+                        List.of("Mystery", 1))));
+
+        CatalogStatistics statistics = new BookContainer(client).getCatalogStatistics(2);
+
+        assertEquals(10, statistics.totalBooks());
+        assertEquals(0.6, statistics.missingSummaryShare(), 0.0001);
+        assertEquals(List.of(0L, 0L, 0L, 4L, 6L),
+                statistics.ratingHistogram().stream().map(CatalogStatistics.Count::books).toList());
+        assertEquals("4-5", statistics.ratingHistogram().get(4).name());
+        assertEquals(new CatalogStatistics.Count("Penguin", 6, 4.0), statistics.topPublishers().get(0));
+        assertNull(statistics.topAuthors().get(0).averageRating());
+        assertEquals(List.of(new CatalogStatistics.Count("Fantasy", 7, null),
+                new CatalogStatistics.Count("Fiction", 5, null)), statistics.topGenres());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMigrationAddsMissingSecondaryIndexes() {
+        GridDbCloudClient client = Mockito.mock(GridDbCloudClient.class);
+        List<GridDbColumn> columns = new ArrayList<>();
+        for (GridDbColumn column : GridDbRowMapping.of(Book.class).columns()) {
+            boolean indexed = column.getName().equals("id") || column.getName().equals("publisher");
+            columns.add(new GridDbColumn(column.getName(), column.getType(), indexed ? Set.of("TREE") : Set.of()));
+        }
+        when(client.getContainerInfo("Books"))
+                .thenReturn(new GridDbContainerDefinition("Books", "COLLECTION", true, columns));
+        when(client.executeSqlUpdate(anyList())).thenReturn(List.of());
+
+        new BookContainer(client).migrateTableBooks();
+
+        ArgumentCaptor<List<GridDbCloudSQLInsert>> statements = ArgumentCaptor.forClass(List.class);
+        verify(client).executeSqlUpdate(statements.capture());
+        assertEquals(List.of("CREATE INDEX IF NOT EXISTS Books_authors_idx ON Books (authors)",
+                "CREATE INDEX IF NOT EXISTS Books_goodreadsBookId_idx ON Books (goodreadsBookId)"),
+                statements.getValue().stream().map(GridDbCloudSQLInsert::statement).toList());
+    }
+
+    @Test
+    void testShardedFindBooksMergesPagesOfAllShards() {
+        GridDbCloudClient client = Mockito.mock(GridDbCloudClient.class);
+        when(client.acquireRows(eq("Books_00"), any())).thenReturn(rows(row("book_1", 4.5), row("book_4", 3.0)));
+        when(client.acquireRows(eq("Books_01"), any())).thenReturn(rows(row("book_2", 4.8), row("book_3", 3.9)));
+        BookContainer container = new BookContainer(client, "Books", 2);
+        try {
+            List<Book> books = container.findBooks(Criteria.none(), Sort.by(BookColumns.RATING.desc()), 3);
+
+            assertEquals(List.of("book_2", "book_1", "book_3"), books.stream().map(Book::id).toList());
+            verify(client).acquireRows(eq("Books_00"), any());
+            verify(client).acquireRows(eq("Books_01"), any());
+        } finally {
+            container.close();
+        }
+    }
+
+    @Test
+    void testShardedGetBooksMergesPagesInIdOrder() {
+        GridDbCloudClient client = Mockito.mock(GridDbCloudClient.class);
+        when(client.acquireRows(eq("Books_00"), any())).thenReturn(rows(row("book_8", 4.5), row("book_2", 3.0)));
+        when(client.acquireRows(eq("Books_01"), any())).thenReturn(rows(row("book_9", 4.8), row("book_5", 3.9)));
+        BookContainer container = new BookContainer(client, "Books", 2);
+        try {
+            List<Book> books = container.getBooks();
+
+            assertEquals(List.of("book_9", "book_8", "book_5", "book_2"), books.stream().map(Book::id).toList());
+        } finally {
+            container.close();
+        }
+    }
+
+    @Test
+    void testShardedSaveBooksRegistersRowsPerShard() {
+        GridDbCloudClient client = Mockito.mock(GridDbCloudClient.class);
+        BookContainer container = new BookContainer(client, "Books", 2);
+        try {
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                books.add(new Book("book_" + i, "Title", "Author", "Publisher", 4.0, null, null, (long) i));
+            }
+
+            container.saveBooks(books);
+
+            verify(client).registerRows(eq("Books_00"), anyList());
+            verify(client).registerRows(eq("Books_01"), anyList());
+        } finally {
+            container.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testInsertDoesNotReplaceAnExistingBook() {
+        GridDbCloudClient client = Mockito.mock(GridDbCloudClient.class);
+        when(client.executeSqlUpdate(anyList()))
+                .thenReturn(List.of(new GridDbSqlUpdateResult(0, 0, "INSERT", "Row key already exists")));
+        Book book = new Book("book_1", "Title", "Author", "Publisher", 4.0, null, null, 1L);
+
+        GridDbException e = assertThrows(GridDbException.class, () -> new BookContainer(client).insert(book));
+
+        assertEquals("Row key already exists", e.getErrorBody());
+        ArgumentCaptor<List<GridDbCloudSQLInsert>> statements = ArgumentCaptor.forClass(List.class);
+        verify(client).executeSqlUpdate(statements.capture());
+        assertTrue(statements.getValue().get(0).statement().startsWith("INSERT INTO Books ("));
+    }
+
+    @SafeVarargs
+    private static AcquireRowsResponse rows(List<Object>... rows) {
+        AcquireRowsResponse response = new AcquireRowsResponse();
+        response.setRows(List.of(rows));
+        return response;
+    }
+
+    private static List<Object> row(String id, double rating) {
+        return Arrays.asList(id, "Title", "Author", "Publisher", rating, null, null, 1L, null);
+    }
+
+    private static GridDbSqlResult result(List<String> columns, List<?>... rows) {
+        return new GridDbSqlResult(columns.stream().map(name -> new GridDbSqlResult.Column(name, null)).toList(),
+                Arrays.stream(rows).<List<Object>> map(ArrayList::new).toList());
+    }
+}
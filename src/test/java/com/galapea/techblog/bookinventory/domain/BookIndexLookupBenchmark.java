@@ -0,0 +1,107 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.base.griddb.GridDbCloudClient;
+import com.galapea.techblog.base.griddb.GridDbColumn;
+import com.galapea.techblog.base.griddb.GridDbContainerDefinition;
+import com.galapea.techblog.base.griddb.GridDbRowMapping;
+import com.galapea.techblog.bookinventory.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares lookups by Goodreads id, authors and publisher on a container with
+ * the secondary indexes and on one without them, against a real GridDB Cloud
+ * instance. Both containers are filled with the same books and dropped
+ * afterwards. The number of books defaults to 50000 and can be changed with
+ * {@code -Dbooks=...}.
+ *
+ * <pre>
+ * GRIDDBCLOUD_BASE_URL=... GRIDDBCLOUD_AUTH_TOKEN=... ./mvnw -Pbenchmark test -Dtest=BookIndexLookupBenchmark
+ * </pre>
+ */
+@Tag("benchmark")
+@EnabledIfEnvironmentVariable(named = "GRIDDBCLOUD_BASE_URL", matches = ".+")
+class BookIndexLookupBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(BookIndexLookupBenchmark.class);
+    private static final String INDEXED = "BooksIndexBenchmark";
+    private static final String PLAIN = "BooksNoIndexBenchmark";
+    private static final int BOOKS = Integer.getInteger("books", 50_000);
+    private static final int BATCH_SIZE = 1000;
+    private static final int LOOKUPS = 50;
+
+    private GridDbCloudClient client;
+    private BookContainer indexed;
+    private BookContainer plain;
+
+    @BeforeEach
+    void setUp() {
+        client = new GridDbCloudClient(System.getenv("GRIDDBCLOUD_BASE_URL"), System.getenv("GRIDDBCLOUD_AUTH_TOKEN"));
+        indexed = new BookContainer(client, INDEXED);
+        indexed.createTableBooks();
+        List<GridDbColumn> columns = GridDbRowMapping.of(Book.class).columns().stream()
+                .map(column -> column.getName().equals("id") ? column
+                        : new GridDbColumn(column.getName(), column.getType()))
+                .toList();
+        client.createContainer(GridDbContainerDefinition.createContainer(PLAIN, columns));
+        plain = new BookContainer(client, PLAIN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.dropContainer(INDEXED);
+        client.dropContainer(PLAIN);
+    }
+
+    @Test
+    void compareIndexedWithUnindexedLookups() {
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new Book(BookService.nextId(), "Benchmark Book " + i, "Author " + (i % 5000),
+                    "Publisher " + (i % 500), 3.0 + (i % 20) / 10.0, "Fiction", null, (long) i));
+        }
+        for (int i = 0; i < BOOKS; i += BATCH_SIZE) {
+            List<Book> batch = books.subList(i, Math.min(BOOKS, i + BATCH_SIZE));
+            indexed.saveBooks(batch);
+            plain.saveBooks(batch);
+        }
+        assertNotNull(indexed.findBookByGoodreadsId(BOOKS - 1));
+
+        log.info("{} books, median of {} lookups", BOOKS, LOOKUPS);
+        report("goodreadsBookId", n -> indexed.findBookByGoodreadsId(n % BOOKS),
+                n -> plain.findBookByGoodreadsId(n % BOOKS));
+        report("authors", n -> indexed.findBooksByAuthors("Author " + n % 5000, 20),
+                n -> plain.findBooksByAuthors("Author " + n % 5000, 20));
+        report("publisher", n -> indexed.findBooksByPublisher("Publisher " + n % 500, 20),
+                n -> plain.findBooksByPublisher("Publisher " + n % 500, 20));
+    }
+
+    private static void report(String lookup, LongFunction<Object> withIndex, LongFunction<Object> withoutIndex) {
+        log.info("{}: indexed {} ms, unindexed {} ms", lookup, medianMillis(withIndex), medianMillis(withoutIndex));
+    }
+
+    private static double medianMillis(LongFunction<Object> lookup) {
+        Random random = new Random(42);
+        long[] nanos = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            long key = random.nextInt(BOOKS);
+            long start = System.nanoTime();
+            assertNotNull(lookup.apply(key));
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[LOOKUPS / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,101 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.galapea.techblog.base.griddb.query.Sort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookShardsTest {
+    private final BookShards shards = new BookShards("Books", 4);
+
+    @AfterEach
+    void tearDown() {
+        shards.close();
+    }
+
+    @Test
+    void testSingleShardIsTheBaseContainer() {
+        try (BookShards single = new BookShards("Books", 1)) {
+            assertEquals(List.of("Books"), single.names());
+            assertEquals("Books", single.nameFor("book_0ABC"));
+            assertEquals("Books", single.source());
+        }
+    }
+
+    @Test
+    void testBooksAreSpreadAcrossShardsByIdHash() {
+        assertEquals(List.of("Books_00", "Books_01", "Books_02", "Books_03"), shards.names());
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            books.add(book(String.format("book_0K%05d", i), null));
+        }
+        Map<String, List<Book>> groups = shards.group(books);
+        assertEquals(4, groups.size());
+        groups.forEach((name, group) -> {
+            assertTrue(group.size() > 150, name + " holds " + group.size());
+            group.forEach(book -> assertEquals(name, shards.nameFor(book.id())));
+        });
+        try (BookShards again = new BookShards("Books", 4)) {
+            assertEquals(shards.nameFor("book_0K00042"), again.nameFor("book_0K00042"));
+        }
+    }
+
+    @Test
+    void testOnEachRunsOncePerShardInShardOrder() {
+        Set<String> threads = new HashSet<>();
+        List<String> results = shards.onEach(name -> {
+            synchronized (threads) {
+                threads.add(Thread.currentThread().getName());
+            }
+            return name.toLowerCase();
+        });
+        assertEquals(List.of("books_00", "books_01", "books_02", "books_03"), results);
+        assertTrue(threads.stream().allMatch(thread -> thread.startsWith("books-shard-")));
+    }
+
+    @Test
+    void testOnEachRethrowsFailure() {
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> shards.onEach(name -> {
+            if (name.endsWith("02")) {
+                throw new IllegalStateException("down");
+            }
+            return name;
+        }));
+        assertEquals("down", failure.getMessage());
+    }
+
+    @Test
+    void testSourceIsUnionOfAllShards() {
+        assertEquals("(SELECT * FROM Books_00 UNION ALL SELECT * FROM Books_01 UNION ALL SELECT * FROM Books_02"
+                + " UNION ALL SELECT * FROM Books_03) AS shards", shards.source());
+    }
+
+    @Test
+    void testMergeKeepsOrderAndLimit() {
+        List<List<Integer>> pages = List.of(List.of(1, 4, 9), List.of(), List.of(2, 3, 10, 11), List.of(5));
+        assertEquals(List.of(1, 2, 3, 4, 5, 9), BookShards.merge(pages, Comparator.naturalOrder(), 6));
+        assertEquals(List.of(1, 2, 3, 4, 5, 9, 10, 11), BookShards.merge(pages, Comparator.naturalOrder(), 100));
+    }
+
+    @Test
+    void testMergeBySortOfBookColumns() {
+        Sort sort = Sort.by(BookColumns.RATING.desc()).then(BookColumns.ID.asc());
+        List<List<Book>> pages = List.of(List.of(book("book_1", 4.5), book("book_3", 3.0)),
+                List.of(book("book_0", 4.5), book("book_2", 3.5), book("book_4", null)));
+        List<Book> merged = BookShards.merge(pages, BookColumns.comparator(sort), 4);
+        assertEquals(List.of("book_0", "book_1", "book_2", "book_3"), merged.stream().map(Book::id).toList());
+    }
+
+    private static Book book(String id, Double rating) {
+        return new Book(id, "Title", "Author", "Publisher", rating, null, null, 1L);
+    }
+}
@@ -0,0 +1,97 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookWriteBehindBufferTest {
+    private BookContainer bookContainer;
+    private BookInventoryProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        bookContainer = Mockito.mock(BookContainer.class);
+        properties = new BookInventoryProperties();
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setMaxBatchSize(3);
+        properties.getWriteBehind().setFlushInterval(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void testCoalescesWritesPerBookAndFlushesOnClose() throws Exception {
+        BookWriteBehindBuffer buffer = new BookWriteBehindBuffer(bookContainer, properties);
+        CompletableFuture<Void> first = buffer.submit(List.of(book("b1", "Old title")));
+        CompletableFuture<Void> second = buffer.submit(List.of(book("b1", "New title"), book("b2", "Other")));
+        assertEquals(2, buffer.pendingCount());
+        assertFalse(first.isDone());
+
+        buffer.close();
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<Book>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bookContainer, times(1)).saveBooks(captor.capture());
+        assertEquals(List.of("New title", "Other"), captor.getValue().stream().map(Book::title).toList());
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(second.isDone() && !second.isCompletedExceptionally());
+    }
+
+    @Test
+    void testFlushesWhenBatchSizeIsReached() throws Exception {
+        BookWriteBehindBuffer buffer = new BookWriteBehindBuffer(bookContainer, properties);
+        CompletableFuture<Void> written = buffer.submit(List.of(book("b1", "A"), book("b2", "B"), book("b3", "C")));
+        written.get(5, TimeUnit.SECONDS);
+        verify(bookContainer, times(1)).saveBooks(anyList());
+        buffer.close();
+    }
+
+    @Test
+    void testFailedFlushCompletesFutureExceptionally() throws Exception {
+        doThrow(new IllegalStateException("GridDB unavailable")).when(bookContainer).saveBooks(anyList());
+        BookWriteBehindBuffer buffer = new BookWriteBehindBuffer(bookContainer, properties);
+        CompletableFuture<Void> written = buffer.submit(List.of(book("b1", "A")));
+        buffer.close();
+        CompletionException e = assertThrows(CompletionException.class, written::join);
+        assertEquals("GridDB unavailable", e.getCause().getMessage());
+    }
+
+    @Test
+    void testAwaitWrittenFlushesPendingWriteOfTheBook() throws Exception {
+        BookWriteBehindBuffer buffer = new BookWriteBehindBuffer(bookContainer, properties);
+        CompletableFuture<Void> written = buffer.submit(List.of(book("b1", "A")));
+
+        buffer.awaitWritten("b2");
+        verify(bookContainer, never()).saveBooks(anyList());
+
+        buffer.awaitWritten("b1");
+        verify(bookContainer, times(1)).saveBooks(anyList());
+        assertTrue(written.isDone() && !written.isCompletedExceptionally());
+        assertEquals(0, buffer.pendingCount());
+        buffer.close();
+    }
+
+    @Test
+    void testSubmitAfterCloseFails() {
+        BookWriteBehindBuffer buffer = new BookWriteBehindBuffer(bookContainer, properties);
+        buffer.close();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> buffer.submit(List.of(book("b1", "A"))));
+        assertEquals("Write-behind buffer is closed", e.getMessage());
+        verify(bookContainer, never()).saveBooks(anyList());
+    }
+
+    private static Book book(String id, String title) {
+        return new Book(id, title, "Author", "Publisher", 4.0, null, null, 1L);
+    }
+}
@@ -0,0 +1,92 @@
+package com.galapea.techblog.bookinventory.domain;
+
+import com.galapea.techblog.base.griddb.GridDbCloudClient;
+import com.galapea.techblog.base.griddb.GridDbSqlUpdateResult;
+import com.galapea.techblog.bookinventory.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares row registration ({@code registerRows}) with batched multi-row SQL
+ * inserts ({@code /sql/update}) against a real GridDB Cloud instance. Writes to
+ * a separate container which is dropped afterwards.
+ *
+ * <pre>
+ * GRIDDBCLOUD_BASE_URL=... GRIDDBCLOUD_AUTH_TOKEN=... ./mvnw -Pbenchmark test -Dtest=BookWritePathBenchmark
+ * </pre>
+ */
+@Tag("benchmark")
+@EnabledIfEnvironmentVariable(named = "GRIDDBCLOUD_BASE_URL", matches = ".+")
+class BookWritePathBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(BookWritePathBenchmark.class);
+    private static final String CONTAINER = "BooksWriteBenchmark";
+    private static final int BOOKS = 2000;
+    private static final int BATCH_SIZE = 200;
+
+    private GridDbCloudClient client;
+    private BookContainer bookContainer;
+
+    @BeforeEach
+    void setUp() {
+        client = new GridDbCloudClient(System.getenv("GRIDDBCLOUD_BASE_URL"), System.getenv("GRIDDBCLOUD_AUTH_TOKEN"));
+        bookContainer = new BookContainer(client, CONTAINER);
+        bookContainer.createTableBooks();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.dropContainer(CONTAINER);
+    }
+
+    @Test
+    void compareRegisterRowsWithSqlInsert() {
+        // Each path writes books of its own, so both create rows instead of replacing existing ones
+        List<Book> registered = newBooks();
+        List<Book> inserted = newBooks();
+
+        long registerRowsMillis = time(() -> {
+            for (int i = 0; i < BOOKS; i += BATCH_SIZE) {
+                bookContainer.saveBooks(registered.subList(i, Math.min(BOOKS, i + BATCH_SIZE)));
+            }
+        });
+
+        List<GridDbSqlUpdateResult> results = new ArrayList<>();
+        long sqlMillis = time(() -> {
+            for (int i = 0; i < BOOKS; i += BATCH_SIZE) {
+                results.addAll(bookContainer.insertBooks(inserted.subList(i, Math.min(BOOKS, i + BATCH_SIZE))));
+            }
+        });
+
+        assertTrue(results.stream().allMatch(GridDbSqlUpdateResult::isSuccess));
+        assertEquals(BOOKS, results.stream().mapToLong(GridDbSqlUpdateResult::updatedRows).sum());
+        log.info("{} books in batches of {}", BOOKS, BATCH_SIZE);
+        log.info("registerRows: {} ms ({} rows/s)", registerRowsMillis, BOOKS * 1000L / registerRowsMillis);
+        log.info("/sql/update: {} ms ({} rows/s)", sqlMillis, BOOKS * 1000L / sqlMillis);
+    }
+
+    private static List<Book> newBooks() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new Book(BookService.nextId(), "Benchmark Book " + i, "Author " + (i % 50), "Publisher " + (i % 20),
+                    3.0 + (i % 20) / 10.0, "Fiction", "A summary for book " + i, (long) i,
+                    "https://www.goodreads.com/book/show/" + i));
+        }
+        return books;
+    }
+
+    private static long time(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
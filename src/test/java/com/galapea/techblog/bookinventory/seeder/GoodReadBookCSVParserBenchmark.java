@@ -0,0 +1,88 @@
+package com.galapea.techblog.bookinventory.seeder;
+
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.BookStrings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the heap retained by 100k books parsed from the same CSV file with
+ * the authors and publisher strings shared through {@link BookStrings} and with
+ * the pool turned off. Heap is measured around forced garbage collections while
+ * the parsed books are still referenced, so figures are approximate.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dtest=GoodReadBookCSVParserBenchmark
+ * </pre>
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GoodReadBookCSVParserBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(GoodReadBookCSVParserBenchmark.class);
+    private static final int BOOKS = 100_000;
+
+    @AfterEach
+    void tearDown() {
+        BookStrings.setEnabled(true);
+    }
+
+    @Test
+    void compareRetainedHeapWithAndWithoutThePool() throws Exception {
+        byte[] csv = generateCsv();
+
+        BookStrings.setEnabled(false);
+        long before = usedHeap();
+        List<Book> copies = parse(csv);
+        long copiesHeap = usedHeap() - before;
+        assertNotSame(copies.get(0).publisher(), copies.get(800).publisher());
+        copies = null;
+
+        BookStrings.setEnabled(true);
+        before = usedHeap();
+        List<Book> shared = parse(csv);
+        long sharedHeap = usedHeap() - before;
+        assertSame(shared.get(0).publisher(), shared.get(800).publisher());
+
+        log.info("{} books: {} KB retained without the pool, {} KB with it", BOOKS, copiesHeap / 1024,
+                sharedHeap / 1024);
+        assertEquals(BOOKS, shared.size());
+    }
+
+    private static List<Book> parse(byte[] csv) throws Exception {
+        List<Book> books = new ArrayList<>(BOOKS);
+        new GoodReadBookCSVParser().parseBooks(new ByteArrayInputStream(csv), books::add);
+        return books;
+    }
+
+    private static byte[] generateCsv() {
+        StringBuilder csv = new StringBuilder("Id,Name,RatingDist1,pagesNumber,RatingDist4,RatingDistTotal,"
+                + "PublishMonth,PublishDay,Publisher,CountsOfReview,PublishYear,Language,Authors,Rating,"
+                + "RatingDist2,RatingDist5,ISBN,RatingDist3\n");
+        for (int i = 0; i < BOOKS; i++) {
+            csv.append(i).append(",Benchmark Book ").append(i).append(",1:2,265,4:58,total:164,26,10,")
+                    .append("Publisher Number ").append(i % 800).append(",7,2000,,")
+                    .append("Author Name ").append(i % 5000).append(",3.99,2:8,5:58,0618082956,3:38\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
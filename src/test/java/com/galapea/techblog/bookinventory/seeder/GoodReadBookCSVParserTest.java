@@ -4,6 +4,7 @@ import com.galapea.techblog.bookinventory.domain.Book;
 import org.junit.jupiter.api.Test;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,4 +28,19 @@ class GoodReadBookCSVParserTest {
         assertEquals(4.57, firstBook.rating(), 0.01, "Book rating should be approximately 4.57");
         assertEquals("J.K. Rowling", firstBook.authors(), "Book authors should be 'J.K. Rowling'");
     }
+
+    @Test
+    void testParseBooks_streamsAllRowsUntilSinkStops() throws Exception {
+        GoodReadBookCSVParser parser = new GoodReadBookCSVParser();
+        List<Book> books = new ArrayList<>();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("goodreads-datasets-book1-100k.csv")) {
+            long parsed = parser.parseBooks(is, book -> {
+                books.add(book);
+                return books.size() < 200;
+            });
+            assertEquals(200, parsed);
+        }
+        assertEquals(200, books.size(), "Streaming parse is not capped like parseBooksFromCsv");
+        assertEquals("Harry Potter and the Half-Blood Prince (Harry Potter, #6)", books.get(0).title());
+    }
 }
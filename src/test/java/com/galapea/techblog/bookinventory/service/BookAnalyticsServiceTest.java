@@ -0,0 +1,88 @@
+package com.galapea.techblog.bookinventory.service;
+
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.BookColumnarStore;
+import com.galapea.techblog.bookinventory.domain.BookContainer;
+import com.galapea.techblog.bookinventory.domain.CatalogStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookAnalyticsServiceTest {
+    private static final Instant START = Instant.parse("2025-05-01T10:00:00Z");
+
+    private BookContainer bookContainer;
+    private Clock clock;
+    private BookCatalog bookCatalog;
+    private BookAnalyticsService analyticsService;
+
+    @BeforeEach
+    void setUp() {
+        bookContainer = Mockito.mock(BookContainer.class);
+        clock = Mockito.mock(Clock.class);
+        when(clock.instant()).thenReturn(START);
+        when(bookContainer.getCatalogStatistics(10)).thenReturn(statistics(100));
+        BookInventoryProperties properties = new BookInventoryProperties();
+        properties.getAnalytics().setRefreshInterval(Duration.ofMinutes(10));
+        bookCatalog = Mockito.mock(BookCatalog.class);
+        analyticsService = new BookAnalyticsService(bookContainer, bookCatalog, properties, clock);
+    }
+
+    @Test
+    void testStatisticsAreCachedForTheRefreshInterval() {
+        BookAnalyticsService.Analytics first = analyticsService.analytics();
+        when(clock.instant()).thenReturn(START.plus(Duration.ofMinutes(9)));
+        assertSame(first, analyticsService.analytics());
+        verify(bookContainer, times(1)).getCatalogStatistics(10);
+
+        when(bookContainer.getCatalogStatistics(10)).thenReturn(statistics(120));
+        when(clock.instant()).thenReturn(START.plus(Duration.ofMinutes(10)));
+        assertEquals(120, analyticsService.analytics().statistics().totalBooks());
+        verify(bookContainer, times(2)).getCatalogStatistics(10);
+    }
+
+    @Test
+    void testPreviousStatisticsAreServedWhenRefreshFails() {
+        BookAnalyticsService.Analytics first = analyticsService.analytics();
+        when(clock.instant()).thenReturn(START.plus(Duration.ofHours(1)));
+        when(bookContainer.getCatalogStatistics(10)).thenThrow(new IllegalStateException("GridDB down"));
+        assertSame(first, analyticsService.analytics());
+    }
+
+    @Test
+    void testMissingSummaryShare() {
+        CatalogStatistics statistics = analyticsService.analytics().statistics();
+        assertEquals(0.25, statistics.missingSummaryShare(), 0.0001);
+        assertEquals(0, CatalogStatistics.EMPTY.missingSummaryShare());
+    }
+
+    @Test
+    void testFilteredStatisticsAreComputedFromTheColumnarStore() {
+        when(bookCatalog.columnarStore()).thenReturn(BookColumnarStore.of(List.of(
+                new Book("book_1", "Dune", "Frank Herbert", "Ace", 4.3, "Science Fiction", null, 1L),
+                new Book("book_2", "Emma", "Jane Austen", "Penguin", 4.0, "Romance, Classics", "Summary", 2L),
+                new Book("book_3", "Persuasion", "Jane Austen", "Penguin", 4.2, "Romance", null, 3L)), id -> null));
+
+        CatalogStatistics statistics = analyticsService
+                .statistics(new BookAnalyticsService.Filter(4.1, "romance", null));
+
+        assertEquals(1, statistics.totalBooks());
+        assertEquals("Jane Austen", statistics.topAuthors().get(0).name());
+        assertEquals(List.of("Classics", "Romance", "Science Fiction"), analyticsService.genres());
+        verify(bookContainer, never()).getCatalogStatistics(anyInt());
+    }
+
+    private static CatalogStatistics statistics(long totalBooks) {
+        return new CatalogStatistics(totalBooks, totalBooks * 3 / 4, 4.1,
+                List.of(new CatalogStatistics.Count("4-5", totalBooks, null)), List.of(), List.of(), List.of());
+    }
+}
@@ -0,0 +1,163 @@
+package com.galapea.techblog.bookinventory.service;
+
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.BookColumnarStore;
+import com.galapea.techblog.bookinventory.domain.BookContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookCatalogTest {
+    private static final Instant START = Instant.parse("2025-05-01T10:00:00Z");
+
+    private BookContainer bookContainer;
+    private Clock clock;
+    private ApplicationEventPublisher eventPublisher;
+    private BookCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        bookContainer = Mockito.mock(BookContainer.class);
+        clock = Mockito.mock(Clock.class);
+        when(clock.instant()).thenReturn(START);
+        when(bookContainer.scan(4)).thenAnswer(invocation -> Stream.of(book("book_0001", "Dune"),
+                book("book_0003", "Emma"), book("book_0002", "Ulysses")));
+        BookInventoryProperties properties = new BookInventoryProperties();
+        properties.getCatalog().setMaxStaleness(Duration.ofMinutes(15));
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        catalog = new BookCatalog(bookContainer, properties, clock, eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalog.close();
+    }
+
+    @Test
+    void testSnapshotIsLoadedOnceAndSortedNewestFirst() {
+        BookCatalog.Snapshot snapshot = catalog.snapshot();
+        assertEquals(List.of("book_0003", "book_0002", "book_0001"), snapshot.books().stream().map(Book::id).toList());
+        assertEquals("Ulysses", snapshot.get("book_0002").title());
+        assertNull(snapshot.get("book_0004"));
+        assertEquals(List.of("book_0002"), snapshot.page(1, 1).stream().map(Book::id).toList());
+        assertSame(snapshot, catalog.snapshot());
+        verify(bookContainer, times(1)).scan(4);
+    }
+
+    @Test
+    void testChangesAreAppliedCopyOnWrite() {
+        BookCatalog.Snapshot before = catalog.snapshot();
+        catalog.onBooksChanged(new BooksChangedEvent(
+                List.of(book("book_0004", "Middlemarch"), book("book_0001", "Dune").withGenres("Science Fiction"))));
+        BookCatalog.Snapshot after = catalog.snapshot();
+
+        assertEquals(3, before.size());
+        assertNull(before.get("book_0001").genres());
+        assertEquals(4, after.size());
+        assertEquals("book_0004", after.books().get(0).id());
+        assertEquals("Science Fiction", after.get("book_0001").genres());
+        assertTrue(after.version() > before.version());
+    }
+
+    @Test
+    void testChangesAreMergedOnceForTheNextRead() {
+        BookCatalog.Snapshot before = catalog.snapshot();
+        for (int i = 10; i < 110; i++) {
+            catalog.onBooksChanged(new BooksChangedEvent(List.of(book("book_0" + i, "Title " + i))));
+        }
+        BookCatalog.Snapshot after = catalog.snapshot();
+
+        assertEquals(103, after.size());
+        assertEquals(before.version() + 1, after.version());
+        assertSame(after, catalog.snapshot());
+    }
+
+    @Test
+    void testColumnUpdatesApplyToTheCurrentVersion() {
+        catalog.snapshot();
+        catalog.onBooksChanged(BooksChangedEvent.updated("book_0001", book -> book.withGenres("Science Fiction")));
+        catalog.onBooksChanged(BooksChangedEvent.updated("book_0001", book -> book.withSummary("Spice.", null)));
+        catalog.onBooksChanged(BooksChangedEvent.updated("book_0009", book -> book.withGenres("Poetry")));
+
+        BookCatalog.Snapshot after = catalog.snapshot();
+        assertEquals("Science Fiction", after.get("book_0001").genres());
+        assertEquals("Spice.", after.get("book_0001").summary());
+        assertNull(after.get("book_0009"));
+        assertEquals(3, after.size());
+    }
+
+    @Test
+    void testColumnarStoreIsUpdatedInPlace() {
+        BookColumnarStore store = catalog.columnarStore();
+        catalog.onBooksChanged(new BooksChangedEvent(List.of(book("book_0004", "Middlemarch"))));
+        catalog.onBooksChanged(BooksChangedEvent.updated("book_0001", book -> book.withSummary("Spice.", null)));
+
+        assertSame(store, catalog.columnarStore());
+        assertEquals(4, store.size());
+        assertEquals(1, store.hasSummary().count());
+        int row = store.hasSummary().rows().findFirst().orElseThrow();
+        assertEquals("Spice.", store.summary(row));
+        verify(bookContainer, never()).getBook(anyString());
+    }
+
+    @Test
+    void testStaleSnapshotIsReloaded() {
+        catalog.snapshot();
+        when(clock.instant()).thenReturn(START.plus(Duration.ofMinutes(20)));
+        catalog.snapshot();
+        verify(bookContainer, times(2)).scan(4);
+    }
+
+    @Test
+    void testStaleSnapshotIsServedWhenReloadFails() {
+        BookCatalog.Snapshot loaded = catalog.snapshot();
+        when(clock.instant()).thenReturn(START.plus(Duration.ofMinutes(20)));
+        when(bookContainer.scan(4)).thenThrow(new IllegalStateException("GridDB down"));
+        assertSame(loaded, catalog.snapshot());
+    }
+
+    @Test
+    void testSyncFetchesOnlyNewAndChangedBooks() {
+        Instant written = START.minus(Duration.ofHours(1));
+        when(bookContainer.scan(4)).thenAnswer(invocation -> Stream.of(
+                new Book("book_0001", "Dune", "Author", "Publisher", 4.0, null, null, 1L, null, written),
+                new Book("book_0002", "Emma", "Author", "Publisher", 4.0, null, null, 1L, null, written)));
+        catalog.snapshot();
+        Book changed = new Book("book_0001", "Dune", "Author", "Publisher", 4.0, "Science Fiction", null, 1L, null,
+                START);
+        Book added = new Book("book_0003", "Ulysses", "Author", "Publisher", 4.0, null, null, 1L, null, START);
+        Book unchanged = new Book("book_0002", "Emma", "Author", "Publisher", 4.0, null, null, 1L, null, written);
+        when(bookContainer.getAllBooksAfter("book_0002")).thenReturn(List.of(added));
+        when(bookContainer.getAllBooksChangedSince(written.minus(Duration.ofMinutes(1))))
+                .thenReturn(List.of(unchanged, changed, added));
+
+        BookCatalog.Snapshot synced = catalog.sync();
+
+        assertEquals(3, synced.size());
+        assertEquals("Science Fiction", synced.get("book_0001").genres());
+        assertEquals(START, synced.changedUpTo());
+        final ArgumentCaptor<BooksChangedEvent> eventCaptor = ArgumentCaptor.forClass(BooksChangedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(BooksChangedEvent.Origin.GRIDDB, eventCaptor.getValue().origin());
+        assertEquals(List.of("book_0001", "book_0003"),
+                eventCaptor.getValue().books().stream().map(Book::id).sorted().toList());
+        verify(bookContainer, times(1)).scan(4);
+    }
+
+    private static Book book(String id, String title) {
+        return new Book(id, title, "Author", "Publisher", 4.0, null, null, 1L);
+    }
+}
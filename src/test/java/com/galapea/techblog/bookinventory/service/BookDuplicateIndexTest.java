@@ -0,0 +1,95 @@
+package com.galapea.techblog.bookinventory.service;
+
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookDuplicateIndexTest {
+    private BookDuplicateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookDuplicateIndex(new BookInventoryProperties());
+        index.rebuild(List.of(
+                new Book("b1", "Harry Potter and the Half-Blood Prince (Harry Potter, #6)",
+                        "J.K. Rowling/Mary GrandPré", "Scholastic Inc.", 4.6, null, null, 1L),
+                new Book("b2", "The Fellowship of the Ring", "J.R.R. Tolkien", "Allen & Unwin", 4.4, null, null, 2L),
+                new Book("b3", "Les Misérables", "Victor Hugo", "Penguin Classics", 4.2, null, null, 3L),
+                new Book("b4", "Good Omens", "Terry Pratchett/Neil Gaiman", "Workman", 4.3, null, null, 4L)));
+    }
+
+    @Test
+    void testPunctuationSeriesAndAuthorOrderAreIgnored() {
+        List<BookDuplicateIndex.Match> matches = index.similarTo(
+                new Book(null, "Harry Potter & the Half Blood Prince", "Mary GrandPre / J. K. Rowling", null, null,
+                        null, null, null),
+                5);
+        assertEquals(1, matches.size());
+        assertEquals("b1", matches.get(0).book().id());
+
+        matches = index.similarTo(new Book(null, "Good Omens: Deluxe Edition", "Neil Gaiman, Terry Pratchett", null,
+                null, null, null, null), 5);
+        assertEquals(List.of("b4"), matches.stream().map(match -> match.book().id()).toList());
+        assertEquals(1.0, matches.get(0).similarity(), 1e-9);
+    }
+
+    @Test
+    void testDifferentBooksDoNotMatch() {
+        assertTrue(index.similarTo(new Book(null, "The Two Towers", "J.R.R. Tolkien", null, null, null, null, null), 5)
+                .isEmpty());
+        assertTrue(index.similarTo(new Book(null, "Harry Potter and the Chamber of Secrets", "J.K. Rowling", null,
+                null, null, null, null), 5).isEmpty());
+    }
+
+    @Test
+    void testReportListsNearDuplicatePairsOnce() {
+        index.onBooksChanged(new BooksChangedEvent(List.of(
+                new Book("b5", "Les Miserables", "Victor Hugo", "Signet", 4.1, null, null, 5L),
+                new Book("b6", "The Fellowship of the Ring (The Lord of the Rings, #1)", "J.R.R. Tolkien",
+                        "Mariner", 4.4, null, null, 6L))));
+
+        List<BookDuplicateIndex.Pair> pairs = index.duplicates(10);
+
+        assertEquals(2, pairs.size());
+        assertEquals(List.of("b2:b6", "b3:b5"), pairs.stream().map(pair -> pair.first().id() + ":" + pair.second().id())
+                .sorted().toList());
+        assertEquals(1, index.duplicates(1).size());
+    }
+
+    @Test
+    void testReindexingMovesABookOutOfItsOldBuckets() {
+        index.index(List.of(new Book("b5", "Les Miserables", "Victor Hugo", null, null, null, null, 5L)));
+        assertEquals(1, index.duplicates(10).size());
+
+        index.index(List.of(new Book("b5", "Notre-Dame de Paris", "Victor Hugo", null, null, null, null, 5L)));
+
+        assertTrue(index.duplicates(10).isEmpty());
+        assertEquals(5, index.size());
+        // Enrichment leaves title and authors alone
+        index.index(List.of(new Book("b5", "Notre-Dame de Paris", "Victor Hugo", null, null, "Classics", null, 5L)));
+        assertTrue(index.similarTo(new Book(null, "Notre Dame de Paris", "Victor Hugo", null, null, null, null, null),
+                5).stream().anyMatch(match -> "Classics".equals(match.book().genres())));
+    }
+
+    @Test
+    void testLargeCatalogKeepsEveryBookFindable() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            books.add(new Book("book_" + i, "Volume " + i + " of the Chronicles of Place " + (i * 7919 % 5000),
+                    "Author " + i, null, null, null, null, (long) i));
+        }
+        index.rebuild(books);
+        for (int i = 0; i < 5000; i += 499) {
+            Book book = books.get(i);
+            List<BookDuplicateIndex.Match> matches = index.similarTo(
+                    new Book(null, book.title().toUpperCase(), book.authors(), null, null, null, null, null), 3);
+            assertEquals(book.id(), matches.get(0).book().id());
+        }
+    }
+}
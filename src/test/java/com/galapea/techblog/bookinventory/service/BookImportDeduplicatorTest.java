@@ -0,0 +1,112 @@
+package com.galapea.techblog.bookinventory.service;
+
+import com.galapea.techblog.base.griddb.query.Criteria;
+import com.galapea.techblog.base.griddb.query.Sort;
+import com.galapea.techblog.bookinventory.BookInventoryProperties;
+import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.BookContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class BookImportDeduplicatorTest {
+    private BookContainer bookContainer;
+    private BookCatalog bookCatalog;
+    private BookImportDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        bookContainer = Mockito.mock(BookContainer.class);
+        bookCatalog = Mockito.mock(BookCatalog.class);
+        when(bookCatalog.snapshot()).thenReturn(BookCatalog.Snapshot.of(1, Instant.now(),
+                List.of(book("book_0001", 101L), book("book_0002", 102L), book("book_0003", null))));
+        BookInventoryProperties properties = new BookInventoryProperties();
+        properties.getCsvImport().setDedupExpectedBooks(1000);
+        deduplicator = new BookImportDeduplicator(bookContainer, bookCatalog, properties);
+    }
+
+    @Test
+    void testNewBooksPassWithoutLookup() {
+        List<Book> books = List.of(book(null, 201L), book(null, 202L), book(null, null));
+
+        assertEquals(books, deduplicator.screen(books));
+        verify(bookContainer, never()).findBooks(any(), any(), anyLong());
+        assertEquals(3, deduplicator.screenedCount());
+        assertEquals(0, deduplicator.duplicateCount());
+    }
+
+    @Test
+    void testKnownBooksAreConfirmedInOneLookupAndSkipped() {
+        when(bookContainer.findBooks(any(Criteria.class), any(Sort.class), anyLong()))
+                .thenReturn(List.of(book("book_0001", 101L), book("book_0002", 102L)));
+        List<Book> books = List.of(book(null, 101L), book(null, 201L), book(null, 102L));
+
+        List<Book> accepted = deduplicator.screen(books);
+
+        assertEquals(List.of(201L), accepted.stream().map(Book::goodreadsBookId).toList());
+        ArgumentCaptor<Criteria> criteria = ArgumentCaptor.forClass(Criteria.class);
+        verify(bookContainer, times(1)).findBooks(criteria.capture(), any(Sort.class), anyLong());
+        String condition = criteria.getValue().toCondition();
+        assertTrue(condition.contains("101") && condition.contains("102"), condition);
+        assertFalse(condition.contains("201"), condition);
+        assertEquals(2, deduplicator.duplicateCount());
+        assertEquals(2, deduplicator.possibleHitCount());
+    }
+
+    @Test
+    void testUnconfirmedHitsAreKept() {
+        when(bookContainer.findBooks(any(Criteria.class), any(Sort.class), anyLong())).thenReturn(List.of());
+
+        List<Book> accepted = deduplicator.screen(List.of(book(null, 101L)));
+
+        assertEquals(1, accepted.size());
+        assertEquals(0, deduplicator.duplicateCount());
+    }
+
+    @Test
+    void testRepeatsWithinABatchAreKeptOnce() {
+        List<Book> accepted = deduplicator.screen(List.of(book(null, 301L), book(null, 301L), book(null, 302L)));
+
+        assertEquals(List.of(301L, 302L), accepted.stream().map(Book::goodreadsBookId).toList());
+    }
+
+    @Test
+    void testSavedBooksAreAddedToTheFilter() {
+        deduplicator.rebuild();
+        deduplicator.onBooksChanged(new BooksChangedEvent(List.of(book("book_0004", 401L))));
+        when(bookContainer.findBooks(any(Criteria.class), any(Sort.class), anyLong()))
+                .thenReturn(List.of(book("book_0004", 401L)));
+
+        assertTrue(deduplicator.screen(List.of(book(null, 401L))).isEmpty());
+        verify(bookCatalog, times(2)).snapshot();
+    }
+
+    @Test
+    void testBooksOfABatchStillBeingWrittenAreSkipped() {
+        List<Book> first = deduplicator.screen(List.of(book(null, 501L), book(null, 502L)));
+
+        List<Book> second = deduplicator.screen(List.of(book(null, 502L), book(null, 503L)));
+
+        assertEquals(List.of(book(null, 503L)), second);
+        verify(bookContainer, never()).findBooks(any(), any(), anyLong());
+
+        // Once written, the books are found through the filter and a lookup
+        deduplicator.release(first);
+        when(bookContainer.findBooks(any(Criteria.class), any(Sort.class), anyLong()))
+                .thenReturn(List.of(book("book_0501", 501L)));
+        assertTrue(deduplicator.screen(List.of(book(null, 501L))).isEmpty());
+    }
+
+    private static Book book(String id, Long goodreadsBookId) {
+        return new Book(id, "Title " + goodreadsBookId, "Author", "Publisher", 4.0, null, null, goodreadsBookId);
+    }
+}
@@ -0,0 +1,61 @@
+package com.galapea.techblog.bookinventory.service;
+
+import com.galapea.techblog.bookinventory.domain.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.rebuild(List.of(new Book("b1", "The Hobbit", "J.R.R. Tolkien", "Houghton Mifflin", 4.3, null, null, 1L),
+                new Book("b2", "The Fellowship of the Ring", "J.R.R. Tolkien", "Allen & Unwin", 4.4, null, null, 2L),
+                new Book("b3", "Les Misérables", "Victor Hugo", "Penguin Classics", 4.2, null, null, 3L),
+                new Book("b4", "Harry Potter and the Half-Blood Prince", "J.K. Rowling", "Scholastic Inc.", 4.6,
+                        null, null, 4L)));
+    }
+
+    @Test
+    void testSearchMatchesPrefixCaseInsensitive() {
+        List<Book> result = index.search("HOB", 10);
+        assertEquals(1, result.size());
+        assertEquals("b1", result.get(0).id());
+    }
+
+    @Test
+    void testSearchRequiresEveryTermAcrossFields() {
+        List<Book> result = index.search("tolk fell", 10);
+        assertEquals(1, result.size());
+        assertEquals("b2", result.get(0).id());
+        assertEquals(2, index.search("tolkien", 10).size());
+        assertTrue(index.search("tolkien potter", 10).isEmpty());
+    }
+
+    @Test
+    void testSearchIgnoresAccentsAndPunctuation() {
+        assertEquals("b3", index.search("miserables", 10).get(0).id());
+        assertEquals("b4", index.search("half blood", 10).get(0).id());
+        assertEquals("b4", index.search("scholastic", 10).get(0).id());
+    }
+
+    @Test
+    void testSearchHonoursLimit() {
+        assertEquals(1, index.search("the", 1).size());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    void testIndexReplacesTermsOfExistingBook() {
+        index.index(List.of(new Book("b1", "The Silmarillion", "J.R.R. Tolkien", "Allen & Unwin", 3.9, null, null,
+                1L)));
+        assertTrue(index.search("hobbit", 10).isEmpty());
+        assertEquals("b1", index.search("silm", 10).get(0).id());
+        assertEquals(4, index.size());
+    }
+}
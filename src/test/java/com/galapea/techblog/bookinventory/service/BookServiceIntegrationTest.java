@@ -1,34 +1,62 @@
 package com.galapea.techblog.bookinventory.service;
 
+import com.galapea.techblog.base.griddb.GridDbException;
+import com.galapea.techblog.base.griddb.GridDbRowQuarantine;
+import com.galapea.techblog.base.griddb.query.Assignment;
 import com.galapea.techblog.bookinventory.domain.Book;
+import com.galapea.techblog.bookinventory.domain.BookAIReply;
+import com.galapea.techblog.bookinventory.domain.BookColumns;
 import com.galapea.techblog.bookinventory.domain.BookContainer;
+import com.galapea.techblog.bookinventory.domain.BookWriteBehindBuffer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatusCode;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class BookServiceIntegrationTest {
+    private static final Instant NOW = Instant.parse("2025-05-01T10:00:00.123Z");
+
     private BookService bookService;
     private BookAssistant bookAssistant;
     private BookContainer bookContainer;
+    private BookSearchIndex bookSearchIndex;
+    private BookCatalog bookCatalog;
+    private ApplicationEventPublisher eventPublisher;
 
     @BeforeEach
     void setUp() {
         bookAssistant = Mockito.mock(BookAssistant.class);
         bookContainer = Mockito.mock(BookContainer.class);
-        bookService = new BookService(bookAssistant, bookContainer);
+        bookSearchIndex = Mockito.mock(BookSearchIndex.class);
+        bookCatalog = Mockito.mock(BookCatalog.class);
+        when(bookCatalog.snapshot()).thenReturn(BookCatalog.Snapshot.EMPTY);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        bookService = new BookService(bookAssistant, bookContainer, bookSearchIndex,
+                Mockito.mock(BookDuplicateIndex.class), bookCatalog, Mockito.mock(BookWriteBehindBuffer.class),
+                Clock.fixed(NOW, ZoneOffset.UTC), eventPublisher);
     }
 
     @Test
     void testSaveBooksCallsBookContainerWithCorrectData() {
         BookContainer mockBookContainer = mock(BookContainer.class);
         BookAssistant mockBookAssistant = mock(BookAssistant.class);
-        BookService bookService = new BookService(mockBookAssistant, mockBookContainer);
+        BookService bookService = new BookService(mockBookAssistant, mockBookContainer,
+                mock(BookSearchIndex.class), mock(BookDuplicateIndex.class), mock(BookCatalog.class),
+                mock(BookWriteBehindBuffer.class), Clock.fixed(NOW, ZoneOffset.UTC),
+                mock(ApplicationEventPublisher.class));
         String bookId = "bookIDXXJXJXJ";
         List<Book> books = List.of(new Book(null, "Title1", "Author1", "Publisher1", 4.5, "Genre1", "Summary1", 123L),
                 new Book(bookId, "Title2", "Author2", "Publisher2", 3.2, "Genre2", "Summary2", 456L));
@@ -45,5 +73,91 @@ class BookServiceIntegrationTest {
         assertEquals("Title1", insertedBooks.get(0).title());
         assertEquals("Title2", insertedBooks.get(1).title());
         assertEquals(bookId, insertedBooks.get(1).id());
+        assertEquals(NOW, insertedBooks.get(0).updatedAt());
+    }
+
+    @Test
+    void testBooksRejectedByGridDbAreLeftOutOfTheEvent() {
+        doAnswer(invocation -> {
+            List<Book> saved = invocation.getArgument(0);
+            throw new GridDbRowQuarantine.PartialWriteException("1 of 2 books rejected by GridDB",
+                    new GridDbException("Bad row", HttpStatusCode.valueOf(400), "{}"), List.of(saved.get(1)));
+        }).when(bookContainer).saveBooks(anyList());
+        List<Book> books = List.of(new Book(null, "Title1", "Author1", "Publisher1", 4.5, null, null, 123L),
+                new Book(null, "Title2", "Author2", "Publisher2", 3.2, null, null, 456L));
+
+        GridDbRowQuarantine.PartialWriteException e = assertThrows(GridDbRowQuarantine.PartialWriteException.class,
+                () -> bookService.saveBooks(books));
+
+        assertEquals(List.of("Title2"), e.getRejected().stream().map(book -> ((Book) book).title()).toList());
+        final ArgumentCaptor<BooksChangedEvent> eventCaptor = ArgumentCaptor.forClass(BooksChangedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(List.of("Title1"), eventCaptor.getValue().books().stream().map(Book::title).toList());
+    }
+
+    @Test
+    void testGenerateGenreUpdatesOnlyTheGenresColumn() {
+        String bookId = "book_0001";
+        when(bookContainer.getBook(bookId))
+                .thenReturn(new Book(bookId, "Title1", "Author1", "Publisher1", 4.5, null, "Summary1", 123L));
+        when(bookAssistant.findBookGenre(bookId, "Title1", "Author1")).thenReturn(new BookAIReply("Fantasy"));
+        bookService.generateGenre(bookId);
+        final ArgumentCaptor<Assignment> assignmentCaptor = ArgumentCaptor.forClass(Assignment.class);
+        verify(bookContainer).updateBook(eq(bookId), eq(NOW), assignmentCaptor.capture());
+        assertEquals(List.of(BookColumns.GENRES.set("Fantasy")), assignmentCaptor.getAllValues());
+        verify(bookContainer, never()).saveBooks(any());
+    }
+
+    @Test
+    void testGenerateGenrePublishesChangedBook() {
+        String bookId = "book_0001";
+        when(bookContainer.getBook(bookId))
+                .thenReturn(new Book(bookId, "Title1", "Author1", "Publisher1", 4.5, null, "Summary1", 123L));
+        when(bookAssistant.findBookGenre(bookId, "Title1", "Author1")).thenReturn(new BookAIReply("Fantasy"));
+        bookService.generateGenre(bookId);
+        final ArgumentCaptor<BooksChangedEvent> eventCaptor = ArgumentCaptor.forClass(BooksChangedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        BooksChangedEvent event = eventCaptor.getValue();
+        assertTrue(event.books().isEmpty());
+        BooksChangedEvent.Update update = event.updates().get(0);
+        assertEquals(bookId, update.bookId());
+        Book changed = update.change().apply(new Book(bookId, "Title1", "Author1", "Publisher1", 4.5, null,
+                "Summary2", 123L));
+        assertEquals("Fantasy", changed.genres());
+        assertEquals("Summary2", changed.summary());
+        assertEquals(NOW, changed.updatedAt());
+    }
+
+    @Test
+    void testGenreAndSummaryGeneratedTogetherKeepBothColumns() throws Exception {
+        String bookId = "book_0001";
+        Book book = new Book(bookId, "Title1", "Author1", "Publisher1", 4.5, null, null, 123L);
+        when(bookContainer.getBook(bookId)).thenReturn(book);
+        // Both jobs read the book before either writes its column
+        CountDownLatch bothAsked = new CountDownLatch(2);
+        when(bookAssistant.findBookGenre(bookId, "Title1", "Author1")).thenAnswer(invocation -> {
+            bothAsked.countDown();
+            bothAsked.await(5, TimeUnit.SECONDS);
+            return new BookAIReply("Fantasy");
+        });
+        when(bookAssistant.findBookSummary(bookId, "Title1", "Author1")).thenAnswer(invocation -> {
+            bothAsked.countDown();
+            bothAsked.await(5, TimeUnit.SECONDS);
+            return new BookAIReply("A hobbit goes on a journey.", "https://www.goodreads.com/book/show/5907");
+        });
+        BookSearchIndex index = new BookSearchIndex();
+        index.index(List.of(book));
+        doAnswer(invocation -> {
+            index.onBooksChanged(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(BooksChangedEvent.class));
+
+        CompletableFuture.allOf(CompletableFuture.runAsync(() -> bookService.generateGenre(bookId)),
+                CompletableFuture.runAsync(() -> bookService.generateSummary(bookId))).get(10, TimeUnit.SECONDS);
+
+        Book indexed = index.search("Title1", 1).get(0);
+        assertEquals("Fantasy", indexed.genres());
+        assertEquals("A hobbit goes on a journey.", indexed.summary());
+        assertEquals("https://www.goodreads.com/book/show/5907", indexed.goodreadsUrl());
     }
 }